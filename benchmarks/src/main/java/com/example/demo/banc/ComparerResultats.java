@@ -0,0 +1,85 @@
+package com.example.demo.banc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compare deux fichiers de résultats JMH (-rf json) : écart par banc et par jeu
+ * de paramètres, et code de sortie 1 si un banc régresse au-delà du seuil.
+ *
+ * Usage : java -cp ... com.example.demo.banc.ComparerResultats reference.json nouveau.json [seuil-pourcent]
+ */
+public class ComparerResultats {
+
+    private record Mesure(String mode, double score, double erreur, String unite) {
+
+        /** Écart relatif, positif quand le nouveau résultat est moins bon. */
+        double regression(Mesure nouvelle) {
+            double ecart = (nouvelle.score - score) / score * 100;
+            return "thrpt".equals(mode) ? -ecart : ecart;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : ComparerResultats reference.json nouveau.json [seuil-pourcent]");
+            System.exit(2);
+        }
+        double seuil = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Mesure> reference = lire(new File(args[0]));
+        Map<String, Mesure> nouveau = lire(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Mesure> entree : new TreeMap<>(nouveau).entrySet()) {
+            Mesure avant = reference.get(entree.getKey());
+            Mesure apres = entree.getValue();
+            if (avant == null) {
+                System.out.printf(Locale.ROOT, "%-90s %12s %12.3f %s (nouveau)%n",
+                        entree.getKey(), "-", apres.score, apres.unite);
+                continue;
+            }
+            double regression = avant.regression(apres);
+            // Un écart dans les barres d'erreur n'est pas une régression
+            boolean significatif = Math.abs(apres.score - avant.score) > avant.erreur + apres.erreur;
+            boolean regresse = significatif && regression > seuil;
+            if (regresse) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%-90s %12.3f %12.3f %s %+7.1f%%%s%n",
+                    entree.getKey(), avant.score, apres.score, apres.unite, regression,
+                    regresse ? "  REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " banc(s) en régression de plus de " + seuil + " %");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Mesure> lire(File fichier) throws IOException {
+        Map<String, Mesure> mesures = new LinkedHashMap<>();
+        for (JsonNode banc : new ObjectMapper().readTree(fichier)) {
+            StringBuilder cle = new StringBuilder(banc.path("benchmark").asText());
+            JsonNode params = banc.path("params");
+            Iterator<Map.Entry<String, JsonNode>> champs = params.fields();
+            Map<String, String> tries = new TreeMap<>();
+            while (champs.hasNext()) {
+                Map.Entry<String, JsonNode> champ = champs.next();
+                tries.put(champ.getKey(), champ.getValue().asText());
+            }
+            tries.forEach((nom, valeur) -> cle.append(' ').append(nom).append('=').append(valeur));
+            JsonNode metrique = banc.path("primaryMetric");
+            double erreur = metrique.path("scoreError").asDouble(0);
+            mesures.put(cle.toString(), new Mesure(banc.path("mode").asText(), metrique.path("score").asDouble(),
+                    Double.isNaN(erreur) ? 0 : erreur, metrique.path("scoreUnit").asText()));
+        }
+        return mesures;
+    }
+}
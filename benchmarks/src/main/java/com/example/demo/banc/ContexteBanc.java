@@ -0,0 +1,50 @@
+package com.example.demo.banc;
+
+import com.example.demo.RahallApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Application complète démarrée une fois par essai sur une base H2 remplie par
+ * {@link JeuDeDonnees}. Les tailles du jeu sont des paramètres JMH :
+ * -p gares=1000 -p trains=100000
+ */
+@State(Scope.Benchmark)
+public abstract class ContexteBanc {
+
+    @Param({ "200" })
+    public int gares;
+
+    @Param({ "10000", "100000" })
+    public int trains;
+
+    protected ConfigurableApplicationContext contexte;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        contexte = new SpringApplicationBuilder(RahallApplication.class, JeuDeDonnees.class)
+                .profiles("banc")
+                .properties("banc.gares=" + gares, "banc.trains=" + trains)
+                .run();
+        preparer();
+    }
+
+    /** Données propres à un banc, lues une fois le contexte prêt. */
+    protected void preparer() {
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    protected <T> T bean(Class<T> type) {
+        return contexte.getBean(type);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.banc;
+
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.service.ImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Remplit la base du banc avant ApplicationReadyEvent : les index en mémoire
+ * se chargent donc sur le jeu complet, comme au démarrage en production.
+ * Même graine, même jeu : les résultats de deux builds restent comparables.
+ */
+public class JeuDeDonnees implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(JeuDeDonnees.class);
+
+    static final LocalDateTime DEBUT = LocalDateTime.of(2024, 6, 3, 0, 0);
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    @Autowired
+    private ImportService importService;
+
+    @Value("${banc.gares}")
+    private int nombreGares;
+
+    @Value("${banc.trains}")
+    private int nombreTrains;
+
+    @Value("${banc.graine:42}")
+    private long graine;
+
+    /** Nom de la i-ème ville : quatre gares par ville. */
+    static String ville(int i) {
+        return "Ville" + i;
+    }
+
+    static int nombreVilles(int nombreGares) {
+        return Math.max(1, nombreGares / 4);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long debut = System.currentTimeMillis();
+        Random random = new Random(graine);
+        int villes = nombreVilles(nombreGares);
+
+        List<Gare> gares = new ArrayList<>(nombreGares);
+        for (int i = 0; i < nombreGares; i++) {
+            gares.add(new Gare("Gare " + i, ville(i % villes), 2 + random.nextInt(20), random.nextInt(10) > 0));
+        }
+        gares = gareRepository.saveAll(gares);
+
+        List<Train> lot = new ArrayList<>();
+        for (int i = 0; i < nombreTrains; i++) {
+            int depart = random.nextInt(gares.size());
+            int arrivee = (depart + 1 + random.nextInt(gares.size() - 1)) % gares.size();
+            LocalDateTime heure = DEBUT.plusMinutes(random.nextInt(7 * 24 * 60));
+            lot.add(new Train("B" + i, heure, heure.plusMinutes(30 + random.nextInt(270)),
+                    reference(gares.get(depart)), reference(gares.get(arrivee))));
+            if (lot.size() == ImportService.TAILLE_MAX_IMPORT) {
+                importService.importerTrains(lot);
+                lot = new ArrayList<>();
+            }
+        }
+        if (!lot.isEmpty()) {
+            importService.importerTrains(lot);
+        }
+        log.info("Jeu de banc : {} gares, {} trains en {} ms",
+                nombreGares, nombreTrains, System.currentTimeMillis() - debut);
+    }
+
+    private static Gare reference(Gare gare) {
+        Gare reference = new Gare();
+        reference.setId(gare.getId());
+        return reference;
+    }
+}
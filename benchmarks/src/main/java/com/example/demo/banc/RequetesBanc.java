@@ -0,0 +1,76 @@
+package com.example.demo.banc;
+
+import com.example.demo.dto.TrainVue;
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requêtes des repositories contre la base H2 embarquée : coût du plan, des
+ * jointures et de la matérialisation (entités ou projections TrainVue).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequetesBanc extends ContexteBanc {
+
+    private static final Pageable PAGE = PageRequest.of(0, 100);
+
+    private TrainRepository trainRepository;
+    private GareRepository gareRepository;
+    private Long gareId;
+
+    @Override
+    protected void preparer() {
+        trainRepository = bean(TrainRepository.class);
+        gareRepository = bean(GareRepository.class);
+        gareId = trainRepository.pageParId(0L, PageRequest.of(0, 1)).get(0).gareDepart().id();
+    }
+
+    @Benchmark
+    public List<Train> trainsParGare() {
+        return trainRepository.findTrainsByGareId(gareId);
+    }
+
+    @Benchmark
+    public List<TrainVue> pageParGare() {
+        return trainRepository.pageParGareParId(gareId, 0L, PAGE);
+    }
+
+    @Benchmark
+    public List<TrainVue> pageParId() {
+        return trainRepository.pageParId(0L, PAGE);
+    }
+
+    @Benchmark
+    public List<Train> trainsParVilles() {
+        return trainRepository.findByVilles(JeuDeDonnees.ville(0), JeuDeDonnees.ville(1));
+    }
+
+    @Benchmark
+    public List<Object[]> departsParHeure() {
+        LocalDateTime debut = JeuDeDonnees.DEBUT.plusDays(1);
+        return trainRepository.compterDepartsParHeure(gareId, debut, debut.plusDays(1));
+    }
+
+    @Benchmark
+    public List<Gare> garesParVille() {
+        return gareRepository.findByVille(JeuDeDonnees.ville(0));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.banc;
+
+import com.example.demo.dto.HoraireCompact;
+import com.example.demo.dto.TrainVue;
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation JSON des listes renvoyées par les endpoints, avec l'ObjectMapper
+ * configuré par Spring (celui des contrôleurs), et forme compacte en JSON et CBOR.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerialisationBanc extends ContexteBanc {
+
+    @Param({ "100", "1000" })
+    public int lignes;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper cbor;
+    private List<Train> trains;
+    private List<TrainVue> vues;
+    private List<Gare> gareListe;
+
+    @Override
+    protected void preparer() {
+        objectMapper = bean(ObjectMapper.class);
+        cbor = bean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+        TrainRepository trainRepository = bean(TrainRepository.class);
+        vues = trainRepository.pageParId(0L, PageRequest.of(0, lignes));
+        trains = trainRepository.findAllById(vues.stream().map(TrainVue::id).toList());
+        gareListe = bean(GareRepository.class).findAll();
+    }
+
+    @Benchmark
+    public byte[] trains() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(trains);
+    }
+
+    @Benchmark
+    public byte[] vuesTrains() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(vues);
+    }
+
+    // Conversion comprise : c'est le travail fait par ReponsesCompactes à chaque réponse
+    @Benchmark
+    public byte[] vuesCompactes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(HoraireCompact.de(vues));
+    }
+
+    @Benchmark
+    public byte[] vuesCompactesCbor() throws JsonProcessingException {
+        return cbor.writeValueAsBytes(HoraireCompact.de(vues));
+    }
+
+    @Benchmark
+    public byte[] gares() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(gareListe);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.banc;
+
+import com.example.demo.model.Train;
+import com.example.demo.service.Curseur;
+import com.example.demo.service.GareService;
+import com.example.demo.service.TrainService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Méthodes de service les plus sollicitées : recherche avancée (moteur horaire
+ * puis chargement des trains retenus) et statistiques.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServicesBanc extends ContexteBanc {
+
+    private TrainService trainService;
+    private GareService gareService;
+    private Long gareId;
+
+    @Override
+    protected void preparer() {
+        trainService = bean(TrainService.class);
+        gareService = bean(GareService.class);
+        // La gare la plus desservie du jeu n'est pas connue : on prend la première
+        gareId = gareService.getGaresPage(Curseur.debut(Curseur.Tri.ID), 1).getElements().get(0).getId();
+    }
+
+    @Benchmark
+    public List<Train> rechercheAvanceeParVilles() {
+        return trainService.rechercheAvancee(JeuDeDonnees.ville(0), JeuDeDonnees.ville(1), null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Train> rechercheAvanceeSurUneJournee() {
+        return trainService.rechercheAvancee(JeuDeDonnees.ville(0), null,
+                JeuDeDonnees.DEBUT, JeuDeDonnees.DEBUT.plusDays(1), 180, true);
+    }
+
+    @Benchmark
+    public Map<String, Object> statistiquesGlobales() {
+        return gareService.getStatistiquesGlobales();
+    }
+
+    @Benchmark
+    public Map<String, Object> statistiquesGare() {
+        return gareService.getStatistiquesGare(gareId);
+    }
+
+    @Benchmark
+    public Map<String, Object> statistiquesGareSurUneJournee() {
+        LocalDateTime debut = JeuDeDonnees.DEBUT.plusDays(2);
+        return gareService.getStatistiquesGare(gareId, debut, debut.plusDays(1));
+    }
+}
@@ -0,0 +1,35 @@
+#!/usr/bin/env bash
+# Démarre l'application sur le profil "embarque" (H2 en mémoire + réseau synthétique),
+# puis joue le scénario de charge banc/scenario-reseau.txt et affiche débit et percentiles.
+# Même graine et mêmes paramètres : même réseau, résultats comparables d'un build à l'autre.
+#
+# Usage : scripts/charge-reseau.sh [clients] [duree-secondes] [options Spring...]
+#   ex. : scripts/charge-reseau.sh 200 60 --rahal.generateur.villes=500 --rahal.generateur.trains-par-jour=50000
+set -euo pipefail
+
+CLIENTS=${1:-200}
+DUREE=${2:-30}
+shift $(( $# > 2 ? 2 : $# ))
+PORT=8787
+BASE="http://localhost:${PORT}"
+DATE=$(date +%F)
+cd "$(dirname "$0")/.."
+
+./mvnw -q -DskipTests package
+./mvnw -q test-compile
+JAR=$(ls target/rahal-*-exec.jar | head -1)
+
+java -jar "$JAR" --spring.profiles.active=embarque --rahal.generateur.debut="${DATE}" "$@" \
+     > target/serveur-embarque.log 2>&1 &
+PID=$!
+trap 'kill ${PID} 2>/dev/null || true' EXIT
+# Le serveur répond avant la fin de la génération : on attend le chargement des index (ApplicationReadyEvent)
+until grep -q "Index des gares chargé" target/serveur-embarque.log; do
+  kill -0 ${PID} 2>/dev/null || { tail -50 target/serveur-embarque.log; exit 1; }
+  sleep 1
+done
+grep "Réseau synthétique généré" target/serveur-embarque.log || true
+
+java -cp target/test-classes com.example.demo.banc.ChargeHttp \
+     --scenario banc/scenario-reseau.txt --base "${BASE}" --date "${DATE}" \
+     --clients "${CLIENTS}" --duree "${DUREE}" --libelle reseau
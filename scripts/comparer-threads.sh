@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Compare le débit et le p99 du pool de threads Tomcat et du mode threads virtuels
+# (rahal.threads.virtuels) sur les mêmes endpoints, contre la base configurée.
+#
+# Usage : scripts/comparer-threads.sh [clients] [duree-secondes]
+set -euo pipefail
+
+CLIENTS=${1:-400}
+DUREE=${2:-30}
+PORT=8787
+BASE="http://localhost:${PORT}"
+cd "$(dirname "$0")/.."
+
+./mvnw -q -DskipTests package
+./mvnw -q test-compile
+JAR=$(ls target/rahal-*-exec.jar | head -1)
+
+URLS=(
+  "${BASE}/api/gares?taille=100"
+  "${BASE}/api/trains?taille=100"
+  "${BASE}/api/gares/statistiques/globales"
+  "${BASE}/api/trains/recherche-avancee?villeDepart=Paris"
+)
+
+for MODE in false true; do
+  java -jar "$JAR" --rahal.threads.virtuels=${MODE} --logging.level.com.example.demo=INFO > "target/serveur-${MODE}.log" 2>&1 &
+  PID=$!
+  trap 'kill ${PID} 2>/dev/null || true' EXIT
+  until curl -sf "${BASE}/api/gares?taille=1" > /dev/null; do sleep 1; done
+
+  LIBELLE=$([ "$MODE" = true ] && echo "threads-virtuels" || echo "pool-tomcat")
+  java -cp target/test-classes com.example.demo.banc.ChargeHttp \
+       --clients "${CLIENTS}" --duree "${DUREE}" --libelle "${LIBELLE}" "${URLS[@]}"
+
+  kill ${PID}
+  wait ${PID} 2>/dev/null || true
+done
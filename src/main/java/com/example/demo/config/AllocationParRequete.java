@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Octets alloués par requête, par endpoint ("rahal.http.allocation", tags uri et method) :
+ * les endpoints qui font tourner le GC se voient à côté de leur latence.
+ *
+ * Mesuré sur le thread de la requête : le travail asynchrone (exports en flux, SSE)
+ * n'est pas compté, et la JVM ne le mesure pas sur un thread virtuel.
+ *
+ * Un résumé par couple (uri, method), construit une fois puis réutilisé ; la
+ * configuration des histogrammes est vérifiée au démarrage. Une erreur de métrique
+ * ne fait jamais échouer la requête mesurée.
+ */
+@Component
+public class AllocationParRequete extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationParRequete.class);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<String, DistributionSummary> resumes = new ConcurrentHashMap<>();
+
+    // Une configuration invalide (bornes, percentiles) échoue ici, pas sur une requête
+    @PostConstruct
+    void verifierConfiguration() {
+        resume("UNKNOWN", "GET");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!THREADS.isThreadAllocatedMemoryEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long avant = THREADS.getCurrentThreadAllocatedBytes();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long apres = THREADS.getCurrentThreadAllocatedBytes();
+            if (avant >= 0 && apres >= avant && !request.isAsyncStarted()) {
+                Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                try {
+                    resume(motif == null ? "UNKNOWN" : motif.toString(), request.getMethod()).record(apres - avant);
+                } catch (RuntimeException e) {
+                    log.warn("Allocation par requête non enregistrée : {}", e.toString());
+                }
+            }
+        }
+    }
+
+    private DistributionSummary resume(String uri, String methode) {
+        return resumes.computeIfAbsent(methode + ' ' + uri, cle -> DistributionSummary.builder("rahal.http.allocation")
+                .description("Octets alloués par requête")
+                .baseUnit("bytes")
+                .tag("uri", uri)
+                .tag("method", methode)
+                .register(registry));
+    }
+}
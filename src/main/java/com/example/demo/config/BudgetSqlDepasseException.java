@@ -0,0 +1,12 @@
+package com.example.demo.config;
+
+/**
+ * Levée quand une requête HTTP dépasse son budget de requêtes SQL
+ * (rahal.sql.budget.mode=echouer, utilisé par les tests).
+ */
+public class BudgetSqlDepasseException extends RuntimeException {
+
+    public BudgetSqlDepasseException(int requetes, int budget) {
+        super("Budget SQL dépassé : " + requetes + " requêtes pour un budget de " + budget);
+    }
+}
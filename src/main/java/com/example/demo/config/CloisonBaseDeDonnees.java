@@ -0,0 +1,120 @@
+package com.example.demo.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cloison devant le pool de connexions : autant de permis que de connexions.
+ *
+ * Avec des threads virtuels, des milliers de requêtes peuvent demander une connexion
+ * en même temps. Elles attendent ici, sur un sémaphore équitable (un thread virtuel
+ * bloqué ne coûte presque rien), au lieu de s'empiler dans le pool jusqu'à son délai.
+ * Au-delà de {@code fileMax} requêtes en attente, ou après {@code attenteMaxMs},
+ * la demande échoue tout de suite.
+ *
+ * Le permis est rendu à la fermeture de la connexion.
+ */
+public class CloisonBaseDeDonnees extends DelegatingDataSource implements AutoCloseable {
+
+    private final Semaphore permis;
+    private final long attenteMaxMs;
+    private final int fileMax;
+    private final AtomicInteger enAttente = new AtomicInteger();
+
+    public CloisonBaseDeDonnees(DataSource cible, int connexions, long attenteMaxMs, int fileMax) {
+        super(cible);
+        this.permis = new Semaphore(connexions, true);
+        this.attenteMaxMs = attenteMaxMs;
+        this.fileMax = fileMax;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquerir();
+        try {
+            return rendreALaFermeture(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquerir();
+        try {
+            return rendreALaFermeture(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+    }
+
+    // Appelée à l'arrêt du contexte à la place du close() du pool enveloppé
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+
+    public int getEnAttente() { return enAttente.get(); }
+
+    public int getPermisDisponibles() { return permis.availablePermits(); }
+
+    private void acquerir() throws SQLException {
+        if (enAttente.incrementAndGet() > fileMax) {
+            enAttente.decrementAndGet();
+            throw new SQLTransientConnectionException("Base saturée : " + fileMax + " requêtes déjà en attente d'une connexion");
+        }
+        try {
+            if (!permis.tryAcquire(attenteMaxMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Aucune connexion disponible après " + attenteMaxMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Attente d'une connexion interrompue", e);
+        } finally {
+            enAttente.decrementAndGet();
+        }
+    }
+
+    private Connection rendreALaFermeture(Connection connexion) {
+        AtomicBoolean rendue = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, methode, args) -> {
+                    switch (methode.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            try {
+                                connexion.close();
+                            } finally {
+                                // close() peut être appelé plusieurs fois : un seul permis rendu
+                                if (rendue.compareAndSet(false, true)) {
+                                    permis.release();
+                                }
+                            }
+                            return null;
+                        default:
+                            try {
+                                return methode.invoke(connexion, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+}
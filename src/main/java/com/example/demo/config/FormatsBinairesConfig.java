@@ -0,0 +1,22 @@
+package com.example.demo.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Convertisseur CBOR construit avec la configuration Jackson de Spring Boot :
+ * mêmes modules et mêmes formats de date que les réponses JSON. Les listes de
+ * trains y sont écrites sous forme compacte (voir ReponsesCompactes).
+ */
+@Configuration
+public class FormatsBinairesConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter convertisseurCbor(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(
+                builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+}
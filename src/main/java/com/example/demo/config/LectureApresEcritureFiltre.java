@@ -0,0 +1,70 @@
+package com.example.demo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Délimite les lectures servies par les répliques : seules les requêtes HTTP de
+ * lecture (GET, HEAD, OPTIONS) y ont droit, et pas celles d'un client qui vient
+ * d'écrire, qui relit sur la primaire pendant {@code rahal.repliques.lecture-apres-ecriture-ms},
+ * le temps que les répliques rattrapent leur retard.
+ *
+ * Toute requête d'écriture est servie par la primaire et pose le cookie
+ * {@value #COOKIE} (instant de l'écriture), que le client renvoie avec ses lectures.
+ */
+@Component
+@ConditionalOnProperty(name = "rahal.repliques.actif", havingValue = "true")
+public class LectureApresEcritureFiltre extends OncePerRequestFilter {
+
+    static final String COOKIE = "rahal-ecriture";
+
+    @Value("${rahal.repliques.lecture-apres-ecriture-ms:5000}")
+    private long fenetreMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long maintenant = System.currentTimeMillis();
+        String methode = request.getMethod();
+        boolean ecriture = !("GET".equals(methode) || "HEAD".equals(methode) || "OPTIONS".equals(methode));
+        if (ecriture) {
+            // Posé avant la réponse : elle peut être envoyée (commitée) avant la fin de la chaîne
+            Cookie cookie = new Cookie(COOKIE, Long.toString(maintenant));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (fenetreMs + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        RoutageDataSource.permettreRepliques(!ecriture && !ecritureRecente(request, maintenant));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RoutageDataSource.permettreRepliques(false);
+        }
+    }
+
+    private boolean ecritureRecente(HttpServletRequest request, long maintenant) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return maintenant - Long.parseLong(cookie.getValue()) < fenetreMs;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timer "rahal.service" sur chaque méthode publique de GareService et TrainService,
+ * avec les tags classe, methode et exception. Les appels internes à un service
+ * (this.methode()) ne passent pas par le proxy et ne sont pas mesurés à part.
+ */
+@Aspect
+@Component
+public class MesureServices {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Around("execution(public * com.example.demo.service.GareService.*(..)) || " +
+            "execution(public * com.example.demo.service.TrainService.*(..))")
+    public Object mesurer(ProceedingJoinPoint appel) throws Throwable {
+        Timer.Sample debut = Timer.start(registry);
+        String exception = "none";
+        try {
+            return appel.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            debut.stop(Timer.builder("rahal.service")
+                    .description("Durée des méthodes de service")
+                    .tag("classe", appel.getSignature().getDeclaringType().getSimpleName())
+                    .tag("methode", appel.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mode optionnel (rahal.repliques.actif=true) : lectures sur une ou plusieurs
+ * répliques, écritures sur la primaire.
+ *
+ * La primaire est décrite par spring.datasource.*, chaque réplique par une URL
+ * de rahal.repliques.urls (mêmes identifiants et réglages spring.datasource.hikari.*,
+ * connexions en lecture seule). Seules les transactions readOnly des requêtes
+ * HTTP de lecture vont sur une réplique, voir {@link RoutageDataSource} et
+ * {@link LectureApresEcritureFiltre} (lecture après écriture).
+ *
+ * Les pools ne sont pas des beans : la seule DataSource du contexte est le
+ * routage, que la trace SQL et la cloison enveloppent comme le pool habituel.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rahal.repliques.actif", havingValue = "true")
+public class RepliquesConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(RepliquesConfig.class);
+
+    /** Pools de la primaire et des répliques, fermés à l'arrêt du contexte. */
+    static final class Pools implements AutoCloseable {
+        private final HikariDataSource primaire;
+        private final Map<String, DataSource> repliques = new LinkedHashMap<>();
+
+        Pools(HikariDataSource primaire) {
+            this.primaire = primaire;
+        }
+
+        @Override
+        public void close() {
+            for (DataSource replique : repliques.values()) {
+                ((HikariDataSource) replique).close();
+            }
+            primaire.close();
+        }
+    }
+
+    @Bean
+    Pools poolsRepliques(DataSourceProperties proprietes, Environment environment) {
+        List<String> urls = new ArrayList<>();
+        for (String url : environment.getProperty("rahal.repliques.urls", String[].class, new String[0])) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        Pools pools = new Pools(pool(proprietes, environment, proprietes.determineUrl(), "primaire"));
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replique = pool(proprietes, environment, urls.get(i), "replique-" + (i + 1));
+            replique.setReadOnly(true);
+            pools.repliques.put(replique.getPoolName(), replique);
+        }
+        if (urls.isEmpty()) {
+            log.warn("rahal.repliques.actif=true sans rahal.repliques.urls : toutes les lectures restent sur la primaire");
+        } else {
+            log.info("Lectures readOnly réparties sur {} réplique(s) : {}", urls.size(), urls);
+        }
+        return pools;
+    }
+
+    // Remplace la DataSource de Spring Boot (qui ne s'en crée plus quand celle-ci existe)
+    @Bean(destroyMethod = "")
+    public DataSource dataSource(Pools pools) {
+        return new LazyConnectionDataSourceProxy(new RoutageDataSource(pools.primaire, pools.repliques));
+    }
+
+    private static HikariDataSource pool(DataSourceProperties proprietes, Environment environment,
+                                         String url, String nom) {
+        HikariDataSource pool = proprietes.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(nom);
+        return pool;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import com.example.demo.service.GareService;
+import com.example.demo.service.GenerateurReseau;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.LocalDate;
+
+/**
+ * Remplit une base vide avec un réseau synthétique au démarrage (rahal.generateur.actif=true,
+ * activé par le profil "embarque"). Le runner passe avant ApplicationReadyEvent : les
+ * index en mémoire se chargent sur le réseau complet.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rahal.generateur.actif", havingValue = "true")
+public class ReseauSynthetiqueConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReseauSynthetiqueConfig.class);
+
+    @Bean
+    public ApplicationRunner genererReseau(GenerateurReseau generateur, GareService gareService, Environment env) {
+        return args -> {
+            if (gareService.countGares() > 0) {
+                log.warn("Base non vide : le réseau synthétique n'est pas généré");
+                return;
+            }
+            String debut = env.getProperty("rahal.generateur.debut", "");
+            generateur.generer(new GenerateurReseau.Parametres(
+                    env.getProperty("rahal.generateur.villes", Integer.class, 200),
+                    env.getProperty("rahal.generateur.gares-min-par-ville", Integer.class, 1),
+                    env.getProperty("rahal.generateur.gares-max-par-ville", Integer.class, 8),
+                    env.getProperty("rahal.generateur.hubs", Integer.class, 12),
+                    env.getProperty("rahal.generateur.jours", Integer.class, 7),
+                    env.getProperty("rahal.generateur.trains-par-jour", Integer.class, 20000),
+                    debut.isBlank() ? LocalDate.now() : LocalDate.parse(debut),
+                    env.getProperty("rahal.generateur.graine", Long.class, 42L)));
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Choisit la base de chaque connexion : une réplique (tour à tour) pour les
+ * transactions readOnly d'une requête HTTP de lecture, la primaire pour tout
+ * le reste. Hors de ces requêtes (démarrage, chargement des index, tâches
+ * planifiées, écritures et leurs événements après commit), même les lectures
+ * readOnly par défaut de Spring Data restent sur la primaire : ce qui alimente
+ * un index en mémoire ne doit jamais venir d'une réplique en retard.
+ *
+ * Le choix se fait à la première instruction, grâce au
+ * LazyConnectionDataSourceProxy placé devant : au début de la transaction,
+ * son caractère readOnly n'est pas encore connu de TransactionSynchronizationManager.
+ */
+final class RoutageDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMAIRE = "primaire";
+
+    // Posé par LectureApresEcritureFiltre pour les lectures HTTP d'un client qui n'a pas écrit récemment
+    private static final ThreadLocal<Boolean> REPLIQUES_PERMISES = new ThreadLocal<>();
+
+    private final List<String> repliques;
+    private final AtomicInteger suivante = new AtomicInteger();
+
+    RoutageDataSource(DataSource primaire, Map<String, DataSource> repliques) {
+        Map<Object, Object> cibles = new HashMap<>(repliques);
+        cibles.put(PRIMAIRE, primaire);
+        setTargetDataSources(cibles);
+        setDefaultTargetDataSource(primaire);
+        setLenientFallback(false);
+        this.repliques = List.copyOf(repliques.keySet());
+        afterPropertiesSet();
+    }
+
+    static void permettreRepliques(boolean permises) {
+        if (permises) {
+            REPLIQUES_PERMISES.set(Boolean.TRUE);
+        } else {
+            REPLIQUES_PERMISES.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (repliques.isEmpty() || REPLIQUES_PERMISES.get() == null
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMAIRE;
+        }
+        return repliques.get(Math.floorMod(suivante.getAndIncrement(), repliques.size()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.sql.DataSource;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+
+/**
+ * Mode d'exécution optionnel (rahal.threads.virtuels=true) : chaque requête HTTP,
+ * et chaque traitement asynchrone de Spring MVC (exports en flux), tourne sur un
+ * thread virtuel au lieu d'un thread du pool Tomcat. Une requête bloquée sur JDBC
+ * ne retient plus de thread système ; le nombre de requêtes simultanées en base
+ * est borné par {@link CloisonBaseDeDonnees}, dimensionnée sur le pool Hikari.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rahal.threads.virtuels", havingValue = "true")
+public class ThreadsVirtuelsConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadsVirtuelsConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> executeurTomcatVirtuel() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // Statique : un BeanPostProcessor doit exister avant les beans qu'il enveloppe
+    @Bean
+    public static BeanPostProcessor cloisonBaseDeDonnees(Environment environment) {
+        long attenteMaxMs = environment.getProperty("rahal.cloison.attente-max-ms", Long.class, 5000L);
+        int fileMax = environment.getProperty("rahal.cloison.file-max", Integer.class, 10000);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // La DataSource peut déjà être enveloppée (trace SQL) : le pool est cherché dessous
+                if (bean instanceof DataSource dataSource && TraceSqlConfig.enveloppe(dataSource, HikariDataSource.class)
+                        && !TraceSqlConfig.enveloppe(dataSource, CloisonBaseDeDonnees.class)) {
+                    int taille = taillePool(dataSource);
+                    log.info("Threads virtuels activés : cloison de {} connexions devant '{}'", taille, beanName);
+                    return new CloisonBaseDeDonnees(dataSource, taille, attenteMaxMs, fileMax);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static int taillePool(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Pool Hikari introuvable", e);
+        }
+    }
+
+    @Bean
+    public MeterBinder metriquesCloison(DataSource dataSource) throws SQLException {
+        if (!TraceSqlConfig.enveloppe(dataSource, CloisonBaseDeDonnees.class)) {
+            return registry -> { };
+        }
+        CloisonBaseDeDonnees cloison = dataSource.unwrap(CloisonBaseDeDonnees.class);
+        return registry -> {
+            Gauge.builder("rahal.cloison.en_attente", cloison, CloisonBaseDeDonnees::getEnAttente)
+                    .description("Requêtes en attente d'une connexion").register(registry);
+            Gauge.builder("rahal.cloison.permis_disponibles", cloison, CloisonBaseDeDonnees::getPermisDisponibles)
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Instructions SQL exécutées par la requête HTTP en cours (une trace par thread,
+ * ouverte par {@link TraceSqlFiltre}). Les textes SQL ne sont que référencés :
+ * ils ne sont mis en forme que si la requête est journalisée.
+ */
+final class TraceSql {
+
+    static final int MAX_INSTRUCTIONS = 100;
+
+    private static final ThreadLocal<TraceSql> COURANTE = new ThreadLocal<>();
+
+    static final class Instruction {
+        final String sql;
+        final long nanos;
+        long lignes;
+
+        Instruction(String sql, long nanos) {
+            this.sql = sql;
+            this.nanos = nanos;
+        }
+    }
+
+    private final int budget;
+    private final boolean echouer;
+    private final List<Instruction> instructions = new ArrayList<>();
+    int requetes;
+    long lignes;
+    long nanos;
+
+    private TraceSql(int budget, boolean echouer) {
+        this.budget = budget;
+        this.echouer = echouer;
+    }
+
+    static TraceSql ouvrir(int budget, boolean echouer) {
+        TraceSql trace = new TraceSql(budget, echouer);
+        COURANTE.set(trace);
+        return trace;
+    }
+
+    static void fermer() {
+        COURANTE.remove();
+    }
+
+    static TraceSql courante() {
+        return COURANTE.get();
+    }
+
+    boolean depasse() {
+        return budget > 0 && requetes > budget;
+    }
+
+    Instruction enregistrer(String sql, long nanos) {
+        requetes++;
+        this.nanos += nanos;
+        Instruction instruction = new Instruction(sql, nanos);
+        if (instructions.size() < MAX_INSTRUCTIONS) {
+            instructions.add(instruction);
+        }
+        if (echouer && depasse()) {
+            throw new BudgetSqlDepasseException(requetes, budget);
+        }
+        return instruction;
+    }
+
+    void ligneLue(Instruction instruction) {
+        instruction.lignes++;
+        lignes++;
+    }
+
+    void lignesModifiees(Instruction instruction, long nombre) {
+        instruction.lignes += nombre;
+        lignes += nombre;
+    }
+
+    String resume(String requete, long dureeMs) {
+        return String.format(Locale.ROOT, "%s : %d requêtes SQL%s, %d lignes, %.1f ms en base sur %d ms",
+                requete, requetes, budget > 0 ? " (budget " + budget + ")" : "", lignes, nanos / 1e6, dureeMs);
+    }
+
+    String detail() {
+        StringBuilder texte = new StringBuilder();
+        for (Instruction instruction : instructions) {
+            texte.append(String.format(Locale.ROOT, "%n  [%.2f ms, %d lignes] %s",
+                    instruction.nanos / 1e6, instruction.lignes, instruction.sql));
+        }
+        if (requetes > instructions.size()) {
+            texte.append(String.format("%n  ... %d autres", requetes - instructions.size()));
+        }
+        return texte.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Enveloppe la DataSource dans {@link TraceSqlDataSource} : remplace show-sql,
+ * qui écrivait chaque instruction dans le journal sans dire quelle requête HTTP
+ * l'avait émise. Voir {@link TraceSqlFiltre}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rahal.sql.trace.actif", havingValue = "true", matchIfMissing = true)
+public class TraceSqlConfig {
+
+    // Statique : un BeanPostProcessor doit exister avant les beans qu'il enveloppe
+    @Bean
+    public static BeanPostProcessor traceSql() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !enveloppe(dataSource, TraceSqlDataSource.class)) {
+                    return new TraceSqlDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static boolean enveloppe(DataSource dataSource, Class<?> type) {
+        try {
+            return dataSource.isWrapperFor(type);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
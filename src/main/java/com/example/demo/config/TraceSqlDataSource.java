@@ -0,0 +1,133 @@
+package com.example.demo.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Mesure chaque instruction JDBC (durée, lignes lues ou modifiées) et l'ajoute à la
+ * {@link TraceSql} du thread. Hors requête HTTP (tâches planifiées, exports en flux),
+ * la connexion du pool est rendue telle quelle, sans proxy ; les ResultSet ne sont
+ * enveloppés que sous trace.
+ */
+public class TraceSqlDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    @FunctionalInterface
+    private interface Appel {
+        Object invoquer(Method methode, Object[] args) throws Throwable;
+    }
+
+    public TraceSqlDataSource(DataSource cible) {
+        super(cible);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connexion(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connexion(super.getConnection(username, password));
+    }
+
+    // Appelée à l'arrêt du contexte à la place du close() du pool enveloppé
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+
+    private static Connection connexion(Connection cible) {
+        // Aucune trace à alimenter : pas de coût de proxy réflexif par appel JDBC
+        if (TraceSql.courante() == null) {
+            return cible;
+        }
+        return proxy(Connection.class, (methode, args) -> {
+            Object resultat = invoquer(cible, methode, args);
+            if (resultat instanceof Statement statement && Statement.class.isAssignableFrom(methode.getReturnType())) {
+                // prepareStatement(sql, ...) / prepareCall(sql, ...) : le SQL est connu dès maintenant
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                return instruction(methode.getReturnType(), statement, sql);
+            }
+            return resultat;
+        });
+    }
+
+    private static Object instruction(Class<?> type, Statement cible, String sqlPrepare) {
+        TraceSql.Instruction[] derniere = new TraceSql.Instruction[1];
+        return proxy(type, (methode, args) -> {
+            TraceSql trace = TraceSql.courante();
+            String nom = methode.getName();
+            if (trace == null || !nom.startsWith("execute")) {
+                Object resultat = invoquer(cible, methode, args);
+                if (trace != null && derniere[0] != null && resultat instanceof ResultSet lignes
+                        && nom.equals("getResultSet")) {
+                    return resultats(lignes, trace, derniere[0]);
+                }
+                return resultat;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : sqlPrepare;
+            long debut = System.nanoTime();
+            Object resultat = invoquer(cible, methode, args);
+            TraceSql.Instruction instruction = trace.enregistrer(sql, System.nanoTime() - debut);
+            derniere[0] = instruction;
+            if (resultat instanceof ResultSet lignes) {
+                return resultats(lignes, trace, instruction);
+            }
+            if (resultat instanceof Integer n && n > 0) {
+                trace.lignesModifiees(instruction, n);
+            } else if (resultat instanceof Long n && n > 0) {
+                trace.lignesModifiees(instruction, n);
+            } else if (resultat instanceof int[] lot) {
+                for (int n : lot) {
+                    if (n > 0) {
+                        trace.lignesModifiees(instruction, n);
+                    }
+                }
+            } else if (resultat instanceof long[] lot) {
+                for (long n : lot) {
+                    if (n > 0) {
+                        trace.lignesModifiees(instruction, n);
+                    }
+                }
+            }
+            return resultat;
+        });
+    }
+
+    private static ResultSet resultats(ResultSet cible, TraceSql trace, TraceSql.Instruction instruction) {
+        return proxy(ResultSet.class, (methode, args) -> {
+            Object resultat = invoquer(cible, methode, args);
+            if (Boolean.TRUE.equals(resultat) && methode.getName().equals("next")) {
+                trace.ligneLue(instruction);
+            }
+            return resultat;
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, Appel appel) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, methode, args) -> switch (methode.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> appel.invoquer(methode, args);
+                }));
+    }
+
+    private static Object invoquer(Object cible, Method methode, Object[] args) throws Throwable {
+        try {
+            return methode.invoke(cible, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
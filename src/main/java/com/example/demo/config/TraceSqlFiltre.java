@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ouvre une {@link TraceSql} par requête HTTP et en fait le bilan : nombre
+ * d'instructions SQL, lignes, temps passé en base.
+ *
+ * Le bilan va dans la métrique "rahal.sql.requetes" (tags uri et method) pour
+ * toutes les requêtes, mais n'est journalisé (logger "rahal.sql", avec le texte
+ * des instructions) que pour un échantillon, les requêtes lentes et celles qui
+ * dépassent le budget. En mode "echouer", le dépassement lève
+ * {@link BudgetSqlDepasseException} dès l'instruction en trop.
+ */
+@Component
+@ConditionalOnProperty(name = "rahal.sql.trace.actif", havingValue = "true", matchIfMissing = true)
+public class TraceSqlFiltre extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger("rahal.sql");
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${rahal.sql.trace.echantillon:0.01}")
+    private double echantillon;
+
+    @Value("${rahal.sql.trace.lente-ms:1000}")
+    private long lenteMs;
+
+    @Value("${rahal.sql.budget.requetes:0}")
+    private int budget;
+
+    @Value("${rahal.sql.budget.mode:avertir}")
+    private String mode;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        TraceSql trace = TraceSql.ouvrir(budget, "echouer".equals(mode));
+        long debut = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TraceSql.fermer();
+            bilan(request, trace, (System.nanoTime() - debut) / 1_000_000);
+        }
+    }
+
+    private void bilan(HttpServletRequest request, TraceSql trace, long dureeMs) {
+        Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = motif == null ? "UNKNOWN" : motif.toString();
+        if (trace.requetes > 0) {
+            DistributionSummary.builder("rahal.sql.requetes")
+                    .description("Instructions SQL par requête HTTP")
+                    .tag("uri", uri)
+                    .tag("method", request.getMethod())
+                    .register(registry)
+                    .record(trace.requetes);
+        }
+        if (trace.depasse()) {
+            log.warn("Budget SQL dépassé - {}{}", trace.resume(request.getMethod() + " " + request.getRequestURI(), dureeMs),
+                    trace.detail());
+        } else if (trace.requetes > 0 && (dureeMs >= lenteMs || ThreadLocalRandom.current().nextDouble() < echantillon)) {
+            log.info("{}{}", trace.resume(request.getMethod() + " " + request.getRequestURI(), dureeMs), trace.detail());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.config;
+
+import com.example.demo.controller.AbonnementsWebSocket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private AbonnementsWebSocket abonnementsWebSocket;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(abonnementsWebSocket, "/ws/gares").setAllowedOrigins("*");
+    }
+
+    // @EnableWebSocket déclare son propre TaskScheduler (inactif sans SockJS) : sans
+    // un bean "taskScheduler" explicite, les tâches @Scheduled s'y retrouveraient.
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("planification-");
+        return scheduler;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.DiffusionHoraires;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Variante WebSocket de l'abonnement aux gares : ws://.../ws/gares?gares=1,2,3
+ * Le serveur n'envoie que des messages texte JSON (mêmes deltas que le flux SSE) ;
+ * les messages du client sont ignorés.
+ *
+ * Les envois passent par un ConcurrentWebSocketSessionDecorator (délai d'envoi et
+ * octets en attente bornés) et le délai d'envoi bloquant de Tomcat est ramené au
+ * même délai : un client qui ne lit plus ne tient pas un thread d'envoi indéfiniment.
+ */
+@Component
+public class AbonnementsWebSocket extends TextWebSocketHandler {
+
+    private static final String ABONNE = "abonne";
+
+    // Propriété de session de Tomcat : durée maximale d'un envoi bloquant, en ms (Long)
+    private static final String DELAI_ENVOI_TOMCAT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    @Autowired
+    private DiffusionHoraires diffusionHoraires;
+
+    @Value("${rahal.diffusion.tampon-octets:524288}")
+    private int tamponOctets;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        DiffusionHoraires.Abonne abonne;
+        try {
+            abonne = new AbonneWebSocket(envois(session), DiffusionHoraires.gares(lireGares(session)),
+                    diffusionHoraires.getTampon());
+            diffusionHoraires.abonner(abonne);
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        } catch (IllegalStateException e) {
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason(e.getMessage()));
+            return;
+        }
+        session.getAttributes().put(ABONNE, abonne);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Object abonne = session.getAttributes().get(ABONNE);
+        if (abonne != null) {
+            diffusionHoraires.desabonner((DiffusionHoraires.Abonne) abonne);
+        }
+    }
+
+    private WebSocketSession envois(WebSocketSession session) {
+        long delai = diffusionHoraires.getEnvoiTimeoutMs();
+        if (session instanceof NativeWebSocketSession natif) {
+            jakarta.websocket.Session tomcat = natif.getNativeSession(jakarta.websocket.Session.class);
+            if (tomcat != null) {
+                tomcat.getUserProperties().put(DELAI_ENVOI_TOMCAT, delai);
+            }
+        }
+        return new ConcurrentWebSocketSessionDecorator(session, (int) Math.min(delai, Integer.MAX_VALUE), tamponOctets);
+    }
+
+    private static List<Long> lireGares(WebSocketSession session) {
+        List<Long> gareIds = new ArrayList<>();
+        if (session.getUri() == null) {
+            return gareIds;
+        }
+        List<String> valeurs = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().get("gares");
+        if (valeurs == null) {
+            return gareIds;
+        }
+        for (String valeur : valeurs) {
+            for (String id : valeur.split(",")) {
+                if (!id.isBlank()) {
+                    try {
+                        gareIds.add(Long.parseLong(id.trim()));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Identifiant de gare invalide : " + id.trim());
+                    }
+                }
+            }
+        }
+        return gareIds;
+    }
+
+    private static final class AbonneWebSocket extends DiffusionHoraires.Abonne {
+        private final WebSocketSession session;
+
+        AbonneWebSocket(WebSocketSession session, Set<Long> gareIds, int tampon) {
+            super(gareIds, tampon);
+            this.session = session;
+        }
+
+        @Override
+        protected void envoyer(DiffusionHoraires.Message message) throws IOException {
+            session.sendMessage(new TextMessage(message.json()));
+        }
+
+        @Override
+        protected void fermer(String raison) {
+            try {
+                session.close(CloseStatus.POLICY_VIOLATION.withReason(raison));
+            } catch (IOException e) {
+                // Déjà fermée
+            }
+        }
+    }
+}
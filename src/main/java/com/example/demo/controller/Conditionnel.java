@@ -0,0 +1,31 @@
+package com.example.demo.controller;
+
+/**
+ * ETag des ressources versionnées (colonne version de Gare et Train) et lecture
+ * de l'en-tête If-Match des PUT. Les GET conditionnels passent par
+ * WebRequest.checkNotModified, appelé avant toute lecture des données.
+ */
+final class Conditionnel {
+
+    private Conditionnel() {}
+
+    static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /** Version exigée par If-Match, null si l'en-tête est absent ou vaut "*". */
+    static Long versionAttendue(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valeur = ifMatch.trim();
+        if (valeur.startsWith("W/")) {
+            throw new IllegalArgumentException("If-Match exige un ETag fort");
+        }
+        try {
+            return Long.parseLong(valeur.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ETag invalide dans If-Match : " + valeur);
+        }
+    }
+}
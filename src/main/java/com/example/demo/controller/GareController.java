@@ -1,33 +1,83 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.StatutEnMasse;
 import com.example.demo.model.Gare;
+import com.example.demo.service.Curseur;
+import com.example.demo.service.DiffusionHoraires;
+import com.example.demo.service.GareIntrouvableException;
 import com.example.demo.service.GareService;
+import com.example.demo.service.IndexGares;
+import com.example.demo.service.PageCurseur;
+import com.example.demo.service.StatutsDifferes;
+import com.example.demo.service.SuppressionService;
+import com.example.demo.service.VersionsCollections;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/gares")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = { "X-Next-Cursor", "Link", "ETag" })
 public class GareController {
 
     @Autowired
     private GareService gareService;
 
+    @Autowired
+    private SuppressionService suppressionService;
+    
+    @Autowired
+    private DiffusionHoraires diffusionHoraires;
+
+    @Autowired
+    private VersionsCollections versions;
+
+    @Autowired
+    private StatutsDifferes statutsDifferes;
+
+    @Value("${rahal.diffusion.sse-timeout-ms:1800000}")
+    private long delaiSse;
+
     // ============ CRUD ENDPOINTS ============
 
     // 1. TEST CONNEXION API & 3. LISTER TOUTES LES GARES
+    // Paginé par id : ?taille=100&curseur=... (curseur suivant dans l'en-tête X-Next-Cursor)
+    // Filtres combinables (index en mémoire) : ?minVoies=4&maxVoies=12&ouverte=true&ville=Paris,Lyon&prefixe=gare
+    // GET conditionnel : 304 tant qu'aucune gare n'a changé (ETag = version de la collection)
     @GetMapping
-    public ResponseEntity<List<Gare>> getAllGares() {
+    public ResponseEntity<?> getAllGares(
+            @RequestParam(required = false) Integer minVoies,
+            @RequestParam(required = false) Integer maxVoies,
+            @RequestParam(required = false) Boolean ouverte,
+            @RequestParam(required = false) List<String> ville,
+            @RequestParam(required = false) String prefixe,
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String curseur,
+            WebRequest requete) {
         try {
-            List<Gare> gares = gareService.getAllGares();
-            return ResponseEntity.ok(gares);
+            if (requete.checkNotModified(versions.etagGares(), versions.garesModifieesLe())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            Curseur position = Curseur.lire(curseur, Curseur.Tri.ID);
+            IndexGares.Filtre filtre = new IndexGares.Filtre(minVoies, maxVoies, ouverte, ville, prefixe);
+            return Pagination.reponse(gareService.getGaresFiltrees(filtre, position, PageCurseur.borner(taille)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -53,10 +103,15 @@ public class GareController {
     }
 
     // 4. OBTENIR UNE GARE PAR ID
+    // Lue dans le cache des gares : un 304 (ETag = version de la gare) ne coûte ni requête ni sérialisation
     @GetMapping("/{id}")
-    public ResponseEntity<?> getGareById(@PathVariable Long id) {
+    public ResponseEntity<?> getGareById(@PathVariable Long id, WebRequest requete) {
         try {
+            long modifieeLe = versions.garesModifieesLe();
             Gare gare = gareService.getGareById(id);
+            if (requete.checkNotModified(Conditionnel.etag(gare.getVersion()), modifieeLe)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
             return ResponseEntity.ok(gare);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -68,15 +123,25 @@ public class GareController {
     }
 
     // 5. METTRE À JOUR UNE GARE
+    // Avec If-Match (ETag lu par GET /{id}) : 412 si la gare a changé entre-temps
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateGare(@PathVariable Long id, @RequestBody Gare gareDetails) {
+    public ResponseEntity<?> updateGare(
+            @PathVariable Long id,
+            @RequestBody Gare gareDetails,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
             if (gareDetails.getNom() == null || gareDetails.getNom().trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(createErrorResponse("Le nom de la gare est obligatoire"));
             }
             
-            Gare updatedGare = gareService.updateGare(id, gareDetails);
-            return ResponseEntity.ok(updatedGare);
+            Gare updatedGare = gareService.updateGare(id, gareDetails, Conditionnel.versionAttendue(ifMatch));
+            return ResponseEntity.ok().eTag(Conditionnel.etag(updatedGare.getVersion())).body(updatedGare);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            // Sans If-Match, le conflit vient d'une écriture concurrente
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body(createErrorResponse(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(createErrorResponse(e.getMessage()));
@@ -86,15 +151,38 @@ public class GareController {
         }
     }
 
+    // Mise à jour partielle (JSON Merge Patch) : {"nombreVoies": 12, "tempsCorrespondance": null}
+    // Seules les colonnes changées sont écrites ; If-Match optionnel comme pour le PUT
+    @PatchMapping(value = "/{id}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<?> patchGare(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> patch,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        try {
+            Gare gare = gareService.patcherGare(id, patch, Conditionnel.versionAttendue(ifMatch));
+            return ResponseEntity.ok().eTag(Conditionnel.etag(gare.getVersion())).body(gare);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (GareIntrouvableException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Erreur lors de la mise à jour partielle: " + e.getMessage()));
+        }
+    }
+
     // 10. SUPPRIMER UNE GARE
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteGare(@PathVariable Long id) {
         try {
-            gareService.deleteGare(id);
-            Map<String, Object> response = new HashMap<>();
+            // Trains supprimés par lots (DELETE ensemblistes), compteurs dans la réponse
+            Map<String, Object> response = new LinkedHashMap<>(suppressionService.supprimerGare(id));
             response.put("success", true);
             response.put("message", "Gare supprimée avec succès");
-            response.put("gareId", id);
             response.put("timestamp", LocalDateTime.now().toString());
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
@@ -110,14 +198,19 @@ public class GareController {
 
     // 11. GARES PAR VILLE
     @GetMapping("/ville/{ville}")
-    public ResponseEntity<?> getGaresByVille(@PathVariable String ville) {
+    public ResponseEntity<?> getGaresByVille(
+            @PathVariable String ville,
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String curseur) {
         try {
             if (ville == null || ville.trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(createErrorResponse("Le paramètre 'ville' est requis"));
             }
             
-            List<Gare> gares = gareService.getGaresByVille(ville);
-            return ResponseEntity.ok(gares);
+            Curseur position = Curseur.lire(curseur, Curseur.Tri.ID);
+            return Pagination.reponse(gareService.getGaresByVillePage(ville, position, PageCurseur.borner(taille)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Erreur lors de la recherche par ville"));
@@ -138,28 +231,60 @@ public class GareController {
 
     // Recherche par nom (BONUS)
     @GetMapping("/recherche")
-    public ResponseEntity<?> searchGaresByNom(@RequestParam String nom) {
+    public ResponseEntity<?> searchGaresByNom(
+            @RequestParam String nom,
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String curseur) {
         try {
             if (nom == null || nom.trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(createErrorResponse("Le paramètre 'nom' est requis"));
             }
             
-            List<Gare> gares = gareService.getGaresByNom(nom);
-            return ResponseEntity.ok(gares);
+            Curseur position = Curseur.lire(curseur, Curseur.Tri.ID);
+            return Pagination.reponse(gareService.getGaresByNomPage(nom, position, PageCurseur.borner(taille)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Erreur lors de la recherche par nom"));
         }
     }
 
+    // Autocomplétion par nom, classée (préfixes d'abord) : ?q=par&limite=10
+    @GetMapping("/autocomplete")
+    public ResponseEntity<?> autocompleteGares(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limite) {
+        try {
+            return ResponseEntity.ok(gareService.autocompleterGares(q, limite));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Erreur lors de l'autocomplétion"));
+        }
+    }
+
     // ============ STATISTICS & ANALYTICS ENDPOINTS ============
 
     // 13. STATISTIQUES GARE
+    // Période optionnelle : ?date=2024-06-01 ou ?debut=...&fin=... (ISO)
     @GetMapping("/{id}/statistiques")
-    public ResponseEntity<?> getStatistiquesGare(@PathVariable Long id) {
+    public ResponseEntity<?> getStatistiquesGare(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
         try {
-            Map<String, Object> stats = gareService.getStatistiquesGare(id);
+            if (date != null && (debut != null || fin != null)) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Utilisez soit 'date', soit 'debut'/'fin'"));
+            }
+            if (date != null) {
+                debut = date.atStartOfDay();
+                fin = date.plusDays(1).atStartOfDay();
+            }
+            Map<String, Object> stats = gareService.getStatistiquesGare(id, debut, fin);
             return ResponseEntity.ok(stats);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(createErrorResponse(e.getMessage()));
@@ -169,6 +294,37 @@ public class GareController {
         }
     }
 
+    // Tableau des prochains départs/arrivées pour les écrans en gare : ?limite=10
+    @GetMapping("/{id}/tableau")
+    public ResponseEntity<?> getTableau(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer limite) {
+        try {
+            return ResponseEntity.ok(gareService.getTableau(id, limite));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Erreur lors de la lecture du tableau"));
+        }
+    }
+
+    // Flux SSE des changements d'horaires : ?gares=1,2,3 (variante WebSocket : /ws/gares?gares=1,2,3)
+    // Événements TRAIN_CREE, TRAIN_MODIFIE, TRAIN_SUPPRIME, TRAINS_IMPORTES, GARE_MODIFIEE, GARE_SUPPRIMEE
+    @GetMapping(value = "/abonnement", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> abonner(@RequestParam List<Long> gares) {
+        try {
+            return ResponseEntity.ok(diffusionHoraires.abonnerSse(gares, delaiSse));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+    }
+
+    @GetMapping("/abonnement/statistiques")
+    public ResponseEntity<?> getStatistiquesAbonnements() {
+        return ResponseEntity.ok(diffusionHoraires.statistiques());
+    }
+
     // Statistiques globales (BONUS)
     @GetMapping("/statistiques/globales")
     public ResponseEntity<?> getStatistiquesGlobales() {
@@ -181,6 +337,17 @@ public class GareController {
         }
     }
 
+    // Compteurs du cache des gares (hits, misses, évictions) pour le dimensionner
+    @GetMapping("/cache/statistiques")
+    public ResponseEntity<?> getStatistiquesCache() {
+        try {
+            return ResponseEntity.ok(gareService.getStatistiquesCache());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Erreur lors de la lecture des statistiques du cache"));
+        }
+    }
+
     // ============ BULK OPERATIONS ============
 
     // Créer plusieurs gares en une fois (BONUS)
@@ -199,6 +366,32 @@ public class GareController {
         }
     }
 
+    // Ouvrir/fermer plusieurs gares d'un coup (UPDATE ensembliste) :
+    // {"estOuverte": false, "ids": [1, 2, 3]} ou {"estOuverte": false, "ville": ["Lyon"], "minVoies": 4, ...}
+    @PatchMapping("/batch/status")
+    public ResponseEntity<?> updateGaresStatus(@RequestBody StatutEnMasse demande) {
+        try {
+            if (demande.estOuverte() == null) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Le champ 'estOuverte' est requis"));
+            }
+            IndexGares.Filtre filtre = new IndexGares.Filtre(demande.minVoies(), demande.maxVoies(), demande.ouverte(),
+                    demande.ville(), demande.prefixe());
+            if (demande.ids() != null && !filtre.estVide()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Utilisez soit 'ids', soit des critères de filtre"));
+            }
+            // Garde-fou : jamais toutes les gares par une requête sans critère
+            if (demande.ids() == null && filtre.estVide()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Indiquez 'ids' ou au moins un critère de filtre"));
+            }
+            return ResponseEntity.ok(gareService.changerStatutEnMasse(demande.ids(), filtre, demande.estOuverte()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Erreur lors du changement de statut en masse: " + e.getMessage()));
+        }
+    }
+
     // ============ HEALTH & INFO ENDPOINTS ============
 
     // Vérifier si une gare existe
@@ -259,8 +452,15 @@ public class GareController {
                 return ResponseEntity.badRequest().body(createErrorResponse("Le paramètre 'estOuverte' est requis"));
             }
             
+            if (statutsDifferes.estActif()) {
+                // Journalisé et visible en mémoire, écrit en base au prochain vidage
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(statutsDifferes.changerStatut(id, estOuverte));
+            }
             Gare updatedGare = gareService.updateGareStatus(id, estOuverte);
             return ResponseEntity.ok(updatedGare);
+        } catch (UncheckedIOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Erreur lors du changement de statut: " + e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(createErrorResponse(e.getMessage()));
@@ -0,0 +1,32 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.PageCurseur;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Réponses paginées : le corps reste un tableau JSON, le curseur de la page
+ * suivante est transmis dans les en-têtes X-Next-Cursor et Link (rel="next").
+ */
+final class Pagination {
+
+    static final String ENTETE_CURSEUR = "X-Next-Cursor";
+
+    private Pagination() {}
+
+    static <T> ResponseEntity<List<T>> reponse(PageCurseur<T> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getCurseurSuivant() != null) {
+            String suivante = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("curseur", page.getCurseurSuivant())
+                    .build()
+                    .toUriString();
+            headers.add(ENTETE_CURSEUR, page.getCurseurSuivant());
+            headers.add(HttpHeaders.LINK, "<" + suivante + ">; rel=\"next\"");
+        }
+        return ResponseEntity.ok().headers(headers).body(page.getElements());
+    }
+}
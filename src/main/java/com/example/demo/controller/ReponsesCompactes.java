@@ -0,0 +1,97 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.HoraireCompact;
+import com.example.demo.dto.TrainVue;
+import com.example.demo.model.Train;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listes de trains sous forme compacte ({@link HoraireCompact}) quand le client
+ * accepte application/cbor ou application/vnd.rahal.compact+json : chaque gare
+ * est écrite une fois au lieu de deux par train. Sans ces types, rien ne change.
+ *
+ * La représentation dépend de l'en-tête Accept : "Vary: Accept" est ajouté et
+ * les ETag des listes reçoivent un suffixe par format (voir {@link #suffixeEtag}).
+ */
+@ControllerAdvice
+public class ReponsesCompactes implements ResponseBodyAdvice<Object> {
+
+    public static final String COMPACT_JSON_VALUE = "application/vnd.rahal.compact+json";
+    public static final MediaType COMPACT_JSON = MediaType.parseMediaType(COMPACT_JSON_VALUE);
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (!AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType)) {
+            return false;
+        }
+        ResolvableType type = ResolvableType.forMethodParameter(returnType);
+        if (HttpEntity.class.isAssignableFrom(type.toClass())) {
+            type = type.getGeneric(0);
+        }
+        Class<?> element = type.asCollection().getGeneric(0).toClass();
+        return List.class.isAssignableFrom(type.toClass()) && (element == TrainVue.class || element == Train.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(body instanceof List<?> liste)) {
+            return body;
+        }
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (!compact(contentType)) {
+            return body;
+        }
+        List<TrainVue> vues = new ArrayList<>(liste.size());
+        for (Object element : liste) {
+            vues.add(element instanceof Train train ? TrainVue.de(train) : (TrainVue) element);
+        }
+        return HoraireCompact.de(vues);
+    }
+
+    /** Suffixe d'ETag du format que la négociation retiendra pour cet en-tête Accept. */
+    static String suffixeEtag(String accept) {
+        if (accept == null) {
+            return "";
+        }
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+        MimeTypeUtils.sortBySpecificity(types);
+        for (MediaType type : types) {
+            if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(type)) {
+                return "-cbor";
+            }
+            if (COMPACT_JSON.equalsTypeAndSubtype(type)) {
+                return "-compact";
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "";
+            }
+        }
+        return "";
+    }
+
+    private static boolean compact(MediaType type) {
+        return type != null && (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(type)
+                || COMPACT_JSON.equalsTypeAndSubtype(type));
+    }
+}
@@ -1,13 +1,26 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.TrainVue;
 import com.example.demo.model.Train;
+import com.example.demo.service.Curseur;
+import com.example.demo.service.ExportService;
+import com.example.demo.service.ImportService;
+import com.example.demo.service.PageCurseur;
+import com.example.demo.service.PlanificateurItineraires;
+import com.example.demo.service.SuppressionService;
 import com.example.demo.service.TrainService;
+import com.example.demo.service.VersionsCollections;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,12 +28,27 @@ import java.util.Map;
 
 @RestController
 @RequestMapping("/api/trains")
-@CrossOrigin(origins = "*")  // Autorise les requêtes depuis n'importe quelle origine
+@CrossOrigin(origins = "*", exposedHeaders = { "X-Next-Cursor", "Link", "ETag" })  // Autorise les requêtes depuis n'importe quelle origine
 public class TrainController {
     
     @Autowired
     private TrainService trainService;
     
+    @Autowired
+    private PlanificateurItineraires planificateurItineraires;
+    
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private ImportService importService;
+    
+    @Autowired
+    private SuppressionService suppressionService;
+    
+    @Autowired
+    private VersionsCollections versions;
+    
     // === CRUD DE BASE ===
     
     /**
@@ -34,33 +62,54 @@ public class TrainController {
     }
     
     /**
-     * Récupérer tous les trains
-     * GET http://localhost:8080/api/trains
+     * Créer plusieurs trains en une fois (insertions JDBC par lots)
+     * POST http://localhost:8787/api/trains/batch
+     * Les lignes invalides sont listées dans "erreurs" sans bloquer les autres.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> createMultipleTrains(@RequestBody List<Train> trains) {
+        Map<String, Object> rapport = importService.importerTrains(trains);
+        HttpStatus status = ((Integer) rapport.get("inseres")) > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return new ResponseEntity<>(rapport, status);  // HTTP 201
+    }
+    
+    /**
+     * Récupérer tous les trains, page par page
+     * GET http://localhost:8080/api/trains?taille=100&tri=heureDepart&curseur=...
+     * Le curseur de la page suivante est renvoyé dans l'en-tête X-Next-Cursor.
      */
     @GetMapping
-    public ResponseEntity<List<Train>> getAllTrains() {
-        List<Train> trains = trainService.getAllTrains();
-        return new ResponseEntity<>(trains, HttpStatus.OK);  // HTTP 200
+    public ResponseEntity<List<TrainVue>> getAllTrains(
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String tri,
+            @RequestParam(required = false) String curseur) {
+        Curseur position = Curseur.lire(curseur, Curseur.tri(tri));
+        return Pagination.reponse(trainService.getTrainsPage(position, PageCurseur.borner(taille)));  // HTTP 200
     }
     
     /**
      * Récupérer un train par son ID
      * GET http://localhost:8080/api/trains/1
+     * ETag = version du train, à renvoyer dans If-Match pour le modifier.
      */
     @GetMapping("/{id}")
     public ResponseEntity<Train> getTrainById(@PathVariable Long id) {
         Train train = trainService.getTrainById(id);
-        return new ResponseEntity<>(train, HttpStatus.OK);  // HTTP 200
+        return ResponseEntity.ok().eTag(Conditionnel.etag(train.getVersion())).body(train);  // HTTP 200 (ou 304)
     }
     
     /**
      * Mettre à jour un train existant
      * PUT http://localhost:8080/api/trains/1
+     * Avec If-Match : HTTP 412 si le train a changé depuis sa lecture.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Train> updateTrain(@PathVariable Long id, @RequestBody Train trainDetails) {
-        Train updatedTrain = trainService.updateTrain(id, trainDetails);
-        return new ResponseEntity<>(updatedTrain, HttpStatus.OK);  // HTTP 200
+    public ResponseEntity<Train> updateTrain(
+            @PathVariable Long id,
+            @RequestBody Train trainDetails,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Train updatedTrain = trainService.updateTrain(id, trainDetails, Conditionnel.versionAttendue(ifMatch));
+        return ResponseEntity.ok().eTag(Conditionnel.etag(updatedTrain.getVersion())).body(updatedTrain);  // HTTP 200
     }
     
     /**
@@ -73,6 +122,19 @@ public class TrainController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);  // HTTP 204
     }
     
+    /**
+     * Supprimer en masse les trains d'une gare et/ou d'une période de départ [debut, fin[
+     * DELETE http://localhost:8787/api/trains?gareId=1&debut=2024-06-01T00:00:00&fin=2024-06-02T00:00:00
+     * Par lots de DELETE ensemblistes, une transaction par lot ; au moins un critère est obligatoire.
+     */
+    @DeleteMapping
+    public ResponseEntity<Map<String, Object>> deleteTrains(
+            @RequestParam(required = false) Long gareId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
+        return ResponseEntity.ok(suppressionService.supprimerTrains(gareId, debut, fin));  // HTTP 200
+    }
+    
     // === SERVICES SPÉCIFIQUES ===
     
     /**
@@ -80,21 +142,35 @@ public class TrainController {
      * GET http://localhost:8080/api/trains/recherche?depart=Paris&arrivee=Lyon
      */
     @GetMapping("/recherche")
-    public ResponseEntity<List<Train>> getTrainsByVilles(
+    public ResponseEntity<List<TrainVue>> getTrainsByVilles(
             @RequestParam String depart,
-            @RequestParam String arrivee) {
-        List<Train> trains = trainService.getTrainsByVilles(depart, arrivee);
-        return new ResponseEntity<>(trains, HttpStatus.OK);  // HTTP 200
+            @RequestParam String arrivee,
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String tri,
+            @RequestParam(required = false) String curseur) {
+        Curseur position = Curseur.lire(curseur, Curseur.tri(tri));
+        return Pagination.reponse(
+                trainService.getTrainsByVillesPage(depart, arrivee, position, PageCurseur.borner(taille)));  // HTTP 200
     }
     
     /**
      * Récupérer tous les trains liés à une gare (départs et arrivées)
      * GET http://localhost:8080/api/trains/gare/1
+     * HTTP 304 sans requête SQL tant que les trains de la gare n'ont pas changé.
      */
     @GetMapping("/gare/{gareId}")
-    public ResponseEntity<List<Train>> getTrainsByGare(@PathVariable Long gareId) {
-        List<Train> trains = trainService.getTrainsByGare(gareId);
-        return new ResponseEntity<>(trains, HttpStatus.OK);  // HTTP 200
+    public ResponseEntity<List<TrainVue>> getTrainsByGare(
+            @PathVariable Long gareId,
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String tri,
+            @RequestParam(required = false) String curseur,
+            WebRequest requete) {
+        String etag = versions.etagTrainsDeGare(gareId) + ReponsesCompactes.suffixeEtag(requete.getHeader(HttpHeaders.ACCEPT));
+        if (requete.checkNotModified(etag, versions.trainsModifiesLe())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();  // HTTP 304
+        }
+        Curseur position = Curseur.lire(curseur, Curseur.tri(tri));
+        return Pagination.reponse(trainService.getTrainsByGarePage(gareId, position, PageCurseur.borner(taille)));  // HTTP 200
     }
     
     /**
@@ -102,9 +178,41 @@ public class TrainController {
      * GET http://localhost:8080/api/trains/search?numero=TGV
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Train>> searchTrainsByNumero(@RequestParam String numero) {
-        List<Train> trains = trainService.getTrainsByNumero(numero);
-        return new ResponseEntity<>(trains, HttpStatus.OK);  // HTTP 200
+    public ResponseEntity<List<TrainVue>> searchTrainsByNumero(
+            @RequestParam String numero,
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String tri,
+            @RequestParam(required = false) String curseur) {
+        Curseur position = Curseur.lire(curseur, Curseur.tri(tri));
+        return Pagination.reponse(trainService.getTrainsByNumeroPage(numero, position, PageCurseur.borner(taille)));  // HTTP 200
+    }
+    
+    /**
+     * Trains par durée de trajet, triés par durée puis heure de départ
+     * GET http://localhost:8080/api/trains/duree?min=60&max=180&debut=2024-06-01T00:00:00&fin=2024-06-02T00:00:00
+     */
+    @GetMapping("/duree")
+    public ResponseEntity<List<TrainVue>> getTrainsByDuree(
+            @RequestParam(required = false) Integer min,
+            @RequestParam(required = false) Integer max,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(required = false) Integer taille,
+            @RequestParam(required = false) String curseur) {
+        Curseur position = Curseur.lire(curseur, Curseur.Tri.DUREE);
+        return Pagination.reponse(
+                trainService.getTrainsByDureePage(min, max, debut, fin, position, PageCurseur.borner(taille)));  // HTTP 200
+    }
+    
+    /**
+     * Autocomplétion par numéro de train, classée (préfixes d'abord)
+     * GET http://localhost:8080/api/trains/autocomplete?q=tgv6&limite=10
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<Map<String, Object>>> autocompleteTrains(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(trainService.autocompleterTrains(q, limite));  // HTTP 200
     }
     
     /**
@@ -126,6 +234,16 @@ public class TrainController {
     public ResponseEntity<String> handleRuntimeException(RuntimeException ex) {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
+    
+    /**
+     * Version périmée : HTTP 412 si le client a fourni If-Match, 409 pour une écriture concurrente
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConflitDeVersion(OptimisticLockingFailureException ex, WebRequest requete) {
+        HttpStatus status = requete.getHeader(HttpHeaders.IF_MATCH) != null
+                ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+        return new ResponseEntity<>(ex.getMessage(), status);
+    }
     @GetMapping("/{id}/duree")
     public ResponseEntity<Map<String, Object>> getDureeVoyage(@PathVariable Long id) {
         try {
@@ -135,7 +253,10 @@ public class TrainController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
- // Add this to TrainController.java
+    /**
+     * 15. RECHERCHE AVANCÉE TRAINS
+     * GET http://localhost:8787/api/trains/recherche-avancee?villeDepart=Paris&villeArrivee=Lyon&dureeMaxMinutes=300
+     */
     @GetMapping("/recherche-avancee")
     public ResponseEntity<List<Train>> rechercheAvancee(
             @RequestParam(required = false) String villeDepart,
@@ -155,11 +276,53 @@ public class TrainController {
         );
         return ResponseEntity.ok(trains);
     }
- // Add this method to your TrainController.java
 
     /**
-     * 15. RECHERCHE AVANCÉE TRAINS
-     * GET http://localhost:8787/api/trains/recherche-avancee?villeDepart=Paris&villeArrivee=Lyon&dureeMaxMinutes=300
+     * 16. ITINÉRAIRES AVEC CORRESPONDANCES
+     * GET http://localhost:8787/api/trains/itineraires?villeDepart=Paris&villeArrivee=Marseille&depart=2024-06-01T08:00:00
+     * Les gares peuvent aussi être données par id (gareDepartId / gareArriveeId).
      */
-
-}
\ No newline at end of file
+    @GetMapping("/itineraires")
+    public ResponseEntity<Map<String, Object>> getItineraires(
+            @RequestParam(required = false) Long gareDepartId,
+            @RequestParam(required = false) String villeDepart,
+            @RequestParam(required = false) Long gareArriveeId,
+            @RequestParam(required = false) String villeArrivee,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime depart,
+            @RequestParam(defaultValue = "3") int maxCorrespondances) {
+        
+        Map<String, Object> itineraires = planificateurItineraires.planifier(
+            gareDepartId,
+            villeDepart,
+            gareArriveeId,
+            villeArrivee,
+            depart != null ? depart : LocalDateTime.now(),
+            maxCorrespondances
+        );
+        return ResponseEntity.ok(itineraires);
+    }
+    
+    /**
+     * 17. EXPORT COMPLET DE L'HORAIRE (flux NDJSON ou CSV)
+     * GET http://localhost:8787/api/trains/export?format=csv&villeDepart=Paris&dateDebut=2024-06-01T00:00:00
+     * Mêmes filtres que la recherche avancée, appliqués côté SQL.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exporter(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String villeDepart,
+            @RequestParam(required = false) String villeArrivee,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateDebut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFin,
+            @RequestParam(required = false) Integer dureeMaxMinutes,
+            @RequestParam(required = false) Boolean gareOuverteSeulement) {
+        
+        ExportService.Format choisi = ExportService.Format.lire(format);
+        StreamingResponseBody corps = out -> exportService.exporter(
+            choisi, out, villeDepart, villeArrivee, dateDebut, dateFin, dureeMaxMinutes, gareOuverteSeulement);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(choisi.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"trains." + choisi.getExtension() + "\"")
+                .body(corps);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Gare;
+
+/**
+ * Vue en lecture seule d'une gare, sérialisée comme l'entité Gare.
+ */
+public record GareVue(
+        Long id,
+        String nom,
+        String ville,
+        Integer nombreVoies,
+        Boolean estOuverte,
+        Integer tempsCorrespondance,
+        long version) {
+
+    public static GareVue de(Gare gare) {
+        return new GareVue(gare.getId(), gare.getNom(), gare.getVille(), gare.getNombreVoies(),
+                gare.getEstOuverte(), gare.getTempsCorrespondance(), gare.getVersion());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forme compacte d'une liste de trains : chaque gare n'apparaît qu'une fois,
+ * dans le dictionnaire "gares", et les trains la référencent par id.
+ * Servie en CBOR (application/cbor) ou en JSON (application/vnd.rahal.compact+json).
+ */
+public record HoraireCompact(List<GareVue> gares, List<Ligne> trains) {
+
+    public record Ligne(
+            Long id,
+            String numeroTrain,
+            LocalDateTime heureDepart,
+            LocalDateTime heureArrivee,
+            Integer dureeMinutes,
+            long version,
+            Long gareDepartId,
+            Long gareArriveeId) {
+    }
+
+    public static HoraireCompact de(List<TrainVue> vues) {
+        Map<Long, GareVue> gares = new LinkedHashMap<>();
+        List<Ligne> trains = new ArrayList<>(vues.size());
+        for (TrainVue vue : vues) {
+            gares.putIfAbsent(vue.gareDepart().id(), vue.gareDepart());
+            gares.putIfAbsent(vue.gareArrivee().id(), vue.gareArrivee());
+            trains.add(new Ligne(vue.id(), vue.numeroTrain(), vue.heureDepart(), vue.heureArrivee(),
+                    vue.dureeMinutes(), vue.version(), vue.gareDepart().id(), vue.gareArrivee().id()));
+        }
+        return new HoraireCompact(new ArrayList<>(gares.values()), trains);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Corps de PATCH /api/gares/batch/status : les gares sont désignées soit par
+ * leurs ids, soit par les critères de filtre de GET /api/gares.
+ */
+public record StatutEnMasse(
+        Boolean estOuverte,
+        List<Long> ids,
+        List<String> ville,
+        Integer minVoies,
+        Integer maxVoies,
+        Boolean ouverte,
+        String prefixe) {
+}
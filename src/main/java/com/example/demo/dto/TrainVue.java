@@ -0,0 +1,39 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Train;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vue en lecture seule d'un train et de ses deux gares, construite directement
+ * par une expression JPQL "SELECT new" : une seule requête, aucune entité gérée.
+ * Le JSON produit a la même forme que celui de l'entité Train.
+ */
+public record TrainVue(
+        Long id,
+        String numeroTrain,
+        LocalDateTime heureDepart,
+        LocalDateTime heureArrivee,
+        Integer dureeMinutes,
+        long version,
+        GareVue gareDepart,
+        GareVue gareArrivee) {
+
+    // Constructeur à plat utilisé par les requêtes de TrainRepository
+    public TrainVue(Long id, String numeroTrain, LocalDateTime heureDepart, LocalDateTime heureArrivee,
+                    Integer dureeMinutes, long version,
+                    Long gdId, String gdNom, String gdVille, Integer gdVoies, Boolean gdOuverte, Integer gdCorrespondance,
+                    long gdVersion,
+                    Long gaId, String gaNom, String gaVille, Integer gaVoies, Boolean gaOuverte, Integer gaCorrespondance,
+                    long gaVersion) {
+        this(id, numeroTrain, heureDepart, heureArrivee, dureeMinutes, version,
+                new GareVue(gdId, gdNom, gdVille, gdVoies, gdOuverte, gdCorrespondance, gdVersion),
+                new GareVue(gaId, gaNom, gaVille, gaVoies, gaOuverte, gaCorrespondance, gaVersion));
+    }
+
+    public static TrainVue de(Train train) {
+        return new TrainVue(train.getId(), train.getNumeroTrain(), train.getHeureDepart(), train.getHeureArrivee(),
+                train.getDureeMinutes(), train.getVersion(),
+                GareVue.de(train.getGareDepart()), GareVue.de(train.getGareArrivee()));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.event;
+
+import com.example.demo.model.Gare;
+
+/**
+ * Publié par GareService après chaque écriture sur une gare.
+ * Une SUPPRESSION implique aussi celle des trains liés (cascade JPA).
+ * "avant" est une copie de la gare avant l'écriture (null pour une CREATION).
+ */
+public class GareEvent {
+
+    public enum Type { CREATION, MISE_A_JOUR, SUPPRESSION }
+
+    private final Type type;
+    private final Gare gare;
+    private final Gare avant;
+
+    public GareEvent(Type type, Gare gare) {
+        this(type, gare, null);
+    }
+
+    public GareEvent(Type type, Gare gare, Gare avant) {
+        this.type = type;
+        this.gare = gare;
+        this.avant = avant;
+    }
+
+    public Type getType() { return type; }
+
+    public Gare getGare() { return gare; }
+
+    public Gare getAvant() { return avant; }
+
+    public Long getGareId() { return gare.getId(); }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.event;
+
+import java.util.List;
+
+/**
+ * Publié après une écriture en masse sur les gares (statut en masse, création
+ * de plusieurs gares) : un seul événement pour tout le lot, chaque élément étant
+ * la MISE_A_JOUR d'une gare (avec "avant") ou sa CREATION. Les index qui se
+ * rechargent ou se recopient à chaque gare modifiée ne le font ainsi qu'une fois.
+ */
+public class GaresModifieesEvent {
+
+    private final List<GareEvent> modifications;
+
+    public GaresModifieesEvent(List<GareEvent> modifications) {
+        this.modifications = modifications;
+    }
+
+    public List<GareEvent> getModifications() { return modifications; }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.event;
+
+import com.example.demo.model.Train;
+
+/**
+ * Publié par TrainService après chaque écriture sur un train.
+ * Les index en mémoire l'écoutent pour rester cohérents avec la base.
+ * "avant" est une copie du train avant l'écriture (renseignée pour une MISE_A_JOUR).
+ */
+public class TrainEvent {
+
+    public enum Type { CREATION, MISE_A_JOUR, SUPPRESSION }
+
+    private final Type type;
+    private final Train train;
+    private final Train avant;
+
+    public TrainEvent(Type type, Train train) {
+        this(type, train, null);
+    }
+
+    public TrainEvent(Type type, Train train, Train avant) {
+        this.type = type;
+        this.train = train;
+        this.avant = avant;
+    }
+
+    public Type getType() { return type; }
+
+    public Train getTrain() { return train; }
+
+    public Train getAvant() { return avant; }
+
+    public Long getTrainId() { return train.getId(); }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.event;
+
+import com.example.demo.model.Train;
+
+import java.util.List;
+
+/**
+ * Publié après un import en masse : un seul événement pour tout le lot,
+ * afin que les index en mémoire n'aient à se mettre à jour qu'une fois.
+ */
+public class TrainsImportesEvent {
+
+    private final List<Train> trains;
+
+    public TrainsImportesEvent(List<Train> trains) {
+        this.trains = trains;
+    }
+
+    public List<Train> getTrains() { return trains; }
+}
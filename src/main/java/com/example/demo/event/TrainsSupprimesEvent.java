@@ -0,0 +1,24 @@
+package com.example.demo.event;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publié après chaque lot d'une suppression en masse (DELETE ensembliste, sans
+ * entités chargées) : les ids supprimés et, pour chaque gare desservie, ceux
+ * de ses trains. Un seul événement par lot, comme {@link TrainsImportesEvent}.
+ */
+public class TrainsSupprimesEvent {
+
+    private final List<Long> trainIds;
+    private final Map<Long, List<Long>> trainsParGare;
+
+    public TrainsSupprimesEvent(List<Long> trainIds, Map<Long, List<Long>> trainsParGare) {
+        this.trainIds = trainIds;
+        this.trainsParGare = trainsParGare;
+    }
+
+    public List<Long> getTrainIds() { return trainIds; }
+
+    public Map<Long, List<Long>> getTrainsParGare() { return trainsParGare; }
+}
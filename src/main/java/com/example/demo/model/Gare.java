@@ -5,9 +5,12 @@ import java.util.ArrayList;
 import java.util.List;  // ← AJOUTÉ
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "gare")
+@Table(name = "gare", indexes = {
+    @Index(name = "idx_gare_ville", columnList = "ville, id")
+})
 public class Gare {
     
     @Id
@@ -23,6 +26,15 @@ public class Gare {
     private Integer nombreVoies;
     private Boolean estOuverte = true;
     
+    // Temps minimal de correspondance dans la gare (minutes), 0 si non renseigné
+    private Integer tempsCorrespondance;
+    
+    // Incrémentée à chaque écriture (verrouillage optimiste) ; sert d'ETag à GET /api/gares/{id}
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+    
     @OneToMany(mappedBy = "gareDepart", cascade = CascadeType.ALL)
     @JsonIgnore  // ← AJOUTEZ ICI
     private List<Train> departs = new ArrayList<>();
@@ -56,6 +68,12 @@ public class Gare {
     public Boolean getEstOuverte() { return estOuverte; }
     public void setEstOuverte(Boolean estOuverte) { this.estOuverte = estOuverte; }
     
+    public Integer getTempsCorrespondance() { return tempsCorrespondance; }
+    public void setTempsCorrespondance(Integer tempsCorrespondance) { this.tempsCorrespondance = tempsCorrespondance; }
+    
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    
     public List<Train> getDeparts() { return departs; }
     public void setDeparts(List<Train> departs) { this.departs = departs; }
     
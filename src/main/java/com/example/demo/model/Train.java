@@ -2,16 +2,31 @@ package com.example.demo.model;
 
 
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "train")
+@NamedEntityGraph(name = Train.GRAPHE_GARES, attributeNodes = {
+    @NamedAttributeNode("gareDepart"),
+    @NamedAttributeNode("gareArrivee")
+})
+@Table(name = "train", indexes = {
+    @Index(name = "idx_train_heure_depart", columnList = "heure_depart, id"),
+    @Index(name = "idx_train_depart_heure", columnList = "gare_depart_id, heure_depart"),
+    @Index(name = "idx_train_arrivee_heure", columnList = "gare_arrivee_id, heure_arrivee"),
+    @Index(name = "idx_train_heure_arrivee", columnList = "heure_arrivee"),
+    @Index(name = "idx_train_duree", columnList = "duree_minutes, heure_depart, id")
+})
 public class Train {
     
+    // Plan de chargement utilisé par TrainRepository : les deux gares dans le même SELECT
+    public static final String GRAPHE_GARES = "Train.gares";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -25,14 +40,25 @@ public class Train {
     @Column(name = "heure_arrivee", nullable = false)
     private LocalDateTime heureArrivee;
     
-    @ManyToOne
+    // Durée du trajet, recalculée à chaque écriture : les filtres par durée restent sur index
+    @Column(name = "duree_minutes")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer dureeMinutes;
+    
+    // Incrémentée à chaque écriture (verrouillage optimiste) ; sert d'ETag à GET /api/trains/{id}
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "gare_depart_id", nullable = false)
-    @JsonIgnoreProperties({"departs", "arrivees"})  // ← AJOUTEZ ICI
+    @JsonIgnoreProperties({"departs", "arrivees", "hibernateLazyInitializer", "handler"})  // ← AJOUTEZ ICI
     private Gare gareDepart;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "gare_arrivee_id", nullable = false)
-    @JsonIgnoreProperties({"departs", "arrivees"})  // ← AJOUTEZ ICI AUSSI
+    @JsonIgnoreProperties({"departs", "arrivees", "hibernateLazyInitializer", "handler"})  // ← AJOUTEZ ICI AUSSI
     private Gare gareArrivee ;
     
   
@@ -47,6 +73,19 @@ public class Train {
         this.gareArrivee = gareArrivee;
     }
     
+    // Même arrondi que TIMESTAMPDIFF(MINUTE, ...) en SQL
+    public static int dureeMinutes(LocalDateTime heureDepart, LocalDateTime heureArrivee) {
+        return (int) Duration.between(heureDepart, heureArrivee).toMinutes();
+    }
+    
+    @PrePersist
+    @PreUpdate
+    void calculerDuree() {
+        if (heureDepart != null && heureArrivee != null) {
+            dureeMinutes = dureeMinutes(heureDepart, heureArrivee);
+        }
+    }
+    
     // Getters et Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -60,6 +99,11 @@ public class Train {
     public LocalDateTime getHeureArrivee() { return heureArrivee; }
     public void setHeureArrivee(LocalDateTime heureArrivee) { this.heureArrivee = heureArrivee; }
     
+    public Integer getDureeMinutes() { return dureeMinutes; }
+    
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    
     public Gare getGareDepart() { return gareDepart; }
     public void setGareDepart(Gare gareDepart) { this.gareDepart = gareDepart; }
     
@@ -1,10 +1,15 @@
 package com.example.demo.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.model.Gare;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,6 +17,41 @@ public interface GareRepository extends JpaRepository<Gare, Long> {
     List<Gare> findByVille(String ville);
     List<Gare> findByNomContainingIgnoreCase(String nom);
     List<Gare> findByEstOuverteTrue();
+    
+    // Agrégats par ville pour reconstruire les statistiques globales sans charger les gares
+    @Query("SELECT g.ville, COUNT(g), " +
+           "SUM(CASE WHEN g.estOuverte = true THEN 1 ELSE 0 END), " +
+           "COALESCE(SUM(g.nombreVoies), 0) " +
+           "FROM Gare g GROUP BY g.ville")
+    List<Object[]> compterParVille();
+    
+    // Statut en masse : un UPDATE pour tout le lot, version incrémentée comme par Hibernate.
+    // Les gares déjà dans l'état demandé ne sont pas touchées.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Gare g SET g.estOuverte = :estOuverte, g.version = g.version + 1 " +
+           "WHERE g.id IN :ids AND (g.estOuverte IS NULL OR g.estOuverte <> :estOuverte)")
+    int changerStatut(@Param("ids") Collection<Long> ids, @Param("estOuverte") boolean estOuverte);
+    
+    // Versions relues après un UPDATE ensembliste, sans charger les entités : [id, version]
+    @Query("SELECT g.id, g.version FROM Gare g WHERE g.id IN :ids")
+    List<Object[]> versions(@Param("ids") Collection<Long> ids);
+    
+    // Ses trains doivent déjà être supprimés (SuppressionService) : pas de cascade chargée en mémoire
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Gare g WHERE g.id = :id")
+    int supprimer(@Param("id") Long id);
+    
+    // ============ PAGINATION PAR CLÉ (sans OFFSET) ============
+    
+    @Query("SELECT g FROM Gare g WHERE g.id > :apresId ORDER BY g.id")
+    List<Gare> pageParId(@Param("apresId") Long apresId, Pageable limite);
+    
+    @Query("SELECT g FROM Gare g WHERE g.ville = :ville AND g.id > :apresId ORDER BY g.id")
+    List<Gare> pageParVille(@Param("ville") String ville, @Param("apresId") Long apresId, Pageable limite);
+    
+    @Query("SELECT g FROM Gare g WHERE LOWER(g.nom) LIKE LOWER(CONCAT('%', :nom, '%')) " +
+           "AND g.id > :apresId ORDER BY g.id")
+    List<Gare> pageParNom(@Param("nom") String nom, @Param("apresId") Long apresId, Pageable limite);
 }
 
 
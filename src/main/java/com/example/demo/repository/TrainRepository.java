@@ -1,35 +1,205 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.TrainVue;
 import com.example.demo.model.Train;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Toute méthode qui renvoie des Train charge leurs deux gares dans le même
+ * SELECT (graphe Train.GRAPHE_GARES) : pas de requête supplémentaire par gare.
+ */
 @Repository
 public interface TrainRepository extends JpaRepository<Train, Long> {
     
+    // Projection en lecture seule pour les listes : une requête, aucune entité gérée
+    String VUE = "SELECT new com.example.demo.dto.TrainVue(t.id, t.numeroTrain, t.heureDepart, t.heureArrivee, t.dureeMinutes, t.version, " +
+                 "gd.id, gd.nom, gd.ville, gd.nombreVoies, gd.estOuverte, gd.tempsCorrespondance, gd.version, " +
+                 "ga.id, ga.nom, ga.ville, ga.nombreVoies, ga.estOuverte, ga.tempsCorrespondance, ga.version) " +
+                 "FROM Train t JOIN t.gareDepart gd JOIN t.gareArrivee ga ";
+    
+    @Override
+    @EntityGraph(Train.GRAPHE_GARES)
+    List<Train> findAll();
+    
+    @Override
+    @EntityGraph(Train.GRAPHE_GARES)
+    Optional<Train> findById(Long id);
+    
+    @Override
+    @EntityGraph(Train.GRAPHE_GARES)
+    List<Train> findAllById(Iterable<Long> ids);
+    
     // Existing methods
+    @EntityGraph(Train.GRAPHE_GARES)
     List<Train> findByGareDepartVilleAndGareArriveeVille(String villeDepart, String villeArrivee);
+    @EntityGraph(Train.GRAPHE_GARES)
     List<Train> findByNumeroTrainContainingIgnoreCase(String numero);
+    @EntityGraph(Train.GRAPHE_GARES)
     List<Train> findByHeureDepartBetween(LocalDateTime start, LocalDateTime end);
     
     // ✅ ENDPOINT 13: Required method
+    @EntityGraph(Train.GRAPHE_GARES)
     @Query("SELECT t FROM Train t WHERE t.gareDepart.id = :gareId OR t.gareArrivee.id = :gareId")
     List<Train> findTrainsByGareId(@Param("gareId") Long gareId);
     
     // Additional methods for advanced search
+    @EntityGraph(Train.GRAPHE_GARES)
     @Query("SELECT t FROM Train t WHERE " +
            "(:villeDepart IS NULL OR t.gareDepart.ville = :villeDepart) AND " +
            "(:villeArrivee IS NULL OR t.gareArrivee.ville = :villeArrivee)")
     List<Train> findByVilles(@Param("villeDepart") String villeDepart, 
                             @Param("villeArrivee") String villeArrivee);
     
-    // Trains with duration less than X minutes
-    @Query("SELECT t FROM Train t WHERE " +
-           "TIMESTAMPDIFF(MINUTE, t.heureDepart, t.heureArrivee) <= :maxMinutes")
-    List<Train> findByMaxDuration(@Param("maxMinutes") Long maxMinutes);
-}
\ No newline at end of file
+    // Trains with duration less than X minutes (colonne duree_minutes indexée)
+    @EntityGraph(Train.GRAPHE_GARES)
+    @Query("SELECT t FROM Train t WHERE t.dureeMinutes <= :maxMinutes")
+    List<Train> findByMaxDuration(@Param("maxMinutes") Integer maxMinutes);
+    
+    // Lignes créées avant l'ajout de la colonne duree_minutes
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE train SET duree_minutes = TIMESTAMPDIFF(MINUTE, heure_depart, heure_arrivee) " +
+                   "WHERE duree_minutes IS NULL", nativeQuery = true)
+    int completerDurees();
+    
+    // Horaires bruts pour le moteur horaire (sans charger les gares)
+    @Query("SELECT t.id, t.heureDepart, t.heureArrivee, t.gareDepart.id, t.gareArrivee.id FROM Train t")
+    List<Object[]> findHoraires();
+    
+    // Numéros et gares pour l'index de recherche (sans charger les gares)
+    @Query("SELECT t.id, t.numeroTrain, t.heureDepart, t.gareDepart.id, t.gareArrivee.id FROM Train t")
+    List<Object[]> findNumeros();
+    
+    // Lignes d'une page déjà choisie par l'index de recherche (ordre non garanti)
+    @Query(VUE + "WHERE t.id IN :ids")
+    List<TrainVue> findVuesByIds(@Param("ids") Collection<Long> ids);
+    
+    // Fenêtres des tableaux de gare (TableauxGares)
+    @Query(VUE + "WHERE t.heureDepart >= :debut AND t.heureDepart < :fin")
+    List<TrainVue> findVuesParDepart(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+    
+    @Query(VUE + "WHERE t.heureArrivee >= :debut AND t.heureArrivee < :fin")
+    List<TrainVue> findVuesParArrivee(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+    
+    // ============ STATISTIQUES PAR GARE (agrégats SQL) ============
+    
+    // Heure UTC en base (hibernate.jdbc.time_zone=UTC) : à décaler vers l'heure locale de la JVM
+    @Query("SELECT EXTRACT(HOUR FROM t.heureDepart), COUNT(t) FROM Train t " +
+           "WHERE t.gareDepart.id = :gareId AND t.heureDepart >= :debut AND t.heureDepart < :fin " +
+           "GROUP BY EXTRACT(HOUR FROM t.heureDepart)")
+    List<Object[]> compterDepartsParHeure(@Param("gareId") Long gareId,
+                                          @Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+    
+    // Départs relus en LocalDateTime (reconvertis par Hibernate), quand le décalage n'est pas fixe
+    @Query("SELECT t.heureDepart FROM Train t " +
+           "WHERE t.gareDepart.id = :gareId AND t.heureDepart >= :debut AND t.heureDepart < :fin")
+    List<LocalDateTime> findHeuresDepart(@Param("gareId") Long gareId,
+                                         @Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+    
+    @Query("SELECT COUNT(t) FROM Train t " +
+           "WHERE t.gareArrivee.id = :gareId AND t.heureArrivee >= :debut AND t.heureArrivee < :fin")
+    long compterArrivees(@Param("gareId") Long gareId,
+                         @Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+    
+    // Boucles comptées à la fois dans les départs et dans les arrivées : mêmes bornes [debut, fin[ que
+    // compterDepartsParHeure (sur le départ) et compterArrivees (sur l'arrivée)
+    @Query("SELECT COUNT(t) FROM Train t WHERE t.gareDepart.id = :gareId AND t.gareArrivee.id = :gareId " +
+           "AND t.heureDepart >= :debut AND t.heureDepart < :fin " +
+           "AND t.heureArrivee >= :debut AND t.heureArrivee < :fin")
+    long compterBoucles(@Param("gareId") Long gareId,
+                        @Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+    
+    // Numéros déjà pris, pour valider un import en une seule requête
+    @Query("SELECT t.numeroTrain FROM Train t WHERE t.numeroTrain IN :numeros")
+    List<String> findNumerosExistants(@Param("numeros") Collection<String> numeros);
+    
+    // ============ SUPPRESSION PAR LOTS ============
+    // Sélection d'un lot (id et gares, pour les index) puis DELETE par ids : chaque lot
+    // supprimé sort de la sélection suivante, pas besoin de curseur.
+    
+    @Query("SELECT t.id, t.gareDepart.id, t.gareArrivee.id FROM Train t " +
+           "WHERE t.gareDepart.id = :gareId OR t.gareArrivee.id = :gareId")
+    List<Object[]> lotASupprimerParGare(@Param("gareId") Long gareId, Pageable limite);
+    
+    @Query("SELECT t.id, t.gareDepart.id, t.gareArrivee.id FROM Train t " +
+           "WHERE (t.gareDepart.id = :gareId OR t.gareArrivee.id = :gareId) " +
+           "AND t.heureDepart >= :debut AND t.heureDepart < :fin")
+    List<Object[]> lotASupprimerParGareEtPeriode(@Param("gareId") Long gareId,
+                                                 @Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin,
+                                                 Pageable limite);
+    
+    @Query("SELECT t.id, t.gareDepart.id, t.gareArrivee.id FROM Train t " +
+           "WHERE t.heureDepart >= :debut AND t.heureDepart < :fin")
+    List<Object[]> lotASupprimerParPeriode(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin,
+                                           Pageable limite);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Train t WHERE t.id IN :ids")
+    int supprimerParIds(@Param("ids") Collection<Long> ids);
+    
+    // ============ PAGINATION PAR CLÉ (sans OFFSET) ============
+    // Le Pageable ne sert qu'à borner le nombre de lignes (LIMIT), l'ordre est fixé par la requête.
+    
+    @Query(VUE + "WHERE t.id > :apresId ORDER BY t.id")
+    List<TrainVue> pageParId(@Param("apresId") Long apresId, Pageable limite);
+    
+    @Query(VUE + "WHERE t.heureDepart > :apresHeure " +
+           "OR (t.heureDepart = :apresHeure AND t.id > :apresId) ORDER BY t.heureDepart, t.id")
+    List<TrainVue> pageParDepart(@Param("apresHeure") LocalDateTime apresHeure,
+                                 @Param("apresId") Long apresId, Pageable limite);
+    
+    @Query(VUE + "WHERE (gd.id = :gareId OR ga.id = :gareId) " +
+           "AND t.id > :apresId ORDER BY t.id")
+    List<TrainVue> pageParGareParId(@Param("gareId") Long gareId, @Param("apresId") Long apresId, Pageable limite);
+    
+    @Query(VUE + "WHERE (gd.id = :gareId OR ga.id = :gareId) " +
+           "AND (t.heureDepart > :apresHeure OR (t.heureDepart = :apresHeure AND t.id > :apresId)) " +
+           "ORDER BY t.heureDepart, t.id")
+    List<TrainVue> pageParGareParDepart(@Param("gareId") Long gareId, @Param("apresHeure") LocalDateTime apresHeure,
+                                        @Param("apresId") Long apresId, Pageable limite);
+    
+    @Query(VUE + "WHERE LOWER(t.numeroTrain) LIKE LOWER(CONCAT('%', :numero, '%')) " +
+           "AND t.id > :apresId ORDER BY t.id")
+    List<TrainVue> pageParNumeroParId(@Param("numero") String numero, @Param("apresId") Long apresId, Pageable limite);
+    
+    @Query(VUE + "WHERE LOWER(t.numeroTrain) LIKE LOWER(CONCAT('%', :numero, '%')) " +
+           "AND (t.heureDepart > :apresHeure OR (t.heureDepart = :apresHeure AND t.id > :apresId)) " +
+           "ORDER BY t.heureDepart, t.id")
+    List<TrainVue> pageParNumeroParDepart(@Param("numero") String numero, @Param("apresHeure") LocalDateTime apresHeure,
+                                          @Param("apresId") Long apresId, Pageable limite);
+    
+    @Query(VUE + "WHERE gd.ville = :villeDepart AND ga.ville = :villeArrivee " +
+           "AND t.id > :apresId ORDER BY t.id")
+    List<TrainVue> pageParVillesParId(@Param("villeDepart") String villeDepart, @Param("villeArrivee") String villeArrivee,
+                                      @Param("apresId") Long apresId, Pageable limite);
+    
+    // Parcours de idx_train_duree dans l'ordre : pas de tri, la borne basse est déjà celle du curseur
+    @Query(VUE + "WHERE t.dureeMinutes >= :dureeMin AND t.dureeMinutes <= :dureeMax " +
+           "AND t.heureDepart >= :debut AND t.heureDepart < :fin " +
+           "AND (t.dureeMinutes > :apresDuree OR (t.dureeMinutes = :apresDuree " +
+           "AND (t.heureDepart > :apresHeure OR (t.heureDepart = :apresHeure AND t.id > :apresId)))) " +
+           "ORDER BY t.dureeMinutes, t.heureDepart, t.id")
+    List<TrainVue> pageParDuree(@Param("dureeMin") Integer dureeMin, @Param("dureeMax") Integer dureeMax,
+                                @Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin,
+                                @Param("apresDuree") Integer apresDuree, @Param("apresHeure") LocalDateTime apresHeure,
+                                @Param("apresId") Long apresId, Pageable limite);
+    
+    @Query(VUE + "WHERE gd.ville = :villeDepart AND ga.ville = :villeArrivee " +
+           "AND (t.heureDepart > :apresHeure OR (t.heureDepart = :apresHeure AND t.id > :apresId)) " +
+           "ORDER BY t.heureDepart, t.id")
+    List<TrainVue> pageParVillesParDepart(@Param("villeDepart") String villeDepart, @Param("villeArrivee") String villeArrivee,
+                                          @Param("apresHeure") LocalDateTime apresHeure,
+                                          @Param("apresId") Long apresId, Pageable limite);
+}
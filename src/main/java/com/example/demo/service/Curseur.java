@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TrainVue;
+import com.example.demo.model.Gare;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Position de pagination par clé (keyset) : on reprend strictement après
+ * le dernier élément renvoyé, sans OFFSET. Le jeton est opaque pour le client.
+ */
+public final class Curseur {
+
+    public enum Tri { ID, HEURE_DEPART, DUREE }
+
+    // Plus petite date acceptée par MySQL, sert de point de départ du tri par heure
+    private static final LocalDateTime ORIGINE = LocalDateTime.of(1000, 1, 1, 0, 0);
+
+    private final Tri tri;
+    private final long id;
+    private final LocalDateTime heureDepart;
+    // Tri DUREE uniquement : (durée, heure de départ, id)
+    private final int dureeMinutes;
+
+    private Curseur(Tri tri, long id, LocalDateTime heureDepart, int dureeMinutes) {
+        this.tri = tri;
+        this.id = id;
+        this.heureDepart = heureDepart;
+        this.dureeMinutes = dureeMinutes;
+    }
+
+    public static Curseur debut(Tri tri) {
+        return new Curseur(tri, 0L, ORIGINE, -1);
+    }
+
+    public static Curseur apres(TrainVue train, Tri tri) {
+        if (tri == Tri.DUREE) {
+            return new Curseur(tri, train.id(), train.heureDepart(), train.dureeMinutes());
+        }
+        return apres(train.id(), train.heureDepart(), tri);
+    }
+
+    public static Curseur apres(long id, LocalDateTime heureDepart, Tri tri) {
+        return new Curseur(tri, id, tri == Tri.HEURE_DEPART ? heureDepart : ORIGINE, -1);
+    }
+
+    public static Curseur apres(Gare gare) {
+        return new Curseur(Tri.ID, gare.getId(), ORIGINE, -1);
+    }
+
+    /**
+     * Décode un jeton reçu du client ; sans jeton, on part du début.
+     */
+    public static Curseur lire(String jeton, Tri tri) {
+        if (jeton == null || jeton.isEmpty()) {
+            return debut(tri);
+        }
+        Curseur curseur;
+        try {
+            String texte = new String(Base64.getUrlDecoder().decode(jeton), StandardCharsets.UTF_8);
+            String[] parties = texte.split("\\|");
+            Tri triJeton = Tri.valueOf(parties[0]);
+            long id = Long.parseLong(parties[1]);
+            LocalDateTime heure = triJeton == Tri.ID ? ORIGINE : LocalDateTime.parse(parties[2]);
+            int duree = triJeton == Tri.DUREE ? Integer.parseInt(parties[3]) : -1;
+            curseur = new Curseur(triJeton, id, heure, duree);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Curseur invalide: " + jeton);
+        }
+        if (curseur.tri != tri) {
+            throw new IllegalArgumentException("Le curseur ne correspond pas au tri demandé");
+        }
+        return curseur;
+    }
+
+    public static Tri tri(String valeur) {
+        if (valeur == null || valeur.isEmpty() || valeur.equalsIgnoreCase("id")) {
+            return Tri.ID;
+        }
+        if (valeur.equalsIgnoreCase("heureDepart")) {
+            return Tri.HEURE_DEPART;
+        }
+        throw new IllegalArgumentException("Tri non supporté: " + valeur.toLowerCase(Locale.ROOT));
+    }
+
+    public String encoder() {
+        String texte = switch (tri) {
+            case ID -> tri + "|" + id;
+            case HEURE_DEPART -> tri + "|" + id + "|" + heureDepart;
+            case DUREE -> tri + "|" + id + "|" + heureDepart + "|" + dureeMinutes;
+        };
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texte.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Tri getTri() { return tri; }
+
+    public long getId() { return id; }
+
+    public LocalDateTime getHeureDepart() { return heureDepart; }
+
+    public int getDureeMinutes() { return dureeMinutes; }
+}
@@ -0,0 +1,475 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.GareVue;
+import com.example.demo.dto.TrainVue;
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.event.TrainEvent;
+import com.example.demo.event.TrainsImportesEvent;
+import com.example.demo.event.TrainsSupprimesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diffusion en direct des changements d'horaires aux abonnés d'une ou plusieurs gares
+ * (SSE ou WebSocket).
+ *
+ * Les deltas partent après commit des événements TrainEvent, TrainsImportesEvent et
+ * GareEvent ; chaque delta est sérialisé une seule fois, quel que soit le nombre de
+ * destinataires. Chaque abonné a une file bornée, vidée par un thread virtuel qui lui
+ * est propre le temps de la vider : l'écriture qui publie ne touche jamais une
+ * connexion, et un client bloqué ne retient que son propre thread, jamais l'envoi aux
+ * autres. Un abonné dont la file est pleine (client trop lent ou bloqué) est
+ * déconnecté ; il se reconnecte et relit le tableau pour se resynchroniser.
+ *
+ * Un envoi bloqué plus de {@code rahal.diffusion.envoi-timeout-ms} (client qui ne lit
+ * plus) fait aussi déconnecter l'abonné, sur un pool de fermeture séparé : la
+ * fermeture de la connexion débloque l'envoi et termine son thread.
+ */
+@Component
+public class DiffusionHoraires implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(DiffusionHoraires.class);
+
+    public static final int MAX_GARES_PAR_ABONNE = 100;
+
+    private static final Message BATTEMENT = new Message("battement", "{\"type\":\"battement\"}");
+
+    /** Un delta prêt à envoyer : son type et son JSON (qui contient aussi le type). */
+    public record Message(String type, String json) {}
+
+    /**
+     * Un client connecté. Les envois d'un même abonné ne sont jamais concurrents :
+     * un seul thread vide sa file à la fois.
+     */
+    public abstract static class Abonne {
+        private final Set<Long> gareIds;
+        private final ArrayBlockingQueue<Message> file;
+        private final AtomicBoolean planifie = new AtomicBoolean();
+        private volatile boolean ferme;
+        // Début (nanoTime) de l'envoi en cours, 0 entre deux envois
+        private volatile long envoiDepuis;
+
+        protected Abonne(Set<Long> gareIds, int tampon) {
+            this.gareIds = gareIds;
+            this.file = new ArrayBlockingQueue<>(tampon);
+        }
+
+        public Set<Long> getGareIds() { return gareIds; }
+
+        protected abstract void envoyer(Message message) throws IOException;
+
+        protected abstract void fermer(String raison);
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final int tampon;
+    private final int maxAbonnes;
+    private final long envoiTimeoutMs;
+    // Un thread virtuel par file en cours de vidage : aucun pool partagé entre abonnés
+    private final ExecutorService envoi;
+    // Fermetures des abonnés éjectés : jamais sur un thread d'envoi, qui peut être bloqué
+    private final ExecutorService fermeture;
+
+    private final Map<Long, Set<Abonne>> parGare = new ConcurrentHashMap<>();
+    private final Set<Abonne> abonnes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nombreAbonnes = new AtomicInteger();
+
+    private final LongAdder messagesEnvoyes = new LongAdder();
+    private final LongAdder abonnesEjectes = new LongAdder();
+
+    public DiffusionHoraires(@Value("${rahal.diffusion.tampon:64}") int tampon,
+                             @Value("${rahal.diffusion.max-abonnes:20000}") int maxAbonnes,
+                             @Value("${rahal.diffusion.envoi-timeout-ms:5000}") long envoiTimeoutMs) {
+        this.tampon = tampon;
+        this.maxAbonnes = maxAbonnes;
+        this.envoiTimeoutMs = envoiTimeoutMs;
+        this.envoi = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("diffusion-", 1).factory());
+        AtomicInteger numeroFermeture = new AtomicInteger();
+        this.fermeture = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "diffusion-fermeture-" + numeroFermeture.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void arreter() {
+        envoi.shutdownNow();
+        fermeture.shutdownNow();
+    }
+
+    // ============ ABONNEMENTS ============
+
+    /**
+     * Vérifie et normalise la liste de gares d'un abonnement.
+     */
+    public static Set<Long> gares(Collection<Long> gareIds) {
+        if (gareIds == null || gareIds.isEmpty()) {
+            throw new IllegalArgumentException("Au moins une gare doit être indiquée");
+        }
+        Set<Long> resultat = new LinkedHashSet<>();
+        for (Long id : gareIds) {
+            if (id != null) {
+                resultat.add(id);
+            }
+        }
+        if (resultat.isEmpty()) {
+            throw new IllegalArgumentException("Au moins une gare doit être indiquée");
+        }
+        if (resultat.size() > MAX_GARES_PAR_ABONNE) {
+            throw new IllegalArgumentException("Un abonnement est limité à " + MAX_GARES_PAR_ABONNE + " gares");
+        }
+        return Set.copyOf(resultat);
+    }
+
+    public int getTampon() { return tampon; }
+
+    public long getEnvoiTimeoutMs() { return envoiTimeoutMs; }
+
+    /**
+     * Enregistre un abonné. IllegalStateException si le nœud a atteint son maximum.
+     */
+    public void abonner(Abonne abonne) {
+        if (nombreAbonnes.incrementAndGet() > maxAbonnes) {
+            nombreAbonnes.decrementAndGet();
+            throw new IllegalStateException("Nombre maximal d'abonnés atteint");
+        }
+        abonnes.add(abonne);
+        for (Long gareId : abonne.gareIds) {
+            // Ajout sous le verrou de la case, pour ne pas écrire dans un ensemble retiré
+            parGare.compute(gareId, (id, ensemble) -> {
+                Set<Abonne> resultat = ensemble != null ? ensemble : ConcurrentHashMap.newKeySet();
+                resultat.add(abonne);
+                return resultat;
+            });
+        }
+    }
+
+    public void desabonner(Abonne abonne) {
+        abonne.ferme = true;
+        if (!abonnes.remove(abonne)) {
+            return;
+        }
+        nombreAbonnes.decrementAndGet();
+        for (Long gareId : abonne.gareIds) {
+            parGare.computeIfPresent(gareId, (id, ensemble) -> {
+                ensemble.remove(abonne);
+                return ensemble.isEmpty() ? null : ensemble;
+            });
+        }
+        abonne.file.clear();
+    }
+
+    /**
+     * Abonnement SSE : chaque delta est un événement nommé par son type, de données JSON.
+     * SseEmitter.complete() attend la fin d'un send() en cours (méthodes synchronized) :
+     * un envoi SSE bloqué est borné par le délai d'écriture du connecteur
+     * (server.tomcat.connection-timeout), l'abonné est déconnecté dès le délai d'envoi dépassé.
+     */
+    public SseEmitter abonnerSse(Collection<Long> gareIds, long delaiMs) {
+        SseEmitter emitter = new SseEmitter(delaiMs);
+        Abonne abonne = new Abonne(gares(gareIds), tampon) {
+            @Override
+            protected void envoyer(Message message) throws IOException {
+                if (message == BATTEMENT) {
+                    emitter.send(SseEmitter.event().comment("battement"));
+                } else {
+                    emitter.send(SseEmitter.event().name(message.type()).data(message.json(), MediaType.APPLICATION_JSON));
+                }
+            }
+
+            @Override
+            protected void fermer(String raison) {
+                emitter.complete();
+            }
+        };
+        abonner(abonne);
+        emitter.onCompletion(() -> desabonner(abonne));
+        emitter.onTimeout(() -> desabonner(abonne));
+        emitter.onError(e -> desabonner(abonne));
+        return emitter;
+    }
+
+    // ============ ÉVÉNEMENTS ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrain(TrainEvent event) {
+        Train train = event.getTrain();
+        Set<Long> gareIds = new HashSet<>();
+        gareIds.add(train.getGareDepart().getId());
+        gareIds.add(train.getGareArrivee().getId());
+        if (event.getAvant() != null) {
+            // Les gares quittées par le train doivent aussi le retirer de leur tableau
+            gareIds.add(event.getAvant().getGareDepart().getId());
+            gareIds.add(event.getAvant().getGareArrivee().getId());
+        }
+        if (!abonnesPresents(gareIds)) {
+            return;
+        }
+        Map<String, Object> delta = new LinkedHashMap<>();
+        switch (event.getType()) {
+            case CREATION -> delta.put("type", "TRAIN_CREE");
+            case MISE_A_JOUR -> delta.put("type", "TRAIN_MODIFIE");
+            case SUPPRESSION -> delta.put("type", "TRAIN_SUPPRIME");
+        }
+        delta.put("trainId", train.getId());
+        if (event.getType() == TrainEvent.Type.SUPPRESSION) {
+            delta.put("gares", gareIds);
+        } else {
+            delta.put("train", TrainVue.de(train));
+        }
+        publier(gareIds, delta);
+    }
+
+    // Un message par gare abonnée, avec les seuls trains qui la desservent
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainsImportes(TrainsImportesEvent event) {
+        if (abonnes.isEmpty()) {
+            return;
+        }
+        Map<Long, List<TrainVue>> parGareImportee = new HashMap<>();
+        for (Train train : event.getTrains()) {
+            Long depart = train.getGareDepart().getId();
+            Long arrivee = train.getGareArrivee().getId();
+            if (!parGare.containsKey(depart) && !parGare.containsKey(arrivee)) {
+                continue;
+            }
+            TrainVue vue = TrainVue.de(train);
+            if (parGare.containsKey(depart)) {
+                parGareImportee.computeIfAbsent(depart, g -> new ArrayList<>()).add(vue);
+            }
+            if (parGare.containsKey(arrivee) && !arrivee.equals(depart)) {
+                parGareImportee.computeIfAbsent(arrivee, g -> new ArrayList<>()).add(vue);
+            }
+        }
+        parGareImportee.forEach((gareId, vues) -> {
+            Map<String, Object> delta = new LinkedHashMap<>();
+            delta.put("type", "TRAINS_IMPORTES");
+            delta.put("gareId", gareId);
+            delta.put("trains", vues);
+            publier(Set.of(gareId), delta);
+        });
+    }
+
+    // Un message par gare abonnée, avec les ids de ses trains supprimés
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainsSupprimes(TrainsSupprimesEvent event) {
+        if (abonnes.isEmpty()) {
+            return;
+        }
+        event.getTrainsParGare().forEach((gareId, trainIds) -> {
+            if (!parGare.containsKey(gareId)) {
+                return;
+            }
+            Map<String, Object> delta = new LinkedHashMap<>();
+            delta.put("type", "TRAINS_SUPPRIMES");
+            delta.put("gareId", gareId);
+            delta.put("trainIds", trainIds);
+            publier(Set.of(gareId), delta);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGare(GareEvent event) {
+        if (event.getType() == GareEvent.Type.CREATION || !parGare.containsKey(event.getGareId())) {
+            return;
+        }
+        Map<String, Object> delta = new LinkedHashMap<>();
+        if (event.getType() == GareEvent.Type.SUPPRESSION) {
+            delta.put("type", "GARE_SUPPRIMEE");
+            delta.put("gareId", event.getGareId());
+        } else {
+            Gare gare = event.getGare();
+            delta.put("type", "GARE_MODIFIEE");
+            delta.put("gare", GareVue.de(gare));
+        }
+        publier(Set.of(event.getGareId()), delta);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGaresModifiees(GaresModifieesEvent event) {
+        for (GareEvent modification : event.getModifications()) {
+            onGare(modification);
+        }
+    }
+
+    // Garde les connexions ouvertes à travers les proxys et détecte les clients partis
+    @Scheduled(fixedRate = 30_000, initialDelay = 30_000)
+    public void battement() {
+        for (Abonne abonne : abonnes) {
+            distribuer(abonne, BATTEMENT);
+        }
+    }
+
+    // Abonnés dont l'envoi en cours dépasse le délai : déconnectés comme trop lents
+    @Scheduled(fixedDelayString = "${rahal.diffusion.surveillance-ms:1000}")
+    public void surveillerEnvois() {
+        long limite = System.nanoTime() - envoiTimeoutMs * 1_000_000;
+        for (Abonne abonne : abonnes) {
+            long depuis = abonne.envoiDepuis;
+            if (depuis != 0 && depuis - limite < 0) {
+                ejecter(abonne, "Client bloqué : envoi en cours depuis plus de " + envoiTimeoutMs + " ms");
+            }
+        }
+    }
+
+    // ============ DISTRIBUTION ============
+
+    private boolean abonnesPresents(Set<Long> gareIds) {
+        for (Long gareId : gareIds) {
+            if (parGare.containsKey(gareId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publier(Set<Long> gareIds, Map<String, Object> delta) {
+        // Un abonné à plusieurs des gares touchées ne reçoit le delta qu'une fois
+        Set<Abonne> destinataires = new HashSet<>();
+        for (Long gareId : gareIds) {
+            Set<Abonne> ensemble = parGare.get(gareId);
+            if (ensemble != null) {
+                destinataires.addAll(ensemble);
+            }
+        }
+        if (destinataires.isEmpty()) {
+            return;
+        }
+        delta.put("horodatage", LocalDateTime.now());
+        Message message;
+        try {
+            message = new Message((String) delta.get("type"), objectMapper.writeValueAsString(delta));
+        } catch (JsonProcessingException e) {
+            log.error("Delta non sérialisable : {}", delta.get("type"), e);
+            return;
+        }
+        for (Abonne abonne : destinataires) {
+            distribuer(abonne, message);
+        }
+    }
+
+    private void distribuer(Abonne abonne, Message message) {
+        if (abonne.ferme) {
+            return;
+        }
+        if (!abonne.file.offer(message)) {
+            ejecter(abonne, "Client trop lent : " + tampon + " messages en attente");
+            return;
+        }
+        planifier(abonne);
+    }
+
+    private void planifier(Abonne abonne) {
+        if (abonne.planifie.compareAndSet(false, true)) {
+            try {
+                envoi.execute(() -> vider(abonne));
+            } catch (RejectedExecutionException e) {
+                abonne.planifie.set(false);
+            }
+        }
+    }
+
+    private void vider(Abonne abonne) {
+        try {
+            Message message;
+            while (!abonne.ferme && (message = abonne.file.poll()) != null) {
+                abonne.envoiDepuis = System.nanoTime();
+                try {
+                    abonne.envoyer(message);
+                } finally {
+                    abonne.envoiDepuis = 0;
+                }
+                messagesEnvoyes.increment();
+            }
+        } catch (Exception e) {
+            // Connexion fermée côté client : rien à lui signaler
+            desabonner(abonne);
+            return;
+        } finally {
+            abonne.planifie.set(false);
+        }
+        // Un message a pu arriver entre le dernier poll et la remise à false
+        if (!abonne.ferme && !abonne.file.isEmpty()) {
+            planifier(abonne);
+        }
+    }
+
+    private void ejecter(Abonne abonne, String raison) {
+        if (abonne.ferme) {
+            return;
+        }
+        desabonner(abonne);
+        abonnesEjectes.increment();
+        log.debug("Abonné déconnecté : {}", raison);
+        // Ni sur le thread qui publie, ni sur le thread d'envoi (peut-être bloqué par ce même client)
+        try {
+            fermeture.execute(() -> abonne.fermer(raison));
+        } catch (RejectedExecutionException e) {
+            // Arrêt en cours
+        }
+    }
+
+    // ============ STATISTIQUES ============
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("rahal.diffusion.abonnes", nombreAbonnes, AtomicInteger::get)
+                .description("Abonnés SSE et WebSocket connectés").register(registry);
+        Gauge.builder("rahal.diffusion.gares.suivies", parGare, Map::size).register(registry);
+        FunctionCounter.builder("rahal.diffusion.messages", messagesEnvoyes, LongAdder::sum)
+                .description("Deltas envoyés aux abonnés").register(registry);
+        FunctionCounter.builder("rahal.diffusion.ejections", abonnesEjectes, LongAdder::sum)
+                .description("Abonnés déconnectés comme trop lents").register(registry);
+    }
+
+    public Map<String, Object> statistiques() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("abonnes", nombreAbonnes.get());
+        stats.put("maxAbonnes", maxAbonnes);
+        stats.put("garesSuivies", parGare.size());
+        stats.put("tampon", tampon);
+        stats.put("messagesEnvoyes", messagesEnvoyes.sum());
+        stats.put("abonnesEjectes", abonnesEjectes.sum());
+        return stats;
+    }
+}
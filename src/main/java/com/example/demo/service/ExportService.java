@@ -0,0 +1,310 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Export de l'horaire complet en flux (NDJSON ou CSV).
+ *
+ * Les lignes sont lues par un curseur JDBC en avant seulement et écrites
+ * au fil de l'eau : aucune entité n'est chargée, la mémoire reste constante
+ * quel que soit le nombre de trains.
+ */
+@Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+
+        public String getExtension() { return extension; }
+
+        public static Format lire(String valeur) {
+            if (valeur == null || valeur.isEmpty() || valeur.equalsIgnoreCase("ndjson")) {
+                return NDJSON;
+            }
+            if (valeur.equalsIgnoreCase("csv")) {
+                return CSV;
+            }
+            throw new RuntimeException("Format d'export non supporté: " + valeur);
+        }
+    }
+
+    private static final String SELECT =
+            "SELECT t.id, t.numero_train, t.heure_depart, t.heure_arrivee, " +
+            "gd.id, gd.nom, gd.ville, gd.nombre_voies, gd.est_ouverte, gd.temps_correspondance, gd.version, " +
+            "ga.id, ga.nom, ga.ville, ga.nombre_voies, ga.est_ouverte, ga.temps_correspondance, ga.version, " +
+            "t.duree_minutes, t.version " +
+            "FROM train t " +
+            "JOIN gare gd ON gd.id = t.gare_depart_id " +
+            "JOIN gare ga ON ga.id = t.gare_arrivee_id";
+
+    private static final String ENTETE_CSV =
+            "id,numeroTrain,heureDepart,heureArrivee," +
+            "gareDepartId,gareDepartNom,gareDepartVille," +
+            "gareArriveeId,gareArriveeNom,gareArriveeVille,dureeMinutes";
+
+    // Vider le tampon régulièrement pour que le client reçoive les données au fil de l'eau
+    private static final int LIGNES_PAR_FLUSH = 1000;
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${rahal.export.fetch-size:5000}")
+    private int fetchSize;
+
+    public void exporter(Format format, OutputStream out,
+                         String villeDepart, String villeArrivee,
+                         LocalDateTime dateDebut, LocalDateTime dateFin,
+                         Integer dureeMaxMinutes, Boolean gareOuverteSeulement) throws IOException {
+
+        // Mêmes filtres que TrainService.rechercheAvancee, appliqués en SQL
+        StringBuilder sql = new StringBuilder(SELECT).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (villeDepart != null && !villeDepart.isEmpty()) {
+            sql.append(" AND gd.ville = ?");
+            params.add(villeDepart);
+        }
+        if (villeArrivee != null && !villeArrivee.isEmpty()) {
+            sql.append(" AND ga.ville = ?");
+            params.add(villeArrivee);
+        }
+        if (dateDebut != null) {
+            sql.append(" AND t.heure_depart >= ?");
+            params.add(Timestamp.valueOf(dateDebut));
+        }
+        if (dateFin != null) {
+            sql.append(" AND t.heure_depart <= ?");
+            params.add(Timestamp.valueOf(dateFin));
+        }
+        if (dureeMaxMinutes != null && dureeMaxMinutes > 0) {
+            sql.append(" AND t.duree_minutes <= ?");
+            params.add(dureeMaxMinutes);
+        }
+        if (gareOuverteSeulement != null && gareOuverteSeulement) {
+            sql.append(" AND gd.est_ouverte = TRUE AND ga.est_ouverte = TRUE");
+        }
+        sql.append(" ORDER BY t.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        Ecrivain ecrivain = format == Format.CSV ? new EcrivainCsv(writer) : new EcrivainNdjson(writer);
+        ecrivain.debut();
+        writer.flush();
+
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                        sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(tailleLecture(connection));
+                for (int i = 0; i < params.size(); i++) {
+                    Object param = params.get(i);
+                    if (param instanceof Timestamp timestamp) {
+                        ps.setTimestamp(i + 1, timestamp, utc());
+                    } else {
+                        ps.setObject(i + 1, param);
+                    }
+                }
+                return ps;
+            }, new RowCallbackHandler() {
+                private long lignes;
+
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    try {
+                        ecrivain.ligne(rs);
+                        if (++lignes == 1 || lignes % LIGNES_PAR_FLUSH == 0) {
+                            writer.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Client déconnecté : on abandonne le curseur
+            throw e.getCause();
+        }
+        ecrivain.fin();
+        writer.flush();
+    }
+
+    // ============ FORMATS ============
+
+    private interface Ecrivain {
+        default void debut() throws IOException {}
+
+        void ligne(ResultSet rs) throws SQLException, IOException;
+
+        default void fin() throws IOException {}
+    }
+
+    /**
+     * Un objet JSON par ligne, avec la même forme que la sérialisation d'un Train.
+     */
+    private final class EcrivainNdjson implements Ecrivain {
+        private final Writer writer;
+        private final JsonGenerator json;
+
+        EcrivainNdjson(Writer writer) throws IOException {
+            this.writer = writer;
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            // Le flush par ligne ne doit vider que le générateur, pas le tampon de sortie
+            this.json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        }
+
+        @Override
+        public void ligne(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            json.writeStringField("numeroTrain", rs.getString(2));
+            json.writeStringField("heureDepart", date(rs, 3));
+            json.writeStringField("heureArrivee", date(rs, 4));
+            entier(rs, 19, "dureeMinutes");
+            json.writeNumberField("version", rs.getLong(20));
+            json.writeFieldName("gareDepart");
+            gare(rs, 5);
+            json.writeFieldName("gareArrivee");
+            gare(rs, 12);
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        private void gare(ResultSet rs, int colonne) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(colonne));
+            json.writeStringField("nom", rs.getString(colonne + 1));
+            json.writeStringField("ville", rs.getString(colonne + 2));
+            entier(rs, colonne + 3, "nombreVoies");
+            boolean ouverte = rs.getBoolean(colonne + 4);
+            if (rs.wasNull()) {
+                json.writeNullField("estOuverte");
+            } else {
+                json.writeBooleanField("estOuverte", ouverte);
+            }
+            entier(rs, colonne + 5, "tempsCorrespondance");
+            json.writeNumberField("version", rs.getLong(colonne + 6));
+            json.writeEndObject();
+        }
+
+        private void entier(ResultSet rs, int colonne, String champ) throws SQLException, IOException {
+            int valeur = rs.getInt(colonne);
+            if (rs.wasNull()) {
+                json.writeNullField(champ);
+            } else {
+                json.writeNumberField(champ, valeur);
+            }
+        }
+    }
+
+    private static final class EcrivainCsv implements Ecrivain {
+        private final Writer writer;
+
+        EcrivainCsv(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void debut() throws IOException {
+            writer.write(ENTETE_CSV);
+            writer.write('\n');
+        }
+
+        @Override
+        public void ligne(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            champ(rs.getString(2));
+            writer.write(',');
+            champ(date(rs, 3));
+            writer.write(',');
+            champ(date(rs, 4));
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong(5)));
+            writer.write(',');
+            champ(rs.getString(6));
+            writer.write(',');
+            champ(rs.getString(7));
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong(12)));
+            writer.write(',');
+            champ(rs.getString(13));
+            writer.write(',');
+            champ(rs.getString(14));
+            writer.write(',');
+            champ(rs.getString(19));
+            writer.write('\n');
+        }
+
+        // Échappement RFC 4180
+        private void champ(String valeur) throws IOException {
+            if (valeur == null) {
+                return;
+            }
+            if (valeur.indexOf(',') < 0 && valeur.indexOf('"') < 0
+                    && valeur.indexOf('\n') < 0 && valeur.indexOf('\r') < 0) {
+                writer.write(valeur);
+                return;
+            }
+            writer.write('"');
+            writer.write(valeur.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    // Réglage propre à cette requête (l'URL JDBC reste celle de toute l'application) :
+    // avec MySQL, Integer.MIN_VALUE lit le résultat en flux ligne à ligne au lieu de le
+    // charger en entier ; les autres pilotes lisent fetchSize lignes par aller-retour
+    private int tailleLecture(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().startsWith("MySQL") ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    // Même conversion qu'Hibernate avec hibernate.jdbc.time_zone=UTC
+    private static String date(ResultSet rs, int colonne) throws SQLException {
+        Timestamp date = rs.getTimestamp(colonne, utc());
+        return date == null ? null : ISO.format(date.toLocalDateTime());
+    }
+
+    private static Calendar utc() {
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+}
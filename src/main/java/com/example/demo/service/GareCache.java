@@ -0,0 +1,94 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.model.Gare;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cache en lecture des gares par id, borné en taille et en durée de vie.
+ * Les entrées touchées par une écriture sont invalidées après commit grâce
+ * aux {@link GareEvent}. Les listes (par ville, ouvertes) sont servies par
+ * {@link IndexGares}.
+ *
+ * Les objets renvoyés sont partagés entre les requêtes : ils ne doivent pas
+ * être modifiés, les écritures de GareService relisent la gare en base.
+ */
+@Component
+public class GareCache implements MeterBinder {
+
+    private final Cache<Long, Gare> parId;
+
+    public GareCache(@Value("${rahal.cache.gares.taille-max:10000}") long tailleMax,
+                     @Value("${rahal.cache.gares.ttl-secondes:600}") long ttlSecondes) {
+        this.parId = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(Duration.ofSeconds(ttlSecondes))
+                .recordStats()
+                .build();
+    }
+
+    // ============ LECTURE ============
+
+    public Optional<Gare> parId(Long id, Supplier<Optional<Gare>> chargement) {
+        // Une gare absente n'est pas mise en cache
+        return Optional.ofNullable(parId.get(id, cle -> chargement.get().orElse(null)));
+    }
+
+    // ============ INVALIDATION ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGare(GareEvent event) {
+        parId.invalidate(event.getGareId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGaresModifiees(GaresModifieesEvent event) {
+        for (GareEvent modification : event.getModifications()) {
+            onGare(modification);
+        }
+    }
+
+    public void vider() {
+        parId.invalidateAll();
+    }
+
+    // ============ STATISTIQUES ============
+
+    public Map<String, Object> statistiques() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("garesParId", decrire(parId.stats(), parId.estimatedSize()));
+        return stats;
+    }
+
+    // cache.gets{result=hit|miss}, cache.evictions... avec le tag cache=gares
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, parId, "gares");
+    }
+
+    private static Map<String, Object> decrire(CacheStats stats, long taille) {
+        Map<String, Object> resultat = new LinkedHashMap<>();
+        resultat.put("taille", taille);
+        resultat.put("hits", stats.hitCount());
+        resultat.put("misses", stats.missCount());
+        resultat.put("evictions", stats.evictionCount());
+        resultat.put("tauxHit", Math.round(stats.hitRate() * 10000.0) / 10000.0);
+        resultat.put("chargementMoyenMs", Math.round(stats.averageLoadPenalty() / 10_000.0) / 100.0);
+        return resultat;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Levée quand aucune gare ne porte l'id demandé (404 côté contrôleur).
+ */
+public class GareIntrouvableException extends RuntimeException {
+
+    public GareIntrouvableException(Long id) {
+        super("Gare non trouvée avec l'id: " + id);
+    }
+}
@@ -1,38 +1,127 @@
 package com.example.demo.service;
 
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
 import com.example.demo.model.Gare;
-import com.example.demo.model.Train;
 import com.example.demo.repository.GareRepository;
 import com.example.demo.repository.TrainRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
 
+/**
+ * Transaction en écriture par défaut (primaire) ; les lectures en base sont
+ * marquées readOnly, ce qui les envoie sur une réplique quand il y en a
+ * (RepliquesConfig). Les lectures servies par les index en mémoire sont hors
+ * transaction (NOT_SUPPORTED) : ni transaction ouverte, ni connexion prise au pool.
+ */
 @Service
 @Transactional
 public class GareService {
     
+    // Bornes utilisées quand aucune période n'est demandée (garde les requêtes sur index)
+    private static final LocalDateTime DEBUT_PERIODE = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime FIN_PERIODE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    
+    // Ids par UPDATE ensembliste (taille de la liste IN)
+    static final int TAILLE_LOT = 1000;
+    
+    private static final Set<String> CHAMPS_MODIFIABLES =
+            Set.of("nom", "ville", "nombreVoies", "estOuverte", "tempsCorrespondance");
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     @Autowired
     private GareRepository gareRepository;
     
     @Autowired
     private TrainRepository trainRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private GareCache gareCache;
+    
+    @Autowired
+    private StatistiquesGlobales statistiquesGlobales;
+    
+    @Autowired
+    private IndexRecherche indexRecherche;
+    
+    @Autowired
+    private IndexGares indexGares;
+    
+    @Autowired
+    private TableauxGares tableauxGares;
+    
+    @Autowired
+    private StatutsDifferes statutsDifferes;
+    
+    // Écritures qui vident d'abord les statuts différés : la transaction démarre après le vidage
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // Même gestionnaire en readOnly, pour les comptages lus après une gare prise sur la primaire
+    private TransactionTemplate lectureSeule;
+    
+    @PostConstruct
+    void preparerLectureSeule() {
+        lectureSeule = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        lectureSeule.setReadOnly(true);
+    }
+    
     // ============ CRUD METHODS ============
     
+    @Transactional(readOnly = true)
     public List<Gare> getAllGares() {
         return gareRepository.findAll();
     }
     
     public Gare getGareById(Long id) {
+        return trouverGare(id)
+                .orElseThrow(() -> new GareIntrouvableException(id));
+    }
+    
+    // Lecture via le cache : la gare renvoyée est une copie partagée, à ne pas modifier.
+    // Pas readOnly : un défaut de cache lu sur une réplique en retard y remettrait une gare périmée.
+    // Un statut en écriture différée (StatutsDifferes) est déjà visible ici.
+    public Optional<Gare> trouverGare(Long id) {
+        return gareCache.parId(id, () -> gareRepository.findById(id).map(GareService::copie))
+                .map(statutsDifferes::appliquer);
+    }
+    
+    // Les écritures relisent toujours la gare en base, jamais depuis le cache
+    private Gare chargerGare(Long id) {
         return gareRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Gare non trouvée avec l'id: " + id));
+                .orElseThrow(() -> new GareIntrouvableException(id));
     }
     
     public Gare createGare(Gare gare) {
@@ -43,37 +132,99 @@ public class GareService {
         if (gare.getNombreVoies() == null) {
             gare.setNombreVoies(1);
         }
-        return gareRepository.save(gare);
+        Gare saved = gareRepository.save(gare);
+        eventPublisher.publishEvent(new GareEvent(GareEvent.Type.CREATION, saved));
+        return saved;
     }
     
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Gare updateGare(Long id, Gare gareDetails) {
-        Gare gare = getGareById(id);
+        return updateGare(id, gareDetails, null);
+    }
+    
+    // versionAttendue (If-Match) : refusée si la gare a changé depuis que le client l'a lue ;
+    // une écriture concurrente entre la lecture et le commit est refusée par @Version
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Gare updateGare(Long id, Gare gareDetails, Long versionAttendue) {
+        statutsDifferes.ecrireAvant(List.of(id));
+        return transactionTemplate.execute(status -> ecrireGare(id, gareDetails, versionAttendue));
+    }
+    
+    private Gare ecrireGare(Long id, Gare gareDetails, Long versionAttendue) {
+        Gare gare = chargerGare(id);
+        if (versionAttendue != null && versionAttendue != gare.getVersion()) {
+            throw new OptimisticLockingFailureException("La gare " + id + " a été modifiée entre-temps (version "
+                    + gare.getVersion() + ")");
+        }
+        Gare avant = copie(gare);
         gare.setNom(gareDetails.getNom());
         gare.setVille(gareDetails.getVille());
         gare.setNombreVoies(gareDetails.getNombreVoies());
         gare.setEstOuverte(gareDetails.getEstOuverte());
-        return gareRepository.save(gare);
+        gare.setTempsCorrespondance(gareDetails.getTempsCorrespondance());
+        Gare saved = gareRepository.save(gare);
+        eventPublisher.publishEvent(new GareEvent(GareEvent.Type.MISE_A_JOUR, saved, avant));
+        return saved;
     }
     
-    public void deleteGare(Long id) {
-        Gare gare = getGareById(id);
-        gareRepository.delete(gare);
-    }
+    // Suppression : SuppressionService.supprimerGare (trains par lots, sans la cascade JPA)
     
     // ============ SEARCH & FILTER METHODS ============
     
+    // Filtres servis par l'index bitmap (IndexGares) : gares partagées, à ne pas modifier
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<Gare> getGaresByVille(String ville) {
-        return gareRepository.findByVille(ville);
+        return indexGares.lister(IndexGares.Filtre.ville(ville));
     }
     
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<Gare> getGaresOuvertes() {
-        return gareRepository.findByEstOuverteTrue();
+        return indexGares.lister(IndexGares.Filtre.ouvertes());
     }
     
+    @Transactional(readOnly = true)
     public List<Gare> getGaresByNom(String nom) {
         return gareRepository.findByNomContainingIgnoreCase(nom);
     }
     
+    // ============ PAGINATION PAR CLÉ ============
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PageCurseur<Gare> getGaresPage(Curseur curseur, int taille) {
+        return getGaresFiltrees(IndexGares.Filtre.AUCUN, curseur, taille);
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PageCurseur<Gare> getGaresByVillePage(String ville, Curseur curseur, int taille) {
+        return getGaresFiltrees(IndexGares.Filtre.ville(ville), curseur, taille);
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PageCurseur<Gare> getGaresFiltrees(IndexGares.Filtre filtre, Curseur curseur, int taille) {
+        return indexGares.page(filtre, curseur, taille);
+    }
+    
+    // Les ids viennent de l'index trigrammes ; le LIKE ne sert qu'avant son chargement
+    @Transactional(readOnly = true)
+    public PageCurseur<Gare> getGaresByNomPage(String nom, Curseur curseur, int taille) {
+        if (!indexRecherche.estCharge()) {
+            List<Gare> gares = gareRepository.pageParNom(nom, curseur.getId(), PageRequest.of(0, taille + 1));
+            return PageCurseur.de(gares, taille, Curseur::apres);
+        }
+        PageCurseur<Long> ids = indexRecherche.pageGares(nom, curseur, taille);
+        if (ids.getElements().isEmpty()) {
+            return new PageCurseur<>(List.of(), ids.getCurseurSuivant());
+        }
+        List<Gare> gares = new ArrayList<>(gareRepository.findAllById(ids.getElements()));
+        gares.sort(Comparator.comparing(Gare::getId));
+        return new PageCurseur<>(gares, ids.getCurseurSuivant());
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Map<String, Object>> autocompleterGares(String texte, Integer limite) {
+        return indexRecherche.autocompleterGares(texte, limite);
+    }
+    
     // ============ MISSING METHODS (ADD THESE) ============
     
     // 1. Créer plusieurs gares
@@ -87,58 +238,302 @@ public class GareService {
                 gare.setNombreVoies(1);
             }
         }
-        return gareRepository.saveAll(gares);
+        List<Gare> saved = gareRepository.saveAll(gares);
+        // Un seul événement pour le lot : les index ne se recopient qu'une fois
+        List<GareEvent> creations = new ArrayList<>(saved.size());
+        for (Gare gare : saved) {
+            creations.add(new GareEvent(GareEvent.Type.CREATION, gare));
+        }
+        eventPublisher.publishEvent(new GaresModifieesEvent(creations));
+        return saved;
     }
     
     // 2. Vérifier si une gare existe
+    @Transactional(readOnly = true)
     public boolean gareExists(Long id) {
         return gareRepository.existsById(id);
     }
     
     // 3. Compter le nombre total de gares
+    @Transactional(readOnly = true)
     public long countGares() {
         return gareRepository.count();
     }
     
     // 4. Gares avec plus de X voies
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<Gare> getGaresByMinVoies(Integer minVoies) {
-        List<Gare> allGares = getAllGares();
-        return allGares.stream()
-                .filter(gare -> gare.getNombreVoies() != null && gare.getNombreVoies() >= minVoies)
-                .collect(Collectors.toList());
+        return indexGares.lister(IndexGares.Filtre.minVoies(minVoies));
     }
     
     // 5. Mettre à jour le statut d'une gare
+    // Pas dans la transaction de la classe : le vidage des statuts différés (ecrireAvant)
+    // prend ses propres connexions et ne doit jamais attendre en en tenant une
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Gare updateGareStatus(Long id, Boolean estOuverte) {
-        Gare gare = getGareById(id);
+        statutsDifferes.ecrireAvant(List.of(id));
+        return transactionTemplate.execute(status -> ecrireStatut(id, estOuverte));
+    }
+    
+    private Gare ecrireStatut(Long id, Boolean estOuverte) {
+        Gare gare = chargerGare(id);
+        Gare avant = copie(gare);
         gare.setEstOuverte(estOuverte);
-        return gareRepository.save(gare);
+        Gare saved = gareRepository.save(gare);
+        eventPublisher.publishEvent(new GareEvent(GareEvent.Type.MISE_A_JOUR, saved, avant));
+        return saved;
+    }
+    
+    // ============ ÉCRITURES EN MASSE ============
+    
+    /**
+     * Ouvre ou ferme toutes les gares désignées par leurs ids, ou à défaut par le
+     * filtre, sans charger les entités : un UPDATE par lot de TAILLE_LOT ids puis
+     * la relecture des versions du lot, état précédent lu dans l'index des gares.
+     * Un seul GaresModifieesEvent pour le tout.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> changerStatutEnMasse(Collection<Long> ids, IndexGares.Filtre filtre, boolean estOuverte) {
+        statutsDifferes.ecrireAvant(ids);
+        return transactionTemplate.execute(status -> ecrireStatutEnMasse(ids, filtre, estOuverte));
+    }
+    
+    private Map<String, Object> ecrireStatutEnMasse(Collection<Long> ids, IndexGares.Filtre filtre, boolean estOuverte) {
+        long debut = System.currentTimeMillis();
+        List<Gare> cibles = ids != null ? indexGares.parIds(ids) : indexGares.lister(filtre);
+        List<Gare> aModifier = new ArrayList<>();
+        for (Gare gare : cibles) {
+            if (!Boolean.valueOf(estOuverte).equals(gare.getEstOuverte())) {
+                aModifier.add(copie(gare));
+            }
+        }
+        
+        List<GareEvent> modifications = new ArrayList<>(aModifier.size());
+        for (int from = 0; from < aModifier.size(); from += TAILLE_LOT) {
+            List<Gare> lot = aModifier.subList(from, Math.min(from + TAILLE_LOT, aModifier.size()));
+            List<Long> lotIds = lot.stream().map(Gare::getId).toList();
+            int modifiees = gareRepository.changerStatut(lotIds, estOuverte);
+            if (modifiees == lot.size() && versionsSuivantes(lot, lotIds)) {
+                for (Gare avant : lot) {
+                    Gare apres = copie(avant);
+                    apres.setEstOuverte(estOuverte);
+                    apres.setVersion(avant.getVersion() + 1);
+                    modifications.add(new GareEvent(GareEvent.Type.MISE_A_JOUR, apres, avant));
+                }
+            } else {
+                // L'index était en retard sur la base, ou une écriture concurrente est
+                // passée entre sa lecture et l'UPDATE : on publie l'état relu
+                Map<Long, Gare> parId = new HashMap<>();
+                for (Gare avant : lot) {
+                    parId.put(avant.getId(), avant);
+                }
+                for (Gare apres : gareRepository.findAllById(lotIds)) {
+                    modifications.add(new GareEvent(GareEvent.Type.MISE_A_JOUR, copie(apres), parId.get(apres.getId())));
+                }
+            }
+        }
+        if (!modifications.isEmpty()) {
+            eventPublisher.publishEvent(new GaresModifieesEvent(modifications));
+        }
+        
+        Map<String, Object> rapport = new LinkedHashMap<>();
+        rapport.put("estOuverte", estOuverte);
+        rapport.put("designees", cibles.size());
+        rapport.put("modifiees", modifications.size());
+        rapport.put("dejaDansCetEtat", cibles.size() - aModifier.size());
+        if (ids != null) {
+            Set<Long> introuvables = new HashSet<>(ids);
+            cibles.forEach(gare -> introuvables.remove(gare.getId()));
+            rapport.put("introuvables", introuvables);
+        }
+        rapport.put("dureeMs", System.currentTimeMillis() - debut);
+        return rapport;
+    }
+    
+    // Versions relues après l'UPDATE (sans charger les entités) : chacune doit suivre celle
+    // de l'index, sinon la gare a aussi changé ailleurs et la copie de l'index est périmée
+    private boolean versionsSuivantes(List<Gare> lot, List<Long> lotIds) {
+        Map<Long, Long> versions = new HashMap<>();
+        for (Object[] ligne : gareRepository.versions(lotIds)) {
+            versions.put((Long) ligne[0], (Long) ligne[1]);
+        }
+        for (Gare avant : lot) {
+            Long version = versions.get(avant.getId());
+            if (version == null || version != avant.getVersion() + 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * JSON Merge Patch (RFC 7396) : seuls les champs présents et réellement changés
+     * sont écrits, par un UPDATE ... WHERE id = ? AND version = ? sur l'état lu dans
+     * le cache, sans charger l'entité. Si le cache avait un commit de retard, on
+     * recommence une fois sur l'état relu en base (sauf If-Match, qui l'exige).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Gare patcherGare(Long id, Map<String, Object> patch, Long versionAttendue) {
+        statutsDifferes.ecrireAvant(List.of(id));
+        return transactionTemplate.execute(status -> ecrirePatch(id, patch, versionAttendue));
+    }
+    
+    private Gare ecrirePatch(Long id, Map<String, Object> patch, Long versionAttendue) {
+        Gare avant = copie(getGareById(id));
+        if (versionAttendue != null && versionAttendue != avant.getVersion()) {
+            avant = copie(chargerGare(id));
+            if (versionAttendue != avant.getVersion()) {
+                throw new OptimisticLockingFailureException("La gare " + id + " a été modifiée entre-temps (version "
+                        + avant.getVersion() + ")");
+            }
+        }
+        for (int essai = 0; ; essai++) {
+            Gare apres = copie(avant);
+            Map<String, Object> colonnes = appliquerPatch(patch, apres, avant);
+            if (colonnes.isEmpty()) {
+                return apres;
+            }
+            if (ecrireColonnes(id, avant.getVersion(), colonnes) == 1) {
+                apres.setVersion(avant.getVersion() + 1);
+                eventPublisher.publishEvent(new GareEvent(GareEvent.Type.MISE_A_JOUR, apres, avant));
+                return apres;
+            }
+            if (essai > 0 || versionAttendue != null) {
+                throw new OptimisticLockingFailureException("La gare " + id + " a été modifiée entre-temps");
+            }
+            avant = copie(chargerGare(id));
+        }
+    }
+    
+    // Applique le patch à "apres" et renvoie les colonnes dont la valeur change
+    private static Map<String, Object> appliquerPatch(Map<String, Object> patch, Gare apres, Gare avant) {
+        Map<String, Object> colonnes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> champ : patch.entrySet()) {
+            String nom = champ.getKey();
+            Object valeur = champ.getValue();
+            if (!CHAMPS_MODIFIABLES.contains(nom)) {
+                throw new IllegalArgumentException("Champ non modifiable : " + nom);
+            }
+            switch (nom) {
+                case "nom" -> apres.setNom(texteObligatoire(valeur, "Le nom de la gare est obligatoire"));
+                case "ville" -> apres.setVille(texteObligatoire(valeur, "La ville est obligatoire"));
+                case "nombreVoies" -> apres.setNombreVoies(entierPositif(valeur, "nombreVoies"));
+                case "tempsCorrespondance" -> apres.setTempsCorrespondance(entierPositif(valeur, "tempsCorrespondance"));
+                case "estOuverte" -> {
+                    if (!(valeur instanceof Boolean ouverte)) {
+                        throw new IllegalArgumentException("estOuverte doit valoir true ou false");
+                    }
+                    apres.setEstOuverte(ouverte);
+                }
+                default -> throw new IllegalStateException(nom);
+            }
+        }
+        ajouterSiChange(colonnes, "nom", avant.getNom(), apres.getNom());
+        ajouterSiChange(colonnes, "ville", avant.getVille(), apres.getVille());
+        ajouterSiChange(colonnes, "nombreVoies", avant.getNombreVoies(), apres.getNombreVoies());
+        ajouterSiChange(colonnes, "estOuverte", avant.getEstOuverte(), apres.getEstOuverte());
+        ajouterSiChange(colonnes, "tempsCorrespondance", avant.getTempsCorrespondance(), apres.getTempsCorrespondance());
+        return colonnes;
+    }
+    
+    private static void ajouterSiChange(Map<String, Object> colonnes, String nom, Object avant, Object apres) {
+        if (!Objects.equals(avant, apres)) {
+            colonnes.put(nom, apres);
+        }
+    }
+    
+    private static String texteObligatoire(Object valeur, String message) {
+        if (!(valeur instanceof String texte) || texte.trim().isEmpty()) {
+            throw new IllegalArgumentException(message);
+        }
+        return texte;
+    }
+    
+    // null efface la valeur (Merge Patch)
+    private static Integer entierPositif(Object valeur, String nom) {
+        if (valeur == null) {
+            return null;
+        }
+        if (!(valeur instanceof Integer entier) || entier < 0) {
+            throw new IllegalArgumentException(nom + " doit être un entier positif");
+        }
+        return entier;
+    }
+    
+    // Noms de colonnes issus de CHAMPS_MODIFIABLES uniquement : jamais du texte client dans le JPQL
+    private int ecrireColonnes(Long id, long version, Map<String, Object> colonnes) {
+        StringBuilder jpql = new StringBuilder("UPDATE Gare g SET g.version = g.version + 1");
+        for (String colonne : colonnes.keySet()) {
+            jpql.append(", g.").append(colonne).append(" = :").append(colonne);
+        }
+        jpql.append(" WHERE g.id = :id AND g.version = :version");
+        Query update = entityManager.createQuery(jpql.toString());
+        colonnes.forEach(update::setParameter);
+        return update.setParameter("id", id).setParameter("version", version).executeUpdate();
     }
     
     // 6. Gares par région (pour l'exemple, on utilise la ville comme région)
     // Vous pouvez adapter cette logique selon vos besoins
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<Gare> getGaresByRegion(String region) {
         // Pour l'exemple, on considère que la région = ville
         // Vous pouvez créer un champ "region" dans l'entité Gare si nécessaire
-        return gareRepository.findByVille(region);
+        return getGaresByVille(region);
+    }
+    
+    // ============ CACHE ============
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> getStatistiquesCache() {
+        return gareCache.statistiques();
+    }
+    
+    // Copie détachée des colonnes de la gare (sans les listes de trains)
+    static Gare copie(Gare gare) {
+        Gare copie = new Gare(gare.getNom(), gare.getVille(), gare.getNombreVoies(), gare.getEstOuverte());
+        copie.setId(gare.getId());
+        copie.setTempsCorrespondance(gare.getTempsCorrespondance());
+        copie.setVersion(gare.getVersion());
+        return copie;
+    }
+    
+    // ============ TABLEAU D'AFFICHAGE ============
+    
+    // Lu en mémoire (TableauxGares) : aucune requête, même rafraîchi en continu
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> getTableau(Long gareId, Integer limite) {
+        return tableauxGares.tableau(gareId, limite);
     }
     
     // ============ STATISTIQUES GARE ============
     
     public Map<String, Object> getStatistiquesGare(Long gareId) {
-        Gare gare = getGareById(gareId);
-        
-        // Get all trains for this station
-        List<Train> trains = trainRepository.findTrainsByGareId(gareId);
-        
-        // Calculate statistics
-        long trainsDepart = trains.stream()
-                .filter(t -> t.getGareDepart().getId().equals(gareId))
-                .count();
+        return getStatistiquesGare(gareId, null, null);
+    }
+    
+    // Comptages et histogramme calculés en SQL (GROUP BY), sans charger de Train.
+    // debut/fin (optionnels) bornent l'heure de départ, ou d'arrivée pour les arrivées.
+    // La gare est lue hors de la transaction readOnly (un défaut de cache relu sur une
+    // réplique en retard y remettrait une gare périmée) ; seuls les comptages y vont.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> getStatistiquesGare(Long gareId, LocalDateTime debut, LocalDateTime fin) {
+        Gare gare = transactionTemplate.execute(status -> getGareById(gareId));
+        return lectureSeule.execute(status -> statistiquesGare(gare, debut, fin));
+    }
+    
+    private Map<String, Object> statistiquesGare(Gare gare, LocalDateTime debut, LocalDateTime fin) {
+        Long gareId = gare.getId();
+        LocalDateTime borneDebut = debut != null ? debut : DEBUT_PERIODE;
+        LocalDateTime borneFin = fin != null ? fin : FIN_PERIODE;
+        if (!borneDebut.isBefore(borneFin)) {
+            throw new IllegalArgumentException("La date de début doit être avant la date de fin");
+        }
         
-        long trainsArrivee = trains.stream()
-                .filter(t -> t.getGareArrivee().getId().equals(gareId))
-                .count();
+        Map<Integer, Long> departuresByHour = departsParHeure(gareId, borneDebut, borneFin);
+        long trainsDepart = departuresByHour.values().stream().mapToLong(Long::longValue).sum();
+        long trainsArrivee = trainRepository.compterArrivees(gareId, borneDebut, borneFin);
+        // Un train qui part et arrive dans la même gare n'est compté qu'une fois dans totalTrains
+        long boucles = trainsDepart == 0 ? 0 : trainRepository.compterBoucles(gareId, borneDebut, borneFin);
         
         long totalTrains = trainsDepart + trainsArrivee;
         
@@ -148,60 +543,51 @@ public class GareService {
         stats.put("ville", gare.getVille());
         stats.put("nombreVoies", gare.getNombreVoies());
         stats.put("estOuverte", gare.getEstOuverte());
-        stats.put("totalTrains", trains.size());
+        stats.put("totalTrains", totalTrains - boucles);
         stats.put("trainsDepart", trainsDepart);
         stats.put("trainsArrivee", trainsArrivee);
         stats.put("traficTotal", totalTrains);
+        if (debut != null) {
+            stats.put("debut", debut);
+        }
+        if (fin != null) {
+            stats.put("fin", fin);
+        }
         
         // Additional metrics
-        if (!trains.isEmpty()) {
-            // Calculate peak hours (example)
-            Map<Integer, Long> departuresByHour = trains.stream()
-                .filter(t -> t.getGareDepart().getId().equals(gareId) && t.getHeureDepart() != null)
-                .collect(Collectors.groupingBy(
-                    t -> t.getHeureDepart().getHour(),
-                    Collectors.counting()
-                ));
-            
+        if (totalTrains > 0) {
             stats.put("departuresByHour", departuresByHour);
         }
         
         return stats;
     }
     
+    // Histogramme en heure locale (getHour() de heureDepart). La base stocke l'heure UTC
+    // (hibernate.jdbc.time_zone=UTC) : avec un décalage fixe en heures entières (JVM en UTC),
+    // le GROUP BY SQL suffit, décalé d'autant ; sinon (heure d'été, décalage non entier) le
+    // décalage dépend de chaque départ, relu en LocalDateTime et compté ici.
+    private Map<Integer, Long> departsParHeure(Long gareId, LocalDateTime debut, LocalDateTime fin) {
+        Map<Integer, Long> parHeure = new TreeMap<>();
+        ZoneRules regles = ZoneId.systemDefault().getRules();
+        int decalage = regles.getOffset(Instant.EPOCH).getTotalSeconds();
+        if (regles.isFixedOffset() && decalage % 3600 == 0) {
+            for (Object[] ligne : trainRepository.compterDepartsParHeure(gareId, debut, fin)) {
+                int heure = Math.floorMod(((Number) ligne[0]).intValue() + decalage / 3600, 24);
+                parHeure.put(heure, ((Number) ligne[1]).longValue());
+            }
+            return parHeure;
+        }
+        for (LocalDateTime depart : trainRepository.findHeuresDepart(gareId, debut, fin)) {
+            parHeure.merge(depart.getHour(), 1L, Long::sum);
+        }
+        return parHeure;
+    }
+    
     // ============ STATISTIQUES GLOBALES ============
     
+    // Compteurs tenus à jour en mémoire, voir StatistiquesGlobales
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Map<String, Object> getStatistiquesGlobales() {
-        List<Gare> gares = getAllGares();
-        
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalGares", gares.size());
-        stats.put("garesOuvertes", gares.stream().filter(Gare::getEstOuverte).count());
-        stats.put("garesFermees", gares.stream().filter(g -> !g.getEstOuverte()).count());
-        stats.put("totalVoies", gares.stream().mapToInt(Gare::getNombreVoies).sum());
-        
-        // Calculate average number of tracks
-        double moyenneVoies = gares.isEmpty() ? 0 : 
-            gares.stream().mapToInt(Gare::getNombreVoies).average().orElse(0);
-        stats.put("moyenneVoies", Math.round(moyenneVoies * 100.0) / 100.0);
-        
-        // Ville with most stations
-        Map<String, Long> garesParVille = gares.stream()
-                .collect(Collectors.groupingBy(Gare::getVille, Collectors.counting()));
-        
-        if (!garesParVille.isEmpty()) {
-            String villePlusGares = garesParVille.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse("N/A");
-            long nombreGares = garesParVille.get(villePlusGares);
-            stats.put("villePlusGares", villePlusGares);
-            stats.put("nombreGaresDansVille", nombreGares);
-        }
-        
-        // Distribution des gares par ville
-        stats.put("distributionParVille", garesParVille);
-        
-        return stats;
+        return statistiquesGlobales.lire();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,285 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Génère un réseau ferroviaire synthétique réaliste, pour reproduire localement
+ * des volumes de production.
+ *
+ * Les villes suivent une loi de Zipf (quelques grandes villes, beaucoup de petites),
+ * sont placées sur un plan de 1000 x 1000 km et ont d'autant plus de gares qu'elles
+ * sont grandes. Les plus grandes sont des hubs reliés entre eux ; chaque autre ville
+ * est reliée à son hub le plus proche (parfois au deuxième) et souvent à sa voisine.
+ * Les trains se répartissent sur les lignes selon la taille des villes, avec des
+ * pointes le matin et le soir ; leur durée découle de la distance.
+ *
+ * Le chargement passe par les chemins rapides existants : createMultipleGares
+ * puis ImportService (INSERT JDBC par lots), avec les événements habituels.
+ * Même graine, même réseau.
+ */
+@Component
+public class GenerateurReseau {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerateurReseau.class);
+
+    private static final int LOT_GARES = 1000;
+
+    private static final String[] DEBUTS = { "Mar", "Bel", "Val", "Mont", "Ro", "Lan", "Ver", "Cha", "Beau", "Ri",
+            "Sau", "Bour", "Cler", "Gre", "Li", "Tou", "Nan", "Or", "Pe", "Co" };
+    private static final String[] MILIEUX = { "", "sei", "lon", "don", "ti", "gne", "ber", "mo", "ve", "ra", "lan" };
+    private static final String[] FINS = { "lle", "ac", "ieu", "ville", "court", "mont", "ne", "y", "bourg", "ges", "nes" };
+    private static final String[] QUARTIERS = { "Centre", "Nord", "Sud", "Est", "Ouest", "Ville", "Haute", "Basse" };
+
+    @Autowired
+    private GareService gareService;
+
+    @Autowired
+    private ImportService importService;
+
+    /**
+     * Taille du réseau. Les trains circulent sur {@code jours} jours à partir de {@code debut}.
+     */
+    public record Parametres(int villes, int garesMinParVille, int garesMaxParVille, int hubs,
+                             int jours, int trainsParJour, LocalDate debut, long graine) {
+
+        public Parametres {
+            if (villes < 2) {
+                throw new IllegalArgumentException("Il faut au moins 2 villes");
+            }
+            if (garesMinParVille < 1 || garesMaxParVille < garesMinParVille) {
+                throw new IllegalArgumentException("Nombre de gares par ville invalide");
+            }
+            if (hubs < 1 || hubs > villes) {
+                throw new IllegalArgumentException("Le nombre de hubs doit être entre 1 et le nombre de villes");
+            }
+            if (jours < 1 || trainsParJour < 0) {
+                throw new IllegalArgumentException("Période ou nombre de trains invalide");
+            }
+            if (debut == null) {
+                throw new IllegalArgumentException("La date de début est obligatoire");
+            }
+        }
+    }
+
+    private record Ville(String nom, double poids, double x, double y, List<Long> gares) {}
+
+    private record Ligne(int a, int b, double poids, boolean grandeVitesse) {}
+
+    public Map<String, Object> generer(Parametres p) {
+        long debut = System.currentTimeMillis();
+        Random random = new Random(p.graine());
+
+        List<Ville> villes = creerVilles(p, random);
+        int gares = creerGares(p, villes, random);
+        List<Ligne> lignes = creerLignes(p, villes, random);
+        long trains = creerTrains(p, villes, lignes, random);
+
+        Map<String, Object> resultat = new LinkedHashMap<>();
+        resultat.put("villes", villes.size());
+        resultat.put("gares", gares);
+        resultat.put("lignes", lignes.size());
+        resultat.put("trains", trains);
+        resultat.put("debut", p.debut());
+        resultat.put("jours", p.jours());
+        resultat.put("dureeMs", System.currentTimeMillis() - debut);
+        log.info("Réseau synthétique généré : {}", resultat);
+        return resultat;
+    }
+
+    // ============ VILLES ET GARES ============
+
+    private List<Ville> creerVilles(Parametres p, Random random) {
+        List<Ville> villes = new ArrayList<>(p.villes());
+        Set<String> noms = new HashSet<>();
+        for (int rang = 0; rang < p.villes(); rang++) {
+            String nom = DEBUTS[random.nextInt(DEBUTS.length)] + MILIEUX[random.nextInt(MILIEUX.length)]
+                    + FINS[random.nextInt(FINS.length)];
+            if (!noms.add(nom)) {
+                nom = nom + "-" + QUARTIERS[random.nextInt(QUARTIERS.length)] + "-" + rang;
+                noms.add(nom);
+            }
+            villes.add(new Ville(nom, 1.0 / Math.pow(rang + 1, 0.9),
+                    random.nextDouble() * 1000, random.nextDouble() * 1000, new ArrayList<>()));
+        }
+        return villes;
+    }
+
+    private int creerGares(Parametres p, List<Ville> villes, Random random) {
+        List<Gare> lot = new ArrayList<>(LOT_GARES);
+        List<Ville> proprietaires = new ArrayList<>(LOT_GARES);
+        int total = 0;
+        for (int rang = 0; rang < villes.size(); rang++) {
+            Ville ville = villes.get(rang);
+            int nombre = p.garesMinParVille()
+                    + (int) Math.round((p.garesMaxParVille() - p.garesMinParVille()) * ville.poids());
+            boolean hub = rang < p.hubs();
+            for (int i = 0; i < nombre; i++) {
+                String nom = i == 0 ? "Gare de " + ville.nom()
+                        : ville.nom() + " " + (i <= QUARTIERS.length ? QUARTIERS[i - 1] : String.valueOf(i));
+                int voies = hub && i == 0 ? 10 + random.nextInt(21) : 2 + random.nextInt(hub ? 9 : 5);
+                lot.add(new Gare(nom, ville.nom(), voies, random.nextInt(100) >= 3));
+                proprietaires.add(ville);
+                if (lot.size() == LOT_GARES) {
+                    total += enregistrerGares(lot, proprietaires);
+                }
+            }
+        }
+        if (!lot.isEmpty()) {
+            total += enregistrerGares(lot, proprietaires);
+        }
+        return total;
+    }
+
+    private int enregistrerGares(List<Gare> lot, List<Ville> proprietaires) {
+        List<Gare> enregistrees = gareService.createMultipleGares(lot);
+        for (int i = 0; i < enregistrees.size(); i++) {
+            proprietaires.get(i).gares().add(enregistrees.get(i).getId());
+        }
+        int nombre = enregistrees.size();
+        lot.clear();
+        proprietaires.clear();
+        return nombre;
+    }
+
+    // ============ LIGNES ============
+
+    private List<Ligne> creerLignes(Parametres p, List<Ville> villes, Random random) {
+        List<Ligne> lignes = new ArrayList<>();
+        int hubs = p.hubs();
+        for (int a = 0; a < hubs; a++) {
+            for (int b = a + 1; b < hubs; b++) {
+                lignes.add(new Ligne(a, b, 3 * Math.sqrt(villes.get(a).poids() * villes.get(b).poids()), true));
+            }
+        }
+        for (int v = hubs; v < villes.size(); v++) {
+            int[] proches = plusProches(villes, v, 0, hubs, 2);
+            lignes.add(ligne(villes, v, proches[0]));
+            if (proches.length > 1 && random.nextDouble() < 0.3) {
+                lignes.add(ligne(villes, v, proches[1]));
+            }
+            if (random.nextDouble() < 0.5) {
+                int[] voisine = plusProches(villes, v, hubs, villes.size(), 1);
+                if (voisine.length > 0) {
+                    lignes.add(ligne(villes, v, voisine[0]));
+                }
+            }
+        }
+        return lignes;
+    }
+
+    private static Ligne ligne(List<Ville> villes, int a, int b) {
+        return new Ligne(a, b, Math.sqrt(villes.get(a).poids() * villes.get(b).poids()), false);
+    }
+
+    /** Les n villes de [de, jusqua[ les plus proches de la ville v (v exclue). */
+    private static int[] plusProches(List<Ville> villes, int v, int de, int jusqua, int n) {
+        Ville origine = villes.get(v);
+        return IntStream.range(de, jusqua)
+                .filter(i -> i != v)
+                .boxed()
+                .sorted((i, j) -> Double.compare(distance(origine, villes.get(i)), distance(origine, villes.get(j))))
+                .limit(n)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static double distance(Ville a, Ville b) {
+        return Math.hypot(a.x() - b.x(), a.y() - b.y());
+    }
+
+    // ============ TRAINS ============
+
+    private long creerTrains(Parametres p, List<Ville> villes, List<Ligne> lignes, Random random) {
+        if (lignes.isEmpty() || p.trainsParJour() == 0) {
+            return 0;
+        }
+        double[] cumul = new double[lignes.size()];
+        double somme = 0;
+        for (int i = 0; i < lignes.size(); i++) {
+            somme += lignes.get(i).poids();
+            cumul[i] = somme;
+        }
+
+        long inseres = 0;
+        long numero = 0;
+        List<Train> lot = new ArrayList<>(ImportService.TAILLE_MAX_IMPORT);
+        for (int jour = 0; jour < p.jours(); jour++) {
+            LocalDateTime minuit = p.debut().plusDays(jour).atStartOfDay();
+            for (int t = 0; t < p.trainsParJour(); t++) {
+                int index = Arrays.binarySearch(cumul, random.nextDouble() * somme);
+                Ligne ligne = lignes.get(Math.min(index < 0 ? -index - 1 : index, lignes.size() - 1));
+                boolean aller = random.nextBoolean();
+                Ville depart = villes.get(aller ? ligne.a() : ligne.b());
+                Ville arrivee = villes.get(aller ? ligne.b() : ligne.a());
+
+                double vitesse = ligne.grandeVitesse() ? 220 : 110;
+                long minutes = Math.max(10, Math.round(distance(depart, arrivee) / vitesse * 60) + 5 + random.nextInt(11));
+                LocalDateTime heure = minuit.plusMinutes(minuteDeDepart(random));
+                String prefixe = ligne.grandeVitesse() ? "TGV" : (minutes > 120 ? "IC" : "TER");
+
+                lot.add(new Train(prefixe + (100000 + numero++), heure, heure.plusMinutes(minutes),
+                        reference(choisirGare(depart, random)), reference(choisirGare(arrivee, random))));
+                if (lot.size() == ImportService.TAILLE_MAX_IMPORT) {
+                    inseres += importer(lot);
+                }
+            }
+        }
+        if (!lot.isEmpty()) {
+            inseres += importer(lot);
+        }
+        return inseres;
+    }
+
+    /** Pointe du matin (~7h30), pointe du soir (~17h45), le reste réparti de 5h30 à 23h. */
+    private static int minuteDeDepart(Random random) {
+        double tirage = random.nextDouble();
+        double minute;
+        if (tirage < 0.35) {
+            minute = 7.5 * 60 + random.nextGaussian() * 50;
+        } else if (tirage < 0.65) {
+            minute = 17.75 * 60 + random.nextGaussian() * 60;
+        } else {
+            minute = 5.5 * 60 + random.nextDouble() * 17.5 * 60;
+        }
+        return (int) Math.max(0, Math.min(24 * 60 - 1, minute));
+    }
+
+    // La gare principale prend la majorité des trains de la ville
+    private static Long choisirGare(Ville ville, Random random) {
+        List<Long> gares = ville.gares();
+        if (gares.size() == 1 || random.nextDouble() < 0.6) {
+            return gares.get(0);
+        }
+        return gares.get(1 + random.nextInt(gares.size() - 1));
+    }
+
+    private static Gare reference(Long id) {
+        Gare gare = new Gare();
+        gare.setId(id);
+        return gare;
+    }
+
+    private long importer(List<Train> lot) {
+        Map<String, Object> resultat = importService.importerTrains(lot);
+        lot.clear();
+        Object inseres = resultat.get("inseres");
+        return inseres instanceof Number n ? n.longValue() : 0;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.demo.service;
+
+import com.example.demo.event.TrainsImportesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Import en masse de trains.
+ *
+ * Les ids IDENTITY empêchent Hibernate de regrouper les INSERT : on passe donc
+ * directement par JDBC, un INSERT multi-lignes par lot (sans dépendre d'un réglage
+ * du pilote comme rewriteBatchedStatements). Les gares référencées sont résolues en une
+ * seule requête et chaque ligne invalide est signalée sans bloquer les autres.
+ */
+@Service
+public class ImportService {
+
+    public static final int TAILLE_MAX_IMPORT = 100_000;
+
+    static final int TAILLE_LOT = 1000;
+
+    private static final String INSERT =
+            "INSERT INTO train (numero_train, heure_depart, heure_arrivee, duree_minutes, gare_depart_id, gare_arrivee_id, version) " +
+            "VALUES ";
+
+    private static final String VALEURS = "(?, ?, ?, ?, ?, ?, 0)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public Map<String, Object> importerTrains(List<Train> trains) {
+        if (trains == null || trains.isEmpty()) {
+            throw new RuntimeException("La liste des trains ne peut pas être vide");
+        }
+        if (trains.size() > TAILLE_MAX_IMPORT) {
+            throw new RuntimeException("Un import est limité à " + TAILLE_MAX_IMPORT + " trains");
+        }
+        long debut = System.nanoTime();
+
+        // 1. Toutes les gares référencées en une requête
+        Set<Long> gareIds = new HashSet<>();
+        for (Train train : trains) {
+            if (train.getGareDepart() != null && train.getGareDepart().getId() != null) {
+                gareIds.add(train.getGareDepart().getId());
+            }
+            if (train.getGareArrivee() != null && train.getGareArrivee().getId() != null) {
+                gareIds.add(train.getGareArrivee().getId());
+            }
+        }
+        Map<Long, Gare> gares = new HashMap<>();
+        for (Gare gare : gareRepository.findAllById(gareIds)) {
+            gares.put(gare.getId(), gare);
+        }
+
+        // 2. Numéros déjà présents en base (unicité de numero_train)
+        Set<String> existants = numerosExistants(trains);
+
+        // 3. Validation ligne par ligne
+        List<Map<String, Object>> erreurs = new ArrayList<>();
+        List<Integer> valides = new ArrayList<>();
+        Set<String> vus = new HashSet<>();
+        for (int i = 0; i < trains.size(); i++) {
+            Train train = trains.get(i);
+            String erreur = valider(train, gares, existants, vus);
+            if (erreur != null) {
+                erreurs.add(erreur(i, train, erreur));
+                continue;
+            }
+            train.setId(null);
+            train.setGareDepart(gares.get(train.getGareDepart().getId()));
+            train.setGareArrivee(gares.get(train.getGareArrivee().getId()));
+            valides.add(i);
+        }
+
+        // 4. Insertion par lots ; un lot en échec est rejoué ligne par ligne
+        List<Train> inseres = new ArrayList<>(valides.size());
+        for (int from = 0; from < valides.size(); from += TAILLE_LOT) {
+            List<Integer> indices = valides.subList(from, Math.min(from + TAILLE_LOT, valides.size()));
+            List<Train> lot = new ArrayList<>(indices.size());
+            for (int index : indices) {
+                lot.add(trains.get(index));
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> insererLot(lot));
+                inseres.addAll(lot);
+            } catch (DataAccessException e) {
+                for (int k = 0; k < lot.size(); k++) {
+                    Train train = lot.get(k);
+                    train.setId(null);
+                    try {
+                        insererLot(List.of(train));
+                        inseres.add(train);
+                    } catch (DataAccessException ex) {
+                        erreurs.add(erreur(indices.get(k), train, "Insertion refusée: " + ex.getMostSpecificCause().getMessage()));
+                    }
+                }
+            }
+        }
+
+        if (!inseres.isEmpty()) {
+            eventPublisher.publishEvent(new TrainsImportesEvent(inseres));
+        }
+
+        double secondes = (System.nanoTime() - debut) / 1_000_000_000.0;
+        Map<String, Object> rapport = new LinkedHashMap<>();
+        rapport.put("recus", trains.size());
+        rapport.put("inseres", inseres.size());
+        rapport.put("rejetes", erreurs.size());
+        rapport.put("dureeMs", Math.round(secondes * 1000));
+        rapport.put("trainsParSeconde", secondes > 0 ? Math.round(inseres.size() / secondes) : inseres.size());
+        rapport.put("erreurs", erreurs);
+        return rapport;
+    }
+
+    private Set<String> numerosExistants(List<Train> trains) {
+        List<String> numeros = new ArrayList<>(trains.size());
+        for (Train train : trains) {
+            if (train.getNumeroTrain() != null) {
+                numeros.add(train.getNumeroTrain());
+            }
+        }
+        Set<String> existants = new HashSet<>();
+        for (int from = 0; from < numeros.size(); from += TAILLE_LOT) {
+            existants.addAll(trainRepository.findNumerosExistants(
+                    numeros.subList(from, Math.min(from + TAILLE_LOT, numeros.size()))));
+        }
+        return existants;
+    }
+
+    private String valider(Train train, Map<Long, Gare> gares, Set<String> existants, Set<String> vus) {
+        if (train.getNumeroTrain() == null || train.getNumeroTrain().trim().isEmpty()) {
+            return "Le numéro de train est obligatoire";
+        }
+        if (train.getHeureDepart() == null || train.getHeureArrivee() == null) {
+            return "Les heures de départ/arrivée ne sont pas définies";
+        }
+        if (train.getHeureDepart().isAfter(train.getHeureArrivee())) {
+            return "L'heure de départ doit être avant l'heure d'arrivée";
+        }
+        if (train.getGareDepart() == null || !gares.containsKey(train.getGareDepart().getId())) {
+            return "Gare de départ non trouvée";
+        }
+        if (train.getGareArrivee() == null || !gares.containsKey(train.getGareArrivee().getId())) {
+            return "Gare d'arrivée non trouvée";
+        }
+        if (existants.contains(train.getNumeroTrain())) {
+            return "Le numéro de train existe déjà";
+        }
+        if (!vus.add(train.getNumeroTrain())) {
+            return "Numéro de train en double dans l'import";
+        }
+        return null;
+    }
+
+    private void insererLot(List<Train> lot) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            String sql = INSERT + String.join(", ", Collections.nCopies(lot.size(), VALEURS));
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int p = 0;
+                for (Train train : lot) {
+                    ps.setString(++p, train.getNumeroTrain());
+                    // Même conversion qu'Hibernate avec hibernate.jdbc.time_zone=UTC
+                    ps.setTimestamp(++p, Timestamp.valueOf(train.getHeureDepart()), utc());
+                    ps.setTimestamp(++p, Timestamp.valueOf(train.getHeureArrivee()), utc());
+                    ps.setInt(++p, Train.dureeMinutes(train.getHeureDepart(), train.getHeureArrivee()));
+                    ps.setLong(++p, train.getGareDepart().getId());
+                    ps.setLong(++p, train.getGareArrivee().getId());
+                }
+                ps.executeUpdate();
+                try (ResultSet cles = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (cles.next() && i < lot.size()) {
+                        lot.get(i++).setId(cles.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static Calendar utc() {
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+
+    private static Map<String, Object> erreur(int index, Train train, String message) {
+        Map<String, Object> erreur = new LinkedHashMap<>();
+        erreur.put("index", index);
+        erreur.put("numeroTrain", train.getNumeroTrain());
+        erreur.put("erreur", message);
+        return erreur;
+    }
+}
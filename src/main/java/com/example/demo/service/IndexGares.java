@@ -0,0 +1,431 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.repository.GareRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Index bitmap de toutes les gares, pour filtrer sans base de données.
+ *
+ * Chaque gare occupe une position (attribuée dans l'ordre croissant des ids).
+ * Les attributs à peu de valeurs (statut, nombre de voies) ont un {@link BitSet}
+ * par valeur ; ceux à forte cardinalité (ville, nom) une liste triée de positions
+ * par valeur, pour ne pas allouer un bitmap plein par ville. Un filtre se résout
+ * par des ET/OU sur des bitmaps, puis on parcourt les bits à partir du curseur :
+ * l'ordre des positions étant celui des ids, la pagination par clé est directe.
+ *
+ * Les positions libérées par une suppression sont récupérées par une
+ * reconstruction quand elles dépassent la moitié du tableau.
+ *
+ * Comme le {@link MoteurHoraire}, les lectures se font sans verrou sur un état
+ * publié par un champ volatile ; chaque mise à jour en publie une copie modifiée.
+ */
+@Component
+public class IndexGares {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexGares.class);
+
+    /**
+     * Critères combinables, tous optionnels : voies dans [minVoies, maxVoies],
+     * statut, ville parmi {@code villes}, nom commençant par {@code prefixeNom}.
+     */
+    public record Filtre(Integer minVoies, Integer maxVoies, Boolean ouverte,
+                         Collection<String> villes, String prefixeNom) {
+
+        public static final Filtre AUCUN = new Filtre(null, null, null, null, null);
+
+        public static Filtre ville(String ville) {
+            return new Filtre(null, null, null, List.of(ville), null);
+        }
+
+        public static Filtre ouvertes() {
+            return new Filtre(null, null, true, null, null);
+        }
+
+        public static Filtre minVoies(Integer minVoies) {
+            return new Filtre(minVoies, null, null, null, null);
+        }
+
+        /** Aucun critère effectif : le filtre sélectionne toutes les gares. */
+        public boolean estVide() {
+            return minVoies == null && maxVoies == null && ouverte == null
+                    && (villes == null || villes.isEmpty()) && (prefixeNom == null || prefixeNom.isEmpty());
+        }
+    }
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    // État publié, jamais modifié ensuite : les lectures ne prennent aucun verrou.
+    // Les mises à jour (sous "this") travaillent sur une copie puis la publient.
+    private volatile Etat etat;
+
+    // ============ CHARGEMENT ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void charger() {
+        long debut = System.currentTimeMillis();
+        List<Gare> toutes = new ArrayList<>();
+        for (Gare gare : gareRepository.findAll()) {
+            toutes.add(GareService.copie(gare));
+        }
+        etat = reconstruire(toutes);
+        log.info("Index des gares chargé : {} gares en {} ms", toutes.size(), System.currentTimeMillis() - debut);
+    }
+
+    private static Etat reconstruire(List<Gare> toutes) {
+        toutes.sort(Comparator.comparing(Gare::getId));
+        Etat nouveau = new Etat(Math.max(16, toutes.size() + toutes.size() / 4));
+        for (Gare gare : toutes) {
+            nouveau.ajouter(gare);
+        }
+        return nouveau;
+    }
+
+    private Etat assurerCharge() {
+        Etat courant = etat;
+        if (courant == null) {
+            charger();
+            courant = etat;
+        }
+        return courant;
+    }
+
+    // ============ MISE À JOUR ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGare(GareEvent event) {
+        Etat courant = etat;
+        if (courant == null) {
+            return;
+        }
+        etat = appliquer(new Etat(courant), event);
+    }
+
+    // Une seule copie pour tout le lot
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGaresModifiees(GaresModifieesEvent event) {
+        Etat courant = etat;
+        if (courant == null) {
+            return;
+        }
+        Etat copie = new Etat(courant);
+        for (GareEvent modification : event.getModifications()) {
+            copie = appliquer(copie, modification);
+        }
+        etat = copie;
+    }
+
+    // Modifie la copie non publiée, ou en reconstruit une autre
+    private static Etat appliquer(Etat copie, GareEvent event) {
+        Long id = event.getGareId();
+        Integer position = copie.positions.get(id);
+        if (position != null) {
+            copie.retirer(position);
+        }
+        if (event.getType() == GareEvent.Type.SUPPRESSION) {
+            if (copie.taille - copie.presentes.cardinality() > copie.taille / 2) {
+                return reconstruire(copie.vivantes());
+            }
+            return copie;
+        }
+        Gare gare = GareService.copie(event.getGare());
+        if (position != null) {
+            copie.indexer(position, gare);
+        } else if (copie.taille > 0 && id < copie.ids[copie.taille - 1]) {
+            // Commit hors ordre : l'ordre des positions doit rester celui des ids
+            List<Gare> toutes = copie.vivantes();
+            toutes.add(gare);
+            return reconstruire(toutes);
+        } else {
+            copie.ajouter(gare);
+        }
+        return copie;
+    }
+
+    // ============ FILTRES ============
+
+    /**
+     * Gares du filtre, triées par id, à partir du curseur. Les objets renvoyés
+     * sont partagés : ils ne doivent pas être modifiés.
+     */
+    public PageCurseur<Gare> page(Filtre filtre, Curseur curseur, int taille) {
+        Etat courant = assurerCharge();
+        BitSet selection = courant.selection(filtre);
+        List<Gare> lignes = new ArrayList<>(Math.min(taille + 1, 1024));
+        for (int p = selection.nextSetBit(courant.premierePosition(curseur.getId()));
+             p >= 0 && lignes.size() <= taille; p = selection.nextSetBit(p + 1)) {
+            lignes.add(courant.gares[p]);
+        }
+        return PageCurseur.de(lignes, taille, Curseur::apres);
+    }
+
+    public List<Gare> lister(Filtre filtre) {
+        Etat courant = assurerCharge();
+        BitSet selection = courant.selection(filtre);
+        List<Gare> resultat = new ArrayList<>(selection.cardinality());
+        for (int p = selection.nextSetBit(0); p >= 0; p = selection.nextSetBit(p + 1)) {
+            resultat.add(courant.gares[p]);
+        }
+        return resultat;
+    }
+
+    /** Gares de ces ids, triées par id ; les ids inconnus sont ignorés. Objets partagés. */
+    public List<Gare> parIds(Collection<Long> ids) {
+        Etat courant = assurerCharge();
+        List<Gare> resultat = new ArrayList<>(ids.size());
+        for (Long id : new TreeSet<>(ids)) {
+            Integer position = courant.positions.get(id);
+            if (position != null && courant.gares[position] != null) {
+                resultat.add(courant.gares[position]);
+            }
+        }
+        return resultat;
+    }
+
+    // ============ ÉTAT ============
+
+    /**
+     * Tableaux, bitmaps et listes de positions d'une version de l'index. La copie
+     * d'une mise à jour duplique les tableaux et les tables ; les bitmaps par nombre
+     * de voies et les listes de positions restent partagés et sont remplacés (jamais
+     * modifiés) quand la mise à jour les touche.
+     */
+    private static final class Etat {
+        // Copies détachées par position (null = position libérée)
+        private Gare[] gares;
+        private long[] ids;
+        private int taille;
+        private final Map<Long, Integer> positions;
+
+        private final BitSet presentes;
+        private final BitSet ouvertes;
+        private final TreeMap<Integer, BitSet> parVoies;
+        private final Map<String, Positions> parVille;
+        private final TreeMap<String, Positions> parNom;
+
+        Etat(int capacite) {
+            gares = new Gare[capacite];
+            ids = new long[capacite];
+            positions = new HashMap<>();
+            presentes = new BitSet();
+            ouvertes = new BitSet();
+            parVoies = new TreeMap<>();
+            parVille = new HashMap<>();
+            parNom = new TreeMap<>();
+        }
+
+        Etat(Etat source) {
+            gares = source.gares.clone();
+            ids = source.ids.clone();
+            taille = source.taille;
+            positions = new HashMap<>(source.positions);
+            presentes = (BitSet) source.presentes.clone();
+            ouvertes = (BitSet) source.ouvertes.clone();
+            parVoies = new TreeMap<>(source.parVoies);
+            parVille = new HashMap<>(source.parVille);
+            parNom = new TreeMap<>(source.parNom);
+        }
+
+        void ajouter(Gare gare) {
+            if (taille == gares.length) {
+                gares = Arrays.copyOf(gares, taille * 2);
+                ids = Arrays.copyOf(ids, taille * 2);
+            }
+            int position = taille++;
+            ids[position] = gare.getId();
+            positions.put(gare.getId(), position);
+            indexer(position, gare);
+        }
+
+        void indexer(int position, Gare gare) {
+            gares[position] = gare;
+            presentes.set(position);
+            if (Boolean.TRUE.equals(gare.getEstOuverte())) {
+                ouvertes.set(position);
+            }
+            if (gare.getNombreVoies() != null) {
+                BitSet bits = parVoies.get(gare.getNombreVoies());
+                bits = bits == null ? new BitSet() : (BitSet) bits.clone();
+                bits.set(position);
+                parVoies.put(gare.getNombreVoies(), bits);
+            }
+            parVille.compute(cleVille(gare.getVille()), (cle, liste) -> Positions.de(liste).avec(position));
+            parNom.compute(IndexRecherche.normaliser(gare.getNom()), (cle, liste) -> Positions.de(liste).avec(position));
+        }
+
+        // La position reste attribuée à l'id : une mise à jour la réutilise
+        void retirer(int position) {
+            Gare gare = gares[position];
+            if (gare == null) {
+                return;
+            }
+            gares[position] = null;
+            presentes.clear(position);
+            ouvertes.clear(position);
+            if (gare.getNombreVoies() != null) {
+                BitSet bits = (BitSet) parVoies.get(gare.getNombreVoies()).clone();
+                bits.clear(position);
+                if (bits.isEmpty()) {
+                    parVoies.remove(gare.getNombreVoies());
+                } else {
+                    parVoies.put(gare.getNombreVoies(), bits);
+                }
+            }
+            effacer(parVille, cleVille(gare.getVille()), position);
+            effacer(parNom, IndexRecherche.normaliser(gare.getNom()), position);
+        }
+
+        private static void effacer(Map<String, Positions> listes, String cle, int position) {
+            Positions liste = listes.get(cle);
+            if (liste == null) {
+                return;
+            }
+            Positions reste = liste.sans(position);
+            if (reste.estVide()) {
+                listes.remove(cle);
+            } else {
+                listes.put(cle, reste);
+            }
+        }
+
+        List<Gare> vivantes() {
+            List<Gare> resultat = new ArrayList<>(presentes.cardinality());
+            for (int p = presentes.nextSetBit(0); p >= 0; p = presentes.nextSetBit(p + 1)) {
+                resultat.add(gares[p]);
+            }
+            return resultat;
+        }
+
+        BitSet selection(Filtre filtre) {
+            Integer min = filtre.minVoies();
+            Integer max = filtre.maxVoies();
+            if ((min != null && min < 0) || (max != null && max < 0)) {
+                throw new IllegalArgumentException("Le nombre de voies doit être positif");
+            }
+            if (min != null && max != null && min > max) {
+                throw new IllegalArgumentException("minVoies doit être inférieur ou égal à maxVoies");
+            }
+
+            BitSet resultat = (BitSet) presentes.clone();
+            if (filtre.ouverte() != null) {
+                if (filtre.ouverte()) {
+                    resultat.and(ouvertes);
+                } else {
+                    resultat.andNot(ouvertes);
+                }
+            }
+            if (filtre.villes() != null && !filtre.villes().isEmpty()) {
+                BitSet villes = new BitSet();
+                for (String ville : filtre.villes()) {
+                    Positions liste = parVille.get(cleVille(ville));
+                    if (liste != null) {
+                        liste.marquer(villes);
+                    }
+                }
+                resultat.and(villes);
+            }
+            if (min != null || max != null) {
+                BitSet voies = new BitSet();
+                for (BitSet bits : parVoies.subMap(
+                        min == null ? Integer.MIN_VALUE : min, true,
+                        max == null ? Integer.MAX_VALUE : max, true).values()) {
+                    voies.or(bits);
+                }
+                resultat.and(voies);
+            }
+            if (filtre.prefixeNom() != null && !filtre.prefixeNom().isEmpty()) {
+                String prefixe = IndexRecherche.normaliser(filtre.prefixeNom());
+                BitSet noms = new BitSet();
+                for (Positions liste : parNom.subMap(prefixe, true, prefixe + Character.MAX_VALUE, false).values()) {
+                    liste.marquer(noms);
+                }
+                resultat.and(noms);
+            }
+            return resultat;
+        }
+
+        /** Première position dont l'id est > apresId (les ids croissent avec les positions). */
+        int premierePosition(long apresId) {
+            int bas = 0, haut = taille;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (ids[milieu] <= apresId) bas = milieu + 1; else haut = milieu;
+            }
+            return bas;
+        }
+    }
+
+    // Même comparaison que la collation MySQL : sans casse ni accents
+    private static String cleVille(String ville) {
+        return IndexRecherche.normaliser(ville);
+    }
+
+    /** Liste triée et immuable de positions, pour les valeurs portées par peu de gares. */
+    private static final class Positions {
+        static final Positions VIDE = new Positions(new int[0]);
+
+        private final int[] valeurs;
+
+        private Positions(int[] valeurs) {
+            this.valeurs = valeurs;
+        }
+
+        static Positions de(Positions liste) {
+            return liste == null ? VIDE : liste;
+        }
+
+        Positions avec(int position) {
+            int i = Arrays.binarySearch(valeurs, position);
+            if (i >= 0) {
+                return this;
+            }
+            i = -i - 1;
+            int[] copie = new int[valeurs.length + 1];
+            System.arraycopy(valeurs, 0, copie, 0, i);
+            copie[i] = position;
+            System.arraycopy(valeurs, i, copie, i + 1, valeurs.length - i);
+            return new Positions(copie);
+        }
+
+        Positions sans(int position) {
+            int i = Arrays.binarySearch(valeurs, position);
+            if (i < 0) {
+                return this;
+            }
+            int[] copie = new int[valeurs.length - 1];
+            System.arraycopy(valeurs, 0, copie, 0, i);
+            System.arraycopy(valeurs, i + 1, copie, i, valeurs.length - i - 1);
+            return new Positions(copie);
+        }
+
+        boolean estVide() {
+            return valeurs.length == 0;
+        }
+
+        void marquer(BitSet bits) {
+            for (int valeur : valeurs) {
+                bits.set(valeur);
+            }
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.event.TrainEvent;
+import com.example.demo.event.TrainsImportesEvent;
+import com.example.demo.event.TrainsSupprimesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Index trigrammes en mémoire sur le nom des gares et le numéro des trains.
+ *
+ * Remplace les LIKE '%x%' de /api/gares/recherche et /api/trains/search (aucun
+ * index SQL ne peut les servir) et alimente l'autocomplétion. Les textes sont
+ * normalisés comme la collation MySQL (minuscules, sans accents) puis découpés
+ * en trigrammes ; chaque début de mot a en plus deux trigrammes de bord pour
+ * répondre aux préfixes d'une ou deux lettres. Les candidats sont toujours
+ * revérifiés sur le texte complet.
+ *
+ * Tenu à jour après commit par les mêmes événements que le {@link MoteurHoraire}.
+ */
+@Component
+public class IndexRecherche {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexRecherche.class);
+
+    public static final int LIMITE_DEFAUT = 10;
+    public static final int LIMITE_MAX = 50;
+
+    private static final Comparator<Entree> PAR_ID = Comparator.comparingLong(Entree::id);
+    private static final Comparator<Entree> PAR_CLE =
+            Comparator.comparingLong(Entree::cle).thenComparingLong(Entree::id);
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    private volatile IndexTrigrammes gares = new IndexTrigrammes();
+    private volatile IndexTrigrammes trains = new IndexTrigrammes();
+    // Gares de chaque train, pour retirer les trains supprimés en cascade (protégé par "this")
+    private final Map<Long, long[]> garesDesTrains = new HashMap<>();
+    private volatile boolean charge;
+
+    // ============ CHARGEMENT ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void charger() {
+        long debut = System.currentTimeMillis();
+        IndexTrigrammes nouvellesGares = new IndexTrigrammes();
+        for (Gare gare : gareRepository.findAll()) {
+            nouvellesGares.indexer(entreeGare(gare));
+        }
+        IndexTrigrammes nouveauxTrains = new IndexTrigrammes();
+        garesDesTrains.clear();
+        for (Object[] ligne : trainRepository.findNumeros()) {
+            Long id = (Long) ligne[0];
+            nouveauxTrains.indexer(entreeTrain(id, (String) ligne[1], (LocalDateTime) ligne[2]));
+            garesDesTrains.put(id, new long[] { (Long) ligne[3], (Long) ligne[4] });
+        }
+        gares = nouvellesGares;
+        trains = nouveauxTrains;
+        charge = true;
+        log.info("Index de recherche chargé : {} gares, {} trains en {} ms",
+                nouvellesGares.taille(), nouveauxTrains.taille(), System.currentTimeMillis() - debut);
+    }
+
+    public boolean estCharge() {
+        return charge;
+    }
+
+    // ============ MISE À JOUR ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGare(GareEvent event) {
+        Long gareId = event.getGareId();
+        if (event.getType() != GareEvent.Type.SUPPRESSION) {
+            gares.indexer(entreeGare(event.getGare()));
+            return;
+        }
+        gares.retirer(gareId);
+        // Les trains de la gare ont été supprimés par cascade
+        garesDesTrains.entrySet().removeIf(e -> {
+            boolean lie = e.getValue()[0] == gareId || e.getValue()[1] == gareId;
+            if (lie) {
+                trains.retirer(e.getKey());
+            }
+            return lie;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGaresModifiees(GaresModifieesEvent event) {
+        for (GareEvent modification : event.getModifications()) {
+            onGare(modification);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrain(TrainEvent event) {
+        Long id = event.getTrainId();
+        if (event.getType() == TrainEvent.Type.SUPPRESSION) {
+            trains.retirer(id);
+            garesDesTrains.remove(id);
+            return;
+        }
+        indexerTrain(event.getTrain());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrainsImportes(TrainsImportesEvent event) {
+        for (Train train : event.getTrains()) {
+            indexerTrain(train);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrainsSupprimes(TrainsSupprimesEvent event) {
+        for (Long id : event.getTrainIds()) {
+            trains.retirer(id);
+            garesDesTrains.remove(id);
+        }
+    }
+
+    private void indexerTrain(Train train) {
+        trains.indexer(entreeTrain(train.getId(), train.getNumeroTrain(), train.getHeureDepart()));
+        garesDesTrains.put(train.getId(),
+                new long[] { train.getGareDepart().getId(), train.getGareArrivee().getId() });
+    }
+
+    private static Entree entreeGare(Gare gare) {
+        return new Entree(gare.getId(), gare.getNom(), normaliser(gare.getNom()), gare.getVille(), 0L);
+    }
+
+    // La clé de tri des trains est l'heure de départ (secondes UTC), comme le tri par heure du curseur
+    private static Entree entreeTrain(Long id, String numero, LocalDateTime heureDepart) {
+        long cle = heureDepart == null ? Long.MIN_VALUE : MoteurHoraire.secondes(heureDepart);
+        return new Entree(id, numero, normaliser(numero), null, cle);
+    }
+
+    // ============ RECHERCHE PAR SOUS-CHAÎNE ============
+
+    /**
+     * Ids des gares dont le nom contient {@code nom}, page par page (tri par id).
+     */
+    public PageCurseur<Long> pageGares(String nom, Curseur curseur, int taille) {
+        List<Entree> trouvees = gares.chercher(nom, e -> e.id() > curseur.getId(), PAR_ID, taille + 1);
+        return page(trouvees, taille, Curseur.Tri.ID);
+    }
+
+    /**
+     * Ids des trains dont le numéro contient {@code numero}, triés par id ou par heure de départ.
+     */
+    public PageCurseur<Long> pageTrains(String numero, Curseur curseur, int taille) {
+        List<Entree> trouvees;
+        if (curseur.getTri() == Curseur.Tri.ID) {
+            trouvees = trains.chercher(numero, e -> e.id() > curseur.getId(), PAR_ID, taille + 1);
+        } else {
+            long heure = MoteurHoraire.secondes(curseur.getHeureDepart());
+            long apresId = curseur.getId();
+            trouvees = trains.chercher(numero,
+                    e -> e.cle() > heure || (e.cle() == heure && e.id() > apresId), PAR_CLE, taille + 1);
+        }
+        return page(trouvees, taille, curseur.getTri());
+    }
+
+    // Le curseur suivant vient de l'index : une ligne disparue entre-temps ne coupe pas la pagination
+    private static PageCurseur<Long> page(List<Entree> trouvees, int taille, Curseur.Tri tri) {
+        List<Entree> retenues = trouvees.size() > taille ? trouvees.subList(0, taille) : trouvees;
+        List<Long> ids = new ArrayList<>(retenues.size());
+        for (Entree entree : retenues) {
+            ids.add(entree.id());
+        }
+        String suivant = null;
+        if (trouvees.size() > taille) {
+            Entree derniere = retenues.get(taille - 1);
+            suivant = Curseur.apres(derniere.id(), heure(derniere.cle()), tri).encoder();
+        }
+        return new PageCurseur<>(ids, suivant);
+    }
+
+    // ============ AUTOCOMPLÉTION ============
+
+    /**
+     * Suggestions classées : nom exact, puis préfixe du nom, puis préfixe d'un mot,
+     * puis simple sous-chaîne ; à rang égal, les noms les plus courts d'abord.
+     */
+    public List<Map<String, Object>> autocompleterGares(String texte, Integer limite) {
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (Entree entree : gares.suggerer(texte, borner(limite))) {
+            Map<String, Object> suggestion = new LinkedHashMap<>();
+            suggestion.put("id", entree.id());
+            suggestion.put("nom", entree.texte());
+            suggestion.put("ville", entree.complement());
+            suggestions.add(suggestion);
+        }
+        return suggestions;
+    }
+
+    public List<Map<String, Object>> autocompleterTrains(String texte, Integer limite) {
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (Entree entree : trains.suggerer(texte, borner(limite))) {
+            Map<String, Object> suggestion = new LinkedHashMap<>();
+            suggestion.put("id", entree.id());
+            suggestion.put("numeroTrain", entree.texte());
+            suggestion.put("heureDepart", heure(entree.cle()));
+            suggestions.add(suggestion);
+        }
+        return suggestions;
+    }
+
+    public static int borner(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return LIMITE_DEFAUT;
+        }
+        return Math.min(limite, LIMITE_MAX);
+    }
+
+    private static LocalDateTime heure(long cle) {
+        return cle == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(cle, 0, ZoneOffset.UTC);
+    }
+
+    // ============ NORMALISATION ============
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    // Hors de tout texte normalisé : marque le bord gauche d'un mot
+    private static final char BORD = '\u0002';
+
+    static String normaliser(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        return ACCENTS.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Un mot commence après un séparateur, ou au passage lettres/chiffres ("TGV6001" -> "tgv", "6001")
+    private static boolean debutDeMot(String texte, int i) {
+        char c = texte.charAt(i);
+        if (!Character.isLetterOrDigit(c)) {
+            return false;
+        }
+        if (i == 0) {
+            return true;
+        }
+        char precedent = texte.charAt(i - 1);
+        return !Character.isLetterOrDigit(precedent) || Character.isDigit(precedent) != Character.isDigit(c);
+    }
+
+    /** 0 : égal, 1 : préfixe du texte, 2 : préfixe d'un mot, 3 : sous-chaîne, -1 : absent. */
+    static int rang(String normalise, String requete) {
+        int i = normalise.indexOf(requete);
+        if (i < 0) {
+            return -1;
+        }
+        if (i == 0) {
+            return normalise.length() == requete.length() ? 0 : 1;
+        }
+        for (; i >= 0; i = normalise.indexOf(requete, i + 1)) {
+            if (debutDeMot(normalise, i)) {
+                return 2;
+            }
+        }
+        return 3;
+    }
+
+    private static long trigramme(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static Set<Long> trigrammes(String texte) {
+        Set<Long> resultat = new HashSet<>();
+        for (int i = 0; i + 3 <= texte.length(); i++) {
+            resultat.add(trigramme(texte.charAt(i), texte.charAt(i + 1), texte.charAt(i + 2)));
+        }
+        for (int i = 0; i < texte.length(); i++) {
+            if (debutDeMot(texte, i)) {
+                resultat.add(trigramme(BORD, BORD, texte.charAt(i)));
+                if (i + 1 < texte.length()) {
+                    resultat.add(trigramme(BORD, texte.charAt(i), texte.charAt(i + 1)));
+                }
+            }
+        }
+        return resultat;
+    }
+
+    // ============ STRUCTURES INTERNES ============
+
+    /**
+     * Texte indexé : {@code complement} est renvoyé tel quel dans les suggestions,
+     * {@code cle} sert de tri secondaire (heure de départ des trains).
+     */
+    record Entree(long id, String texte, String normalise, String complement, long cle) {}
+
+    /**
+     * Listes d'ids par trigramme. Les écritures sont sérialisées par l'appelant ;
+     * les lectures sont sans verrou et peuvent manquer une écriture en cours.
+     */
+    static final class IndexTrigrammes {
+        private final Map<Long, Entree> entrees = new ConcurrentHashMap<>();
+        private final Map<Long, Set<Long>> listes = new ConcurrentHashMap<>();
+
+        int taille() {
+            return entrees.size();
+        }
+
+        void indexer(Entree entree) {
+            retirer(entree.id());
+            entrees.put(entree.id(), entree);
+            for (long t : trigrammes(entree.normalise())) {
+                listes.computeIfAbsent(t, k -> ConcurrentHashMap.newKeySet()).add(entree.id());
+            }
+        }
+
+        void retirer(long id) {
+            Entree ancienne = entrees.remove(id);
+            if (ancienne == null) {
+                return;
+            }
+            for (long t : trigrammes(ancienne.normalise())) {
+                Set<Long> ids = listes.get(t);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        listes.remove(t);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Les {@code n} premières entrées (selon {@code ordre}) dont le texte contient
+         * la requête et qui passent {@code filtre}.
+         */
+        List<Entree> chercher(String texte, Predicate<Entree> filtre, Comparator<Entree> ordre, int n) {
+            String requete = normaliser(texte);
+            PriorityQueue<Entree> meilleures = new PriorityQueue<>(ordre.reversed());
+            for (Long id : candidats(requete, false)) {
+                Entree entree = entrees.get(id);
+                if (entree == null || !filtre.test(entree) || !entree.normalise().contains(requete)) {
+                    continue;
+                }
+                garder(meilleures, entree, ordre, n);
+            }
+            return trier(meilleures, ordre);
+        }
+
+        List<Entree> suggerer(String texte, int n) {
+            String requete = normaliser(texte == null ? "" : texte.trim());
+            if (requete.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, Integer> rangs = new HashMap<>();
+            Comparator<Entree> ordre = Comparator.<Entree>comparingInt(e -> rangs.get(e.id()))
+                    .thenComparingInt(e -> e.normalise().length())
+                    .thenComparing(Entree::normalise)
+                    .thenComparingLong(Entree::id);
+            PriorityQueue<Entree> meilleures = new PriorityQueue<>(ordre.reversed());
+            for (Long id : candidats(requete, true)) {
+                Entree entree = entrees.get(id);
+                if (entree == null) {
+                    continue;
+                }
+                int rang = rang(entree.normalise(), requete);
+                if (rang < 0) {
+                    continue;
+                }
+                rangs.put(entree.id(), rang);
+                if (!garder(meilleures, entree, ordre, n)) {
+                    rangs.remove(entree.id());
+                }
+            }
+            return trier(meilleures, ordre);
+        }
+
+        /**
+         * Liste la plus courte parmi les trigrammes de la requête. En dessous de trois
+         * caractères on passe par les trigrammes de bord (préfixes de mots) ou, pour
+         * une sous-chaîne quelconque, par toutes les entrées.
+         */
+        private Iterable<Long> candidats(String requete, boolean prefixe) {
+            if (requete.length() < 3) {
+                if (!prefixe || requete.isEmpty()) {
+                    return entrees.keySet();
+                }
+                long bord = requete.length() == 1
+                        ? trigramme(BORD, BORD, requete.charAt(0))
+                        : trigramme(BORD, requete.charAt(0), requete.charAt(1));
+                return listes.getOrDefault(bord, Set.of());
+            }
+            Set<Long> plusCourte = null;
+            for (int i = 0; i + 3 <= requete.length(); i++) {
+                Set<Long> ids = listes.get(trigramme(requete.charAt(i), requete.charAt(i + 1), requete.charAt(i + 2)));
+                if (ids == null) {
+                    return Set.of();
+                }
+                if (plusCourte == null || ids.size() < plusCourte.size()) {
+                    plusCourte = ids;
+                }
+            }
+            return plusCourte;
+        }
+
+        // Tas borné à n : la racine est la pire entrée retenue
+        private static boolean garder(PriorityQueue<Entree> tas, Entree entree, Comparator<Entree> ordre, int n) {
+            if (tas.size() < n) {
+                tas.add(entree);
+                return true;
+            }
+            if (ordre.compare(entree, tas.peek()) >= 0) {
+                return false;
+            }
+            tas.poll();
+            tas.add(entree);
+            return true;
+        }
+
+        private static List<Entree> trier(PriorityQueue<Entree> tas, Comparator<Entree> ordre) {
+            List<Entree> resultat = new ArrayList<>(tas);
+            resultat.sort(ordre);
+            return resultat;
+        }
+    }
+}
@@ -0,0 +1,667 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.event.TrainEvent;
+import com.example.demo.event.TrainsImportesEvent;
+import com.example.demo.event.TrainsSupprimesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Moteur horaire résident : tous les trains sont gardés en mémoire dans des
+ * tableaux primitifs triés par heure de départ, avec une liste de positions
+ * par gare de départ et par gare d'arrivée.
+ *
+ * Les lectures sont sans verrou : elles travaillent sur un {@link Etat}
+ * immuable (base compactée + petite surcouche des écritures récentes).
+ * Les écritures arrivent par les événements {@link TrainEvent} / {@link GareEvent}
+ * et la base est recompactée quand la surcouche dépasse {@link #SEUIL_COMPACTION}.
+ * Chaque écriture publie aussi la vue {@link Connexions} du planificateur, qui ne
+ * coûte que la surcouche : le tableau complet n'est refait qu'à la recompaction.
+ */
+@Component
+public class MoteurHoraire {
+
+    private static final Logger log = LoggerFactory.getLogger(MoteurHoraire.class);
+
+    static final int SEUIL_COMPACTION = 4096;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    // Métadonnées des gares utilisées par les filtres
+    private final Map<Long, GareInfo> gares = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> garesParVille = new ConcurrentHashMap<>();
+
+    // Source de vérité pour les recompactions (protégée par "this")
+    private final Map<Long, Horaire> horaires = new HashMap<>();
+    // Numéro dense de chaque gare rencontrée, jamais réattribué avant un rechargement (protégé par "this")
+    private final Map<Long, Integer> numerosGares = new HashMap<>();
+
+    private volatile Etat etat = Etat.VIDE;
+    private volatile Connexions connexions = Connexions.VIDE;
+
+    // ============ CHARGEMENT ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void charger() {
+        long debut = System.currentTimeMillis();
+        gares.clear();
+        garesParVille.clear();
+        numerosGares.clear();
+        for (Gare gare : gareRepository.findAll()) {
+            indexerGare(gare);
+        }
+        horaires.clear();
+        for (Object[] ligne : trainRepository.findHoraires()) {
+            Horaire h = new Horaire(
+                    (Long) ligne[0],
+                    secondes((LocalDateTime) ligne[1]),
+                    secondes((LocalDateTime) ligne[2]),
+                    (Long) ligne[3],
+                    (Long) ligne[4]);
+            horaires.put(h.id, h);
+        }
+        compacter();
+        publierConnexions(true);
+        log.info("Moteur horaire chargé : {} trains, {} gares en {} ms",
+                horaires.size(), gares.size(), System.currentTimeMillis() - debut);
+    }
+
+    // ============ MISE À JOUR ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrain(TrainEvent event) {
+        Long id = event.getTrainId();
+        if (event.getType() == TrainEvent.Type.SUPPRESSION) {
+            if (horaires.remove(id) != null) {
+                appliquer(Collections.emptyList(), Set.of(id));
+                publierConnexions(false);
+            }
+            return;
+        }
+        Horaire h = horaire(event.getTrain());
+        horaires.put(id, h);
+        appliquer(Set.of(h), Set.of(id));
+        publierConnexions(false);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrainsImportes(TrainsImportesEvent event) {
+        List<Horaire> ajouts = new ArrayList<>(event.getTrains().size());
+        Set<Long> ids = new HashSet<>();
+        for (Train train : event.getTrains()) {
+            Horaire h = horaire(train);
+            horaires.put(h.id, h);
+            ajouts.add(h);
+            ids.add(h.id);
+        }
+        if (!ajouts.isEmpty()) {
+            appliquer(ajouts, ids);
+            publierConnexions(false);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrainsSupprimes(TrainsSupprimesEvent event) {
+        Set<Long> ids = new HashSet<>();
+        for (Long id : event.getTrainIds()) {
+            if (horaires.remove(id) != null) {
+                ids.add(id);
+            }
+        }
+        if (!ids.isEmpty()) {
+            appliquer(Collections.emptyList(), ids);
+            publierConnexions(false);
+        }
+    }
+
+    private static Horaire horaire(Train train) {
+        return new Horaire(
+                train.getId(),
+                secondes(train.getHeureDepart()),
+                secondes(train.getHeureArrivee()),
+                train.getGareDepart().getId(),
+                train.getGareArrivee().getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGare(GareEvent event) {
+        modifierGare(event);
+        publierConnexions(true);
+    }
+
+    // Une seule vue des connexions publiée pour tout le lot
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGaresModifiees(GaresModifieesEvent event) {
+        for (GareEvent modification : event.getModifications()) {
+            modifierGare(modification);
+        }
+        publierConnexions(true);
+    }
+
+    private void modifierGare(GareEvent event) {
+        Long gareId = event.getGareId();
+        GareInfo ancienne = gares.remove(gareId);
+        if (ancienne != null) {
+            Set<Long> ids = garesParVille.get(ancienne.ville);
+            if (ids != null) {
+                ids.remove(gareId);
+            }
+        }
+        if (event.getType() != GareEvent.Type.SUPPRESSION) {
+            indexerGare(event.getGare());
+            return;
+        }
+        // Les trains de la gare ont été supprimés par cascade
+        Set<Long> retires = new HashSet<>();
+        horaires.values().removeIf(h -> {
+            boolean lie = h.gareDepart == gareId || h.gareArrivee == gareId;
+            if (lie) {
+                retires.add(h.id);
+            }
+            return lie;
+        });
+        if (!retires.isEmpty()) {
+            appliquer(Collections.emptyList(), retires);
+        }
+    }
+
+    private void indexerGare(Gare gare) {
+        int correspondance = gare.getTempsCorrespondance() == null ? 0 : gare.getTempsCorrespondance() * 60;
+        GareInfo info = new GareInfo(normaliser(gare.getVille()), Boolean.TRUE.equals(gare.getEstOuverte()), correspondance);
+        gares.put(gare.getId(), info);
+        garesParVille.computeIfAbsent(info.ville, v -> ConcurrentHashMap.newKeySet()).add(gare.getId());
+    }
+
+    /**
+     * Publie un nouvel état : les horaires ajoutés vont dans la surcouche,
+     * les ids modifiés ou supprimés sont masqués dans la base.
+     */
+    private void appliquer(Collection<Horaire> ajouts, Set<Long> modifies) {
+        Etat courant = etat;
+        Map<Long, Horaire> surcouche = new HashMap<>(courant.surcouche);
+        Set<Long> masques = new HashSet<>(courant.masques);
+        for (Long id : modifies) {
+            surcouche.remove(id);
+            if (courant.base.contient(id)) {
+                masques.add(id);
+            }
+        }
+        for (Horaire h : ajouts) {
+            surcouche.put(h.id, h);
+        }
+        if (surcouche.size() + masques.size() > SEUIL_COMPACTION) {
+            compacter();
+        } else {
+            etat = new Etat(courant.base, surcouche, masques, courant.version + 1);
+        }
+    }
+
+    private void compacter() {
+        etat = new Etat(new Base(horaires.values(), this::numeroGare), Map.of(), Set.of(), etat.version + 1);
+    }
+
+    private int numeroGare(long gareId) {
+        return numerosGares.computeIfAbsent(gareId, id -> numerosGares.size());
+    }
+
+    /**
+     * Publie la vue des connexions de l'état courant : la base garde ses colonnes,
+     * seule la surcouche est triée ; la table des gares n'est refaite que si elles ont changé.
+     */
+    private void publierConnexions(boolean garesModifiees) {
+        Etat courant = etat;
+        for (Horaire h : courant.surcouche.values()) {
+            numeroGare(h.gareDepart);
+            numeroGare(h.gareArrivee);
+        }
+        if (garesModifiees) {
+            for (Long gareId : gares.keySet()) {
+                numeroGare(gareId);
+            }
+        }
+        Connexions precedentes = connexions;
+        TableGares table = garesModifiees || precedentes.gares.ouvertes.length != numerosGares.size()
+                ? new TableGares(numerosGares, gares) : precedentes.gares;
+        connexions = new Connexions(courant, table, numerosGares);
+    }
+
+    // ============ RECHERCHE ============
+
+    /**
+     * Ids (triés) des trains qui satisfont les critères de la recherche avancée.
+     * Les critères nuls ou vides sont ignorés, comme dans TrainService.
+     */
+    public long[] rechercher(String villeDepart, String villeArrivee,
+                             LocalDateTime dateDebut, LocalDateTime dateFin,
+                             Integer dureeMaxMinutes, Boolean gareOuverteSeulement) {
+        Etat courant = etat;
+        Base base = courant.base;
+        Filtre filtre = new Filtre(
+                villeDepart == null || villeDepart.isEmpty() ? null : garesDeVille(villeDepart),
+                villeArrivee == null || villeArrivee.isEmpty() ? null : garesDeVille(villeArrivee),
+                dateDebut == null ? Long.MIN_VALUE : secondes(dateDebut),
+                dateFin == null ? Long.MAX_VALUE : secondes(dateFin),
+                dureeMaxMinutes != null && dureeMaxMinutes > 0 ? dureeMaxMinutes : -1,
+                Boolean.TRUE.equals(gareOuverteSeulement));
+
+        ListeLongs resultat = new ListeLongs();
+        if (filtre.garesDepart != null || filtre.garesArrivee != null) {
+            // On parcourt le côté le plus sélectif, l'autre est vérifié par sondage
+            boolean parDepart = filtre.garesDepart != null && (filtre.garesArrivee == null
+                    || base.taille(base.departsParGare, filtre.garesDepart)
+                       <= base.taille(base.arriveesParGare, filtre.garesArrivee));
+            Map<Long, int[]> listes = parDepart ? base.departsParGare : base.arriveesParGare;
+            for (Long gareId : parDepart ? filtre.garesDepart : filtre.garesArrivee) {
+                int[] positions = listes.get(gareId);
+                if (positions == null) {
+                    continue;
+                }
+                for (int i = base.premierePosition(positions, filtre.debut);
+                     i < positions.length && base.departs[positions[i]] <= filtre.fin; i++) {
+                    base.collecter(positions[i], filtre, courant.masques, resultat);
+                }
+            }
+        } else {
+            for (int p = base.premierePosition(filtre.debut);
+                 p < base.ids.length && base.departs[p] <= filtre.fin; p++) {
+                base.collecter(p, filtre, courant.masques, resultat);
+            }
+        }
+        for (Horaire h : courant.surcouche.values()) {
+            if (filtre.accepte(h.depart, h.arrivee, h.gareDepart, h.gareArrivee)) {
+                resultat.ajouter(h.id);
+            }
+        }
+        long[] ids = resultat.toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    public int nombreTrains() {
+        Etat courant = etat;
+        return courant.base.ids.length - courant.masques.size() + courant.surcouche.size();
+    }
+
+    /**
+     * Connexions (un train = une connexion) à parcourir par départ croissant,
+     * telles que publiées par la dernière écriture : rien n'est reconstruit ici.
+     */
+    public Connexions connexions() {
+        return connexions;
+    }
+
+    Set<Long> garesDeVille(String ville) {
+        return garesParVille.getOrDefault(normaliser(ville), Set.of());
+    }
+
+    static long secondes(LocalDateTime date) {
+        return date.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static String normaliser(String ville) {
+        return ville == null ? "" : ville.toLowerCase(Locale.ROOT);
+    }
+
+    // ============ STRUCTURES INTERNES ============
+
+    private final class Filtre {
+        final Set<Long> garesDepart;
+        final Set<Long> garesArrivee;
+        final long debut;
+        final long fin;
+        final long dureeMaxMinutes;
+        final boolean ouvertesSeulement;
+
+        Filtre(Set<Long> garesDepart, Set<Long> garesArrivee, long debut, long fin,
+               long dureeMaxMinutes, boolean ouvertesSeulement) {
+            this.garesDepart = garesDepart;
+            this.garesArrivee = garesArrivee;
+            this.debut = debut;
+            this.fin = fin;
+            this.dureeMaxMinutes = dureeMaxMinutes;
+            this.ouvertesSeulement = ouvertesSeulement;
+        }
+
+        boolean accepte(long depart, long arrivee, long gareDepart, long gareArrivee) {
+            if (depart < debut || depart > fin) {
+                return false;
+            }
+            if (garesDepart != null && !garesDepart.contains(gareDepart)) {
+                return false;
+            }
+            if (garesArrivee != null && !garesArrivee.contains(gareArrivee)) {
+                return false;
+            }
+            // Même arrondi que Duration.toMinutes()
+            if (dureeMaxMinutes >= 0 && (arrivee - depart) / 60 > dureeMaxMinutes) {
+                return false;
+            }
+            return !ouvertesSeulement || (estOuverte(gareDepart) && estOuverte(gareArrivee));
+        }
+
+        private boolean estOuverte(long gareId) {
+            GareInfo info = gares.get(gareId);
+            return info != null && info.ouverte;
+        }
+    }
+
+    private static final class GareInfo {
+        final String ville;
+        final boolean ouverte;
+        final int correspondance;
+
+        GareInfo(String ville, boolean ouverte, int correspondance) {
+            this.ville = ville;
+            this.ouverte = ouverte;
+            this.correspondance = correspondance;
+        }
+    }
+
+    static final class Horaire {
+        final long id;
+        final long depart;
+        final long arrivee;
+        final long gareDepart;
+        final long gareArrivee;
+
+        Horaire(long id, long depart, long arrivee, long gareDepart, long gareArrivee) {
+            this.id = id;
+            this.depart = depart;
+            this.arrivee = arrivee;
+            this.gareDepart = gareDepart;
+            this.gareArrivee = gareArrivee;
+        }
+    }
+
+    /**
+     * Gares renumérotées de 0 à n-1 (numéros stables entre deux recompactions).
+     * Une gare supprimée garde son numéro, fermée et hors de l'index.
+     */
+    private static final class TableGares {
+        static final TableGares VIDE = new TableGares(Map.of(), Map.of());
+
+        final long[] gareIds;
+        final int[] correspondances;
+        final boolean[] ouvertes;
+        final Map<Long, Integer> index;
+
+        TableGares(Map<Long, Integer> numeros, Map<Long, GareInfo> infos) {
+            int n = numeros.size();
+            gareIds = new long[n];
+            correspondances = new int[n];
+            ouvertes = new boolean[n];
+            index = new HashMap<>(n * 2);
+            numeros.forEach((gareId, numero) -> {
+                gareIds[numero] = gareId;
+                GareInfo info = infos.get(gareId);
+                if (info != null) {
+                    correspondances[numero] = info.correspondance;
+                    ouvertes[numero] = info.ouverte;
+                    index.put(gareId, numero);
+                }
+            });
+        }
+    }
+
+    /**
+     * Vue figée des connexions pour le scan (Connection Scan Algorithm) : la base
+     * compactée (colonnes déjà triées par départ, ids masqués sautés) et la petite
+     * surcouche triée, fusionnées au parcours. Une connexion est désignée par un
+     * indice : position dans la base, ou taille de la base + rang dans la surcouche.
+     */
+    public static final class Connexions {
+        static final Connexions VIDE = new Connexions(Etat.VIDE, TableGares.VIDE, Map.of());
+
+        private final Base base;
+        private final Set<Long> masques;
+        private final Horaire[] recents;
+        private final int[] recentsDe;
+        private final int[] recentsVers;
+        private final TableGares gares;
+        final long[] gareIds;
+        final int[] correspondances;
+        final boolean[] ouvertes;
+
+        private Connexions(Etat source, TableGares gares, Map<Long, Integer> numeros) {
+            this.base = source.base;
+            this.masques = source.masques;
+            this.gares = gares;
+            this.gareIds = gares.gareIds;
+            this.correspondances = gares.correspondances;
+            this.ouvertes = gares.ouvertes;
+            recents = source.surcouche.values().toArray(new Horaire[0]);
+            Arrays.sort(recents, (a, b) -> Long.compare(a.depart, b.depart));
+            recentsDe = new int[recents.length];
+            recentsVers = new int[recents.length];
+            for (int j = 0; j < recents.length; j++) {
+                recentsDe[j] = numeros.get(recents[j].gareDepart);
+                recentsVers[j] = numeros.get(recents[j].gareArrivee);
+            }
+        }
+
+        public int nombreGares() { return gareIds.length; }
+
+        public int nombreConnexions() { return base.ids.length - masques.size() + recents.length; }
+
+        long trainId(int i) { return i < base.ids.length ? base.ids[i] : recents[i - base.ids.length].id; }
+
+        long depart(int i) { return i < base.ids.length ? base.departs[i] : recents[i - base.ids.length].depart; }
+
+        long arrivee(int i) { return i < base.ids.length ? base.arrivees[i] : recents[i - base.ids.length].arrivee; }
+
+        int de(int i) { return i < base.ids.length ? base.de[i] : recentsDe[i - base.ids.length]; }
+
+        int vers(int i) { return i < base.ids.length ? base.vers[i] : recentsVers[i - base.ids.length]; }
+
+        /** Index dense d'une gare, ou -1 si elle est inconnue. */
+        int indexGare(long gareId) {
+            Integer index = gares.index.get(gareId);
+            return index == null ? -1 : index;
+        }
+
+        /** Parcours des connexions dont le départ est >= debut, par départ croissant. */
+        Parcours parcours(long debut) {
+            return new Parcours(debut);
+        }
+
+        final class Parcours {
+            private int i;
+            private int j;
+
+            private Parcours(long debut) {
+                i = base.premierePosition(debut);
+                int bas = 0, haut = recents.length;
+                while (bas < haut) {
+                    int milieu = (bas + haut) >>> 1;
+                    if (recents[milieu].depart < debut) bas = milieu + 1; else haut = milieu;
+                }
+                j = bas;
+            }
+
+            /** Indice de la connexion suivante, -1 à la fin. À départ égal, la base passe d'abord. */
+            int suivante() {
+                while (i < base.ids.length && (j >= recents.length || base.departs[i] <= recents[j].depart)) {
+                    int p = i++;
+                    if (masques.isEmpty() || !masques.contains(base.ids[p])) {
+                        return p;
+                    }
+                }
+                return j < recents.length ? base.ids.length + j++ : -1;
+            }
+        }
+    }
+
+    private static final class Etat {
+        static final Etat VIDE = new Etat(new Base(Collections.emptyList(), gareId -> 0), Map.of(), Set.of(), 0);
+
+        final Base base;
+        final Map<Long, Horaire> surcouche;
+        final Set<Long> masques;
+        final long version;
+
+        Etat(Base base, Map<Long, Horaire> surcouche, Set<Long> masques, long version) {
+            this.base = base;
+            this.surcouche = surcouche;
+            this.masques = masques;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Horaires compactés : colonnes parallèles triées par départ (gares aussi en
+     * numéros denses, pour le planificateur), et pour chaque gare la liste
+     * croissante des positions (donc aussi triée par départ).
+     */
+    private static final class Base {
+        final long[] ids;
+        final long[] departs;
+        final long[] arrivees;
+        final long[] garesDepart;
+        final long[] garesArrivee;
+        final int[] de;
+        final int[] vers;
+        final Map<Long, int[]> departsParGare;
+        final Map<Long, int[]> arriveesParGare;
+        private final long[] idsTries;
+
+        Base(Collection<Horaire> source, LongToIntFunction numeroGare) {
+            Horaire[] tries = source.toArray(new Horaire[0]);
+            Arrays.sort(tries, (a, b) -> a.depart != b.depart
+                    ? Long.compare(a.depart, b.depart) : Long.compare(a.id, b.id));
+            int n = tries.length;
+            ids = new long[n];
+            departs = new long[n];
+            arrivees = new long[n];
+            garesDepart = new long[n];
+            garesArrivee = new long[n];
+            de = new int[n];
+            vers = new int[n];
+            Map<Long, ListeEntiers> parDepart = new HashMap<>();
+            Map<Long, ListeEntiers> parArrivee = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Horaire h = tries[i];
+                ids[i] = h.id;
+                departs[i] = h.depart;
+                arrivees[i] = h.arrivee;
+                garesDepart[i] = h.gareDepart;
+                garesArrivee[i] = h.gareArrivee;
+                de[i] = numeroGare.applyAsInt(h.gareDepart);
+                vers[i] = numeroGare.applyAsInt(h.gareArrivee);
+                parDepart.computeIfAbsent(h.gareDepart, g -> new ListeEntiers()).ajouter(i);
+                parArrivee.computeIfAbsent(h.gareArrivee, g -> new ListeEntiers()).ajouter(i);
+            }
+            departsParGare = figer(parDepart);
+            arriveesParGare = figer(parArrivee);
+            idsTries = ids.clone();
+            Arrays.sort(idsTries);
+        }
+
+        boolean contient(long id) {
+            return Arrays.binarySearch(idsTries, id) >= 0;
+        }
+
+        int taille(Map<Long, int[]> listes, Set<Long> gareIds) {
+            int total = 0;
+            for (Long gareId : gareIds) {
+                int[] positions = listes.get(gareId);
+                total += positions == null ? 0 : positions.length;
+            }
+            return total;
+        }
+
+        /** Première position dont le départ est >= debut. */
+        int premierePosition(long debut) {
+            int bas = 0, haut = departs.length;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (departs[milieu] < debut) bas = milieu + 1; else haut = milieu;
+            }
+            return bas;
+        }
+
+        /** Premier indice de la liste dont le départ est >= debut. */
+        int premierePosition(int[] positions, long debut) {
+            int bas = 0, haut = positions.length;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (departs[positions[milieu]] < debut) bas = milieu + 1; else haut = milieu;
+            }
+            return bas;
+        }
+
+        void collecter(int p, Filtre filtre, Set<Long> masques, ListeLongs resultat) {
+            if (filtre.accepte(departs[p], arrivees[p], garesDepart[p], garesArrivee[p])
+                    && (masques.isEmpty() || !masques.contains(ids[p]))) {
+                resultat.ajouter(ids[p]);
+            }
+        }
+
+        private static Map<Long, int[]> figer(Map<Long, ListeEntiers> listes) {
+            Map<Long, int[]> resultat = new HashMap<>(listes.size() * 2);
+            listes.forEach((gareId, liste) -> resultat.put(gareId, liste.toArray()));
+            return resultat;
+        }
+    }
+
+    private static final class ListeEntiers {
+        private int[] valeurs = new int[8];
+        private int taille;
+
+        void ajouter(int valeur) {
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            valeurs[taille++] = valeur;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(valeurs, taille);
+        }
+    }
+
+    private static final class ListeLongs {
+        private long[] valeurs = new long[16];
+        private int taille;
+
+        void ajouter(long valeur) {
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            valeurs[taille++] = valeur;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(valeurs, taille);
+        }
+    }
+}
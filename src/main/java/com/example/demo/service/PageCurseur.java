@@ -0,0 +1,44 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Une page de résultats et le curseur de la page suivante (null en fin de liste).
+ */
+public class PageCurseur<T> {
+
+    public static final int TAILLE_DEFAUT = 100;
+    public static final int TAILLE_MAX = 1000;
+
+    private final List<T> elements;
+    private final String curseurSuivant;
+
+    public PageCurseur(List<T> elements, String curseurSuivant) {
+        this.elements = elements;
+        this.curseurSuivant = curseurSuivant;
+    }
+
+    /**
+     * Construit la page à partir de taille + 1 lignes lues : la ligne en trop
+     * indique seulement qu'il existe une page suivante.
+     */
+    public static <T> PageCurseur<T> de(List<T> lignes, int taille, Function<T, Curseur> curseur) {
+        if (lignes.size() <= taille) {
+            return new PageCurseur<>(lignes, null);
+        }
+        List<T> page = lignes.subList(0, taille);
+        return new PageCurseur<>(page, curseur.apply(page.get(taille - 1)).encoder());
+    }
+
+    public static int borner(Integer taille) {
+        if (taille == null || taille <= 0) {
+            return TAILLE_DEFAUT;
+        }
+        return Math.min(taille, TAILLE_MAX);
+    }
+
+    public List<T> getElements() { return elements; }
+
+    public String getCurseurSuivant() { return curseurSuivant; }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Train;
+import com.example.demo.repository.TrainRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calcul d'itinéraires avec correspondances par Connection Scan Algorithm.
+ *
+ * Un seul parcours linéaire du tableau de connexions du {@link MoteurHoraire}
+ * donne, pour chaque nombre de trains k, l'arrivée au plus tôt avec exactement
+ * k trains ; on en déduit le front de Pareto (heure d'arrivée / correspondances).
+ */
+@Service
+public class PlanificateurItineraires {
+
+    static final int MAX_CORRESPONDANCES = 8;
+    static final int HORIZON_HEURES = 48;
+
+    private static final long JAMAIS = Long.MAX_VALUE;
+
+    @Autowired
+    private MoteurHoraire moteurHoraire;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    public Map<String, Object> planifier(Long gareDepartId, String villeDepart,
+                                         Long gareArriveeId, String villeArrivee,
+                                         LocalDateTime depart, int maxCorrespondances) {
+        if (maxCorrespondances < 0 || maxCorrespondances > MAX_CORRESPONDANCES) {
+            throw new RuntimeException("Le nombre de correspondances doit être compris entre 0 et " + MAX_CORRESPONDANCES);
+        }
+        MoteurHoraire.Connexions c = moteurHoraire.connexions();
+        int[] sources = resoudre(c, gareDepartId, villeDepart);
+        if (sources.length == 0) {
+            throw new RuntimeException("Gare de départ non trouvée");
+        }
+        int[] cibles = resoudre(c, gareArriveeId, villeArrivee);
+        if (cibles.length == 0) {
+            throw new RuntimeException("Gare d'arrivée non trouvée");
+        }
+
+        int nbTrains = maxCorrespondances + 1;
+        int n = c.nombreGares();
+        long t0 = depart.toEpochSecond(ZoneOffset.UTC);
+        long horizon = t0 + HORIZON_HEURES * 3600L;
+
+        // arrivee[k][g] : arrivée au plus tôt en g avec exactement k trains
+        long[][] arrivee = new long[nbTrains + 1][n];
+        int[][] parent = new int[nbTrains + 1][n];
+        for (int k = 0; k <= nbTrains; k++) {
+            Arrays.fill(arrivee[k], JAMAIS);
+            Arrays.fill(parent[k], -1);
+        }
+        boolean[] estCible = new boolean[n];
+        for (int g : cibles) {
+            estCible[g] = true;
+        }
+        for (int g : sources) {
+            if (c.ouvertes[g]) {
+                arrivee[0][g] = t0;
+            }
+        }
+        long[] meilleureCible = new long[nbTrains + 1];
+        Arrays.fill(meilleureCible, JAMAIS);
+
+        int scannees = 0;
+        MoteurHoraire.Connexions.Parcours parcours = c.parcours(t0);
+        for (int i = parcours.suivante(); i >= 0; i = parcours.suivante()) {
+            long dep = c.depart(i);
+            // Plus aucune connexion ne peut battre le meilleur trajet direct
+            if (dep > horizon || dep >= meilleureCible[1]) {
+                break;
+            }
+            scannees++;
+            int de = c.de(i);
+            int vers = c.vers(i);
+            if (!c.ouvertes[de] || !c.ouvertes[vers]) {
+                continue;
+            }
+            long arr = c.arrivee(i);
+            long borne = JAMAIS;
+            for (int k = 1; k <= nbTrains; k++) {
+                borne = Math.min(borne, meilleureCible[k]);
+                long pret = arrivee[k - 1][de];
+                if (pret == JAMAIS) {
+                    continue;
+                }
+                if (k > 1) {
+                    pret += c.correspondances[de];
+                }
+                // Dominé si on arrive après un trajet déjà trouvé avec moins de trains
+                if (pret > dep || arr >= arrivee[k][vers] || arr >= borne) {
+                    continue;
+                }
+                arrivee[k][vers] = arr;
+                parent[k][vers] = i;
+                if (estCible[vers]) {
+                    meilleureCible[k] = arr;
+                    borne = arr;
+                }
+            }
+        }
+
+        List<int[]> trajets = new ArrayList<>();
+        long record = JAMAIS;
+        for (int k = 1; k <= nbTrains; k++) {
+            int meilleure = -1;
+            for (int g : cibles) {
+                if (arrivee[k][g] < record && (meilleure < 0 || arrivee[k][g] < arrivee[k][meilleure])) {
+                    meilleure = g;
+                }
+            }
+            if (meilleure >= 0) {
+                record = arrivee[k][meilleure];
+                trajets.add(reconstruire(c, parent, k, meilleure));
+            }
+        }
+
+        Map<Long, Train> trains = chargerTrains(c, trajets);
+        List<Map<String, Object>> pareto = new ArrayList<>();
+        for (int[] trajet : trajets) {
+            pareto.add(decrire(c, trajet, trains));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("depart", depart);
+        result.put("itineraireLePlusRapide", pareto.isEmpty() ? null : pareto.get(pareto.size() - 1));
+        result.put("itinerairesPareto", pareto);
+        result.put("connexionsScannees", scannees);
+        return result;
+    }
+
+    private int[] resoudre(MoteurHoraire.Connexions c, Long gareId, String ville) {
+        if (gareId != null) {
+            int index = c.indexGare(gareId);
+            return index < 0 ? new int[0] : new int[] { index };
+        }
+        if (ville == null || ville.isEmpty()) {
+            throw new RuntimeException("Une gare ou une ville doit être renseignée");
+        }
+        Set<Long> gareIds = moteurHoraire.garesDeVille(ville);
+        return gareIds.stream()
+                .mapToInt(c::indexGare)
+                .filter(index -> index >= 0)
+                .toArray();
+    }
+
+    /** Indices des connexions du trajet, dans l'ordre du voyage. */
+    private int[] reconstruire(MoteurHoraire.Connexions c, int[][] parent, int k, int cible) {
+        int[] connexions = new int[k];
+        int gare = cible;
+        for (int niveau = k; niveau > 0; niveau--) {
+            int i = parent[niveau][gare];
+            connexions[niveau - 1] = i;
+            gare = c.de(i);
+        }
+        return connexions;
+    }
+
+    private Map<Long, Train> chargerTrains(MoteurHoraire.Connexions c, List<int[]> trajets) {
+        List<Long> ids = new ArrayList<>();
+        for (int[] trajet : trajets) {
+            for (int i : trajet) {
+                ids.add(c.trainId(i));
+            }
+        }
+        Map<Long, Train> trains = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Train train : trainRepository.findAllById(ids)) {
+                trains.put(train.getId(), train);
+            }
+        }
+        return trains;
+    }
+
+    private Map<String, Object> decrire(MoteurHoraire.Connexions c, int[] trajet, Map<Long, Train> trains) {
+        long debut = c.depart(trajet[0]);
+        long fin = c.arrivee(trajet[trajet.length - 1]);
+        List<Train> etapes = new ArrayList<>();
+        for (int i : trajet) {
+            Train train = trains.get(c.trainId(i));
+            if (train != null) {
+                etapes.add(train);
+            }
+        }
+        Map<String, Object> itineraire = new LinkedHashMap<>();
+        itineraire.put("heureDepart", LocalDateTime.ofEpochSecond(debut, 0, ZoneOffset.UTC));
+        itineraire.put("heureArrivee", LocalDateTime.ofEpochSecond(fin, 0, ZoneOffset.UTC));
+        itineraire.put("dureeMinutes", (fin - debut) / 60);
+        itineraire.put("correspondances", trajet.length - 1);
+        itineraire.put("trains", etapes);
+        return itineraire;
+    }
+}
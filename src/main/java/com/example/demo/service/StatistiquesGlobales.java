@@ -0,0 +1,185 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.repository.GareRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Agrégats globaux des gares tenus à jour à chaque écriture, pour que
+ * /api/gares/statistiques/globales réponde depuis la mémoire.
+ *
+ * Reconstruits au démarrage par un GROUP BY, puis comparés périodiquement
+ * à un recomptage complet (rahal.statistiques.verification-ms).
+ */
+@Component
+public class StatistiquesGlobales {
+
+    private static final Logger log = LoggerFactory.getLogger(StatistiquesGlobales.class);
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    private Compteurs compteurs = new Compteurs();
+    private volatile boolean charge;
+    private volatile boolean incoherent;
+    // Incrémenté à chaque événement : un recomptage concurrent n'est pas comparable
+    private long version;
+
+    // ============ RECONSTRUCTION ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        Compteurs recompte = recompter();
+        synchronized (this) {
+            compteurs = recompte;
+            charge = true;
+            incoherent = false;
+        }
+        log.info("Statistiques globales chargées : {} gares", recompte.total);
+    }
+
+    @Scheduled(fixedDelayString = "${rahal.statistiques.verification-ms:300000}",
+               initialDelayString = "${rahal.statistiques.verification-ms:300000}")
+    public void verifier() {
+        long versionAvant;
+        synchronized (this) {
+            versionAvant = version;
+        }
+        Compteurs recompte = recompter();
+        synchronized (this) {
+            if (version != versionAvant && charge && !incoherent) {
+                return;
+            }
+            if (!recompte.equals(compteurs)) {
+                log.warn("Statistiques globales incohérentes avec la base, recalcul ({} gares en mémoire, {} en base)",
+                        compteurs.total, recompte.total);
+            }
+            compteurs = recompte;
+            charge = true;
+            incoherent = false;
+        }
+    }
+
+    private Compteurs recompter() {
+        Compteurs recompte = new Compteurs();
+        for (Object[] ligne : gareRepository.compterParVille()) {
+            String ville = (String) ligne[0];
+            long total = ((Number) ligne[1]).longValue();
+            recompte.total += total;
+            recompte.ouvertes += ((Number) ligne[2]).longValue();
+            recompte.voies += ((Number) ligne[3]).longValue();
+            recompte.parVille.put(ville, total);
+        }
+        return recompte;
+    }
+
+    // ============ MISE À JOUR ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGare(GareEvent event) {
+        version++;
+        Gare avant = event.getAvant();
+        if (event.getType() == GareEvent.Type.SUPPRESSION && avant == null) {
+            avant = event.getGare();
+        }
+        if (event.getType() != GareEvent.Type.CREATION && avant == null) {
+            // Valeurs précédentes inconnues : on se recale au prochain contrôle
+            incoherent = true;
+            return;
+        }
+        if (avant != null) {
+            compteurs.appliquer(avant, -1);
+        }
+        if (event.getType() != GareEvent.Type.SUPPRESSION) {
+            compteurs.appliquer(event.getGare(), 1);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGaresModifiees(GaresModifieesEvent event) {
+        for (GareEvent modification : event.getModifications()) {
+            onGare(modification);
+        }
+    }
+
+    // ============ LECTURE ============
+
+    public Map<String, Object> lire() {
+        if (!charge || incoherent) {
+            verifier();
+        }
+        Map<String, Long> garesParVille;
+        long total, ouvertes, voies;
+        synchronized (this) {
+            garesParVille = new HashMap<>(compteurs.parVille);
+            total = compteurs.total;
+            ouvertes = compteurs.ouvertes;
+            voies = compteurs.voies;
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalGares", total);
+        stats.put("garesOuvertes", ouvertes);
+        stats.put("garesFermees", total - ouvertes);
+        stats.put("totalVoies", voies);
+
+        double moyenneVoies = total == 0 ? 0 : (double) voies / total;
+        stats.put("moyenneVoies", Math.round(moyenneVoies * 100.0) / 100.0);
+
+        if (!garesParVille.isEmpty()) {
+            Map.Entry<String, Long> max = garesParVille.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElseThrow();
+            stats.put("villePlusGares", max.getKey());
+            stats.put("nombreGaresDansVille", max.getValue());
+        }
+
+        stats.put("distributionParVille", garesParVille);
+        return stats;
+    }
+
+    private static final class Compteurs {
+        long total;
+        long ouvertes;
+        long voies;
+        final Map<String, Long> parVille = new HashMap<>();
+
+        void appliquer(Gare gare, int signe) {
+            total += signe;
+            if (Boolean.TRUE.equals(gare.getEstOuverte())) {
+                ouvertes += signe;
+            }
+            if (gare.getNombreVoies() != null) {
+                voies += (long) signe * gare.getNombreVoies();
+            }
+            parVille.merge(gare.getVille(), (long) signe, Long::sum);
+            parVille.remove(gare.getVille(), 0L);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Compteurs autre)) {
+                return false;
+            }
+            return total == autre.total && ouvertes == autre.ouvertes
+                    && voies == autre.voies && parVille.equals(autre.parVille);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(total) * 31 + parVille.hashCode();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.repository.GareRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Écriture différée (write-behind) du statut des gares, pour les outils qui
+ * ouvrent et ferment la même gare plusieurs fois par seconde
+ * (PATCH /api/gares/{id}/status avec rahal.ecriture-differee.actif=true).
+ *
+ * Un changement est ajouté au journal local (append + fsync), puis rendu visible
+ * en mémoire par un GareEvent (index, cache, statistiques, abonnés) ; la réponse
+ * part avant toute écriture en base. Les changements d'une même gare se remplacent :
+ * toutes les {@code rahal.ecriture-differee.intervalle-ms}, seul le dernier statut
+ * de chaque gare est écrit, par UPDATE ensemblistes (GareRepository.changerStatut),
+ * une transaction par lot.
+ *
+ * Le journal est mis de côté (segment ".vidage") au début de chaque vidage et
+ * n'est supprimé qu'après le commit. Au démarrage, les segments restants sont
+ * rejoués puis écrits en base : un arrêt brutal ne perd aucun changement acquitté.
+ */
+@Component
+public class StatutsDifferes implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(StatutsDifferes.class);
+
+    @Value("${rahal.ecriture-differee.actif:false}")
+    private boolean actif;
+
+    @Value("${rahal.ecriture-differee.journal:statuts-en-attente.journal}")
+    private String cheminJournal;
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    @Autowired
+    private GareCache gareCache;
+
+    @Autowired
+    private IndexGares indexGares;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Une transaction par lot, jamais celle de l'appelant (qui n'en a pas, voir ecrireAvant)
+    private final TransactionTemplate transactionTemplate;
+
+    // Dernier statut demandé par gare, pas encore en base ; modifié sous "verrou" avec le journal
+    private final Map<Long, Boolean> enAttente = new ConcurrentHashMap<>();
+    private final Object verrou = new Object();
+    private final Object vidage = new Object();
+    private FileChannel journal;
+    private Path segment;
+
+    private volatile long recus;
+    private volatile long ecrits;
+
+    public StatutsDifferes(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean estActif() {
+        return actif;
+    }
+
+    // ============ CHANGEMENT DE STATUT ============
+
+    /** Gare avec son nouveau statut, visible en mémoire dès le retour ; écrite en base au prochain vidage. */
+    public Gare changerStatut(Long id, boolean estOuverte) {
+        Gare lue = gareCache.parId(id, () -> gareRepository.findById(id).map(GareService::copie))
+                .orElseThrow(() -> new GareIntrouvableException(id));
+        synchronized (verrou) {
+            Gare avant = appliquer(lue);
+            journaliser(id + ";" + (estOuverte ? 1 : 0) + "\n");
+            enAttente.put(id, estOuverte);
+            recus++;
+            Gare apres = GareService.copie(avant);
+            apres.setEstOuverte(estOuverte);
+            // Sous le verrou : les index reçoivent les changements d'une gare dans l'ordre du journal
+            if (!Boolean.valueOf(estOuverte).equals(avant.getEstOuverte())) {
+                eventPublisher.publishEvent(new GareEvent(GareEvent.Type.MISE_A_JOUR, apres, avant));
+            }
+            return apres;
+        }
+    }
+
+    /** La gare avec son statut en attente, s'il y en a un (copie), sinon la gare elle-même. */
+    public Gare appliquer(Gare gare) {
+        Boolean statut = enAttente.get(gare.getId());
+        if (statut == null || statut.equals(gare.getEstOuverte())) {
+            return gare;
+        }
+        Gare copie = GareService.copie(gare);
+        copie.setEstOuverte(statut);
+        return copie;
+    }
+
+    /**
+     * Avant une écriture directe sur ces gares (toutes si null) : leurs statuts en
+     * attente sont écrits d'abord, pour que le vidage suivant n'écrase pas l'écriture.
+     *
+     * Jamais depuis une transaction : l'appelant tiendrait une connexion en attendant
+     * le vidage en cours, qui peut lui-même attendre une connexion libre du pool.
+     */
+    public void ecrireAvant(Collection<Long> ids) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Statuts différés vidés depuis une transaction");
+        }
+        if (enAttente.isEmpty()) {
+            return;
+        }
+        if (ids == null || ids.stream().anyMatch(enAttente::containsKey)) {
+            vider();
+        }
+    }
+
+    // ============ VIDAGE ============
+
+    @Scheduled(fixedDelayString = "${rahal.ecriture-differee.intervalle-ms:1000}",
+               initialDelayString = "${rahal.ecriture-differee.intervalle-ms:1000}")
+    public void vider() {
+        synchronized (vidage) {
+            Map<Long, Boolean> lot;
+            synchronized (verrou) {
+                if (enAttente.isEmpty()) {
+                    return;
+                }
+                lot = new HashMap<>(enAttente);
+                mettreDeCote();
+            }
+            long debut = System.currentTimeMillis();
+            int modifiees = ecrire(lot);
+            synchronized (verrou) {
+                // Un statut redemandé entre-temps reste en attente (et dans le journal courant)
+                lot.forEach(enAttente::remove);
+                ecrits += lot.size();
+            }
+            supprimer(segment);
+            log.debug("Statuts différés écrits : {} gares, {} lignes modifiées en {} ms",
+                    lot.size(), modifiees, System.currentTimeMillis() - debut);
+        }
+    }
+
+    private int ecrire(Map<Long, Boolean> lot) {
+        Map<Boolean, List<Long>> parStatut = new HashMap<>();
+        lot.forEach((id, statut) -> parStatut.computeIfAbsent(statut, s -> new ArrayList<>()).add(id));
+        int modifiees = 0;
+        for (Map.Entry<Boolean, List<Long>> groupe : parStatut.entrySet()) {
+            List<Long> ids = groupe.getValue();
+            for (int from = 0; from < ids.size(); from += GareService.TAILLE_LOT) {
+                List<Long> lotIds = ids.subList(from, Math.min(from + GareService.TAILLE_LOT, ids.size()));
+                boolean estOuverte = groupe.getKey();
+                Integer n = transactionTemplate.execute(status -> {
+                    int nombre = gareRepository.changerStatut(lotIds, estOuverte);
+                    if (nombre > 0) {
+                        publierVersions(lotIds);
+                    }
+                    return nombre;
+                });
+                modifiees += n == null ? 0 : n;
+            }
+        }
+        return modifiees;
+    }
+
+    // Le statut est déjà en mémoire ; après commit, les index reçoivent les nouvelles versions
+    private void publierVersions(List<Long> lotIds) {
+        Map<Long, Gare> avant = new HashMap<>();
+        for (Gare gare : indexGares.parIds(lotIds)) {
+            avant.put(gare.getId(), gare);
+        }
+        List<GareEvent> modifications = new ArrayList<>();
+        for (Gare lue : gareRepository.findAllById(lotIds)) {
+            Gare precedente = avant.get(lue.getId());
+            if (precedente != null && precedente.getVersion() != lue.getVersion()) {
+                modifications.add(new GareEvent(GareEvent.Type.MISE_A_JOUR, appliquer(GareService.copie(lue)), precedente));
+            }
+        }
+        if (!modifications.isEmpty()) {
+            eventPublisher.publishEvent(new GaresModifieesEvent(modifications));
+        }
+    }
+
+    // ============ JOURNAL ============
+
+    /** Au démarrage : rejoue le segment en cours de vidage puis le journal (le dernier statut l'emporte). */
+    @PostConstruct
+    public void reprendre() {
+        Path courant = Paths.get(cheminJournal).toAbsolutePath();
+        segment = courant.resolveSibling(courant.getFileName() + ".vidage");
+        int relus = relire(segment) + relire(courant);
+        if (relus > 0) {
+            log.warn("Journal des statuts différés : {} changements repris ({} gares), écrits au démarrage",
+                    relus, enAttente.size());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void viderAuDemarrage() {
+        vider();
+    }
+
+    @PreDestroy
+    public void arreter() throws IOException {
+        vider();
+        synchronized (verrou) {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+
+    // Appelé sous "verrou"
+    private void journaliser(String ligne) {
+        try {
+            if (journal == null) {
+                Path courant = Paths.get(cheminJournal).toAbsolutePath();
+                if (courant.getParent() != null) {
+                    Files.createDirectories(courant.getParent());
+                }
+                journal = FileChannel.open(courant, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            ByteBuffer octets = ByteBuffer.wrap(ligne.getBytes(StandardCharsets.US_ASCII));
+            while (octets.hasRemaining()) {
+                journal.write(octets);
+            }
+            journal.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal des statuts différés inaccessible", e);
+        }
+    }
+
+    // Appelé sous "verrou" : le journal courant rejoint le segment en cours de vidage
+    private void mettreDeCote() {
+        Path courant = Paths.get(cheminJournal).toAbsolutePath();
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            if (!Files.exists(courant)) {
+                return;
+            }
+            if (!Files.exists(segment)) {
+                Files.move(courant, segment, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            }
+            // Vidage précédent en échec : son segment est gardé, le journal courant s'y ajoute
+            try (FileChannel suite = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                suite.write(ByteBuffer.wrap(Files.readAllBytes(courant)));
+                suite.force(false);
+            }
+            Files.delete(courant);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal des statuts différés inaccessible", e);
+        }
+    }
+
+    // Lignes "id;0|1" dans l'ordre d'écriture ; une dernière ligne tronquée par un arrêt brutal est ignorée
+    private int relire(Path fichier) {
+        if (!Files.exists(fichier)) {
+            return 0;
+        }
+        int relus = 0;
+        try {
+            for (String ligne : Files.readAllLines(fichier, StandardCharsets.US_ASCII)) {
+                int separateur = ligne.indexOf(';');
+                if (separateur < 0 || separateur == ligne.length() - 1) {
+                    continue;
+                }
+                try {
+                    enAttente.put(Long.parseLong(ligne.substring(0, separateur)), ligne.charAt(separateur + 1) == '1');
+                    relus++;
+                } catch (NumberFormatException e) {
+                    log.warn("Ligne illisible ignorée dans {} : {}", fichier, ligne);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal des statuts différés illisible : " + fichier, e);
+        }
+        return relus;
+    }
+
+    private static void supprimer(Path fichier) {
+        try {
+            Files.deleteIfExists(fichier);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Segment du journal non supprimé : " + fichier, e);
+        }
+    }
+
+    // ============ MÉTRIQUES ============
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("rahal.ecriture_differee.en_attente", enAttente, Map::size)
+                .description("Gares dont le statut n'est pas encore écrit en base").register(registry);
+        FunctionCounter.builder("rahal.ecriture_differee.recus", this, s -> s.recus)
+                .description("Changements de statut reçus").register(registry);
+        FunctionCounter.builder("rahal.ecriture_differee.ecrits", this, s -> s.ecrits)
+                .description("Statuts écrits en base, après fusion des changements d'une même gare")
+                .register(registry);
+    }
+}
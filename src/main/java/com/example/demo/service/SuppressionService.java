@@ -0,0 +1,193 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.TrainsSupprimesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Suppressions en masse : trains d'une gare et/ou d'une période, gare avec ses trains.
+ *
+ * La cascade JPA de Gare.departs/arrivees chargerait tous les trains de la gare
+ * pour les supprimer un par un, dans une seule transaction. Ici, chaque lot de
+ * {@code rahal.suppression.taille-lot} trains est sélectionné (ids et gares
+ * seulement) puis supprimé par un DELETE ensembliste, dans sa propre transaction :
+ * la taille des transactions et la durée des verrous restent bornées. Chaque lot
+ * commité publie un {@link TrainsSupprimesEvent} pour les index en mémoire.
+ *
+ * Une gare est supprimée dans la transaction de son dernier lot : un train
+ * ajouté entre-temps part avec elle, la clé étrangère n'est jamais violée.
+ */
+@Service
+public class SuppressionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SuppressionService.class);
+
+    // Bornes utilisées quand un seul côté de la période est donné
+    private static final LocalDateTime DEBUT_PERIODE = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime FIN_PERIODE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Value("${rahal.suppression.taille-lot:1000}")
+    private int tailleLot;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public Map<String, Object> supprimerGare(Long id) {
+        Gare gare = gareRepository.findById(id)
+                .map(GareService::copie)
+                .orElseThrow(() -> new GareIntrouvableException(id));
+        Pageable limite = PageRequest.of(0, tailleLot);
+        Progression progression = new Progression("gare " + id);
+
+        boolean supprimee = false;
+        while (!supprimee) {
+            supprimee = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                List<Object[]> lot = trainRepository.lotASupprimerParGare(id, limite);
+                progression.lot(supprimerLot(lot));
+                if (lot.size() == tailleLot) {
+                    return false;
+                }
+                gareRepository.supprimer(id);
+                eventPublisher.publishEvent(new GareEvent(GareEvent.Type.SUPPRESSION, gare, gare));
+                return true;
+            }));
+        }
+
+        Map<String, Object> rapport = progression.rapport();
+        rapport.put("gareId", id);
+        rapport.put("gareSupprimee", true);
+        log.info("Gare {} supprimée : {}", id, rapport);
+        return rapport;
+    }
+
+    /**
+     * Trains d'une gare (au départ ou à l'arrivée) et/ou partant dans [debut, fin[.
+     * Au moins un critère est obligatoire : jamais de suppression de tout l'horaire par oubli.
+     */
+    public Map<String, Object> supprimerTrains(Long gareId, LocalDateTime debut, LocalDateTime fin) {
+        if (gareId == null && debut == null && fin == null) {
+            throw new IllegalArgumentException("Indiquez une gare (gareId) et/ou une période (debut, fin)");
+        }
+        if (debut != null && fin != null && !debut.isBefore(fin)) {
+            throw new IllegalArgumentException("Le début de la période doit être avant sa fin");
+        }
+        if (gareId != null && !gareRepository.existsById(gareId)) {
+            throw new GareIntrouvableException(gareId);
+        }
+        LocalDateTime borneDebut = debut != null ? debut : DEBUT_PERIODE;
+        LocalDateTime borneFin = fin != null ? fin : FIN_PERIODE;
+        Function<Pageable, List<Object[]>> selection;
+        if (gareId == null) {
+            selection = limite -> trainRepository.lotASupprimerParPeriode(borneDebut, borneFin, limite);
+        } else if (debut == null && fin == null) {
+            selection = limite -> trainRepository.lotASupprimerParGare(gareId, limite);
+        } else {
+            selection = limite -> trainRepository.lotASupprimerParGareEtPeriode(gareId, borneDebut, borneFin, limite);
+        }
+        Pageable limite = PageRequest.of(0, tailleLot);
+        Progression progression = new Progression("trains gare=" + gareId + " debut=" + debut + " fin=" + fin);
+
+        boolean termine = false;
+        while (!termine) {
+            termine = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                List<Object[]> lot = selection.apply(limite);
+                progression.lot(supprimerLot(lot));
+                return lot.size() < tailleLot;
+            }));
+        }
+
+        Map<String, Object> rapport = progression.rapport();
+        rapport.put("gareId", gareId);
+        rapport.put("debut", debut);
+        rapport.put("fin", fin);
+        log.info("Suppression de trains terminée : {}", rapport);
+        return rapport;
+    }
+
+    // Lignes (id, gare de départ, gare d'arrivée) : un DELETE par ids, un événement pour le lot
+    private int supprimerLot(List<Object[]> lot) {
+        if (lot.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(lot.size());
+        Map<Long, List<Long>> parGare = new HashMap<>();
+        for (Object[] ligne : lot) {
+            Long trainId = (Long) ligne[0];
+            Long depart = (Long) ligne[1];
+            Long arrivee = (Long) ligne[2];
+            ids.add(trainId);
+            parGare.computeIfAbsent(depart, g -> new ArrayList<>()).add(trainId);
+            if (!arrivee.equals(depart)) {
+                parGare.computeIfAbsent(arrivee, g -> new ArrayList<>()).add(trainId);
+            }
+        }
+        int supprimes = trainRepository.supprimerParIds(ids);
+        eventPublisher.publishEvent(new TrainsSupprimesEvent(ids, parGare));
+        return supprimes;
+    }
+
+    /** Compteurs d'une suppression, journalisés à chaque lot commité. */
+    private final class Progression {
+        private final String libelle;
+        private final long debut = System.nanoTime();
+        private int lots;
+        private long trains;
+
+        Progression(String libelle) {
+            this.libelle = libelle;
+        }
+
+        void lot(int supprimes) {
+            if (supprimes == 0) {
+                return;
+            }
+            lots++;
+            trains += supprimes;
+            log.info("Suppression {} : lot {} ({} trains), {} trains supprimés en {} ms",
+                    libelle, lots, supprimes, trains, dureeMs());
+        }
+
+        long dureeMs() {
+            return (System.nanoTime() - debut) / 1_000_000;
+        }
+
+        Map<String, Object> rapport() {
+            long dureeMs = dureeMs();
+            Map<String, Object> rapport = new LinkedHashMap<>();
+            rapport.put("trainsSupprimes", trains);
+            rapport.put("lots", lots);
+            rapport.put("tailleLot", tailleLot);
+            rapport.put("dureeMs", dureeMs);
+            rapport.put("trainsParSeconde", dureeMs > 0 ? Math.round(trains * 1000.0 / dureeMs) : trains);
+            return rapport;
+        }
+    }
+}
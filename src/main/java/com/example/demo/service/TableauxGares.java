@@ -0,0 +1,357 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.TrainVue;
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.event.TrainEvent;
+import com.example.demo.event.TrainsImportesEvent;
+import com.example.demo.event.TrainsSupprimesEvent;
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.TrainRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tableaux des départs et arrivées par gare, pour les écrans en gare.
+ *
+ * Chaque gare a un anneau de {@link #NB_PAQUETS} paquets de {@link #LARGEUR_PAQUET}
+ * secondes couvrant les prochaines 24 h ; le paquet absolu n (instants dans
+ * [n * largeur, (n + 1) * largeur[) occupe la case n % NB_PAQUETS. Un paquet est
+ * immuable (passages triés par heure) et porte son numéro absolu : une case qui
+ * contient un ancien paquet est lue comme vide. L'anneau avance chaque minute en
+ * chargeant les paquets qui entrent dans l'horizon ; les écritures sur les trains
+ * remplacent les paquets touchés après commit.
+ *
+ * Les lectures sont sans verrou et n'allouent que la liste renvoyée.
+ */
+@Component
+public class TableauxGares {
+
+    private static final Logger log = LoggerFactory.getLogger(TableauxGares.class);
+
+    static final int LARGEUR_PAQUET = 300;
+    static final int NB_PAQUETS = 288;
+
+    public static final int LIMITE_DEFAUT = 10;
+    public static final int LIMITE_MAX = 100;
+
+    private static final Paquet VIDE = new Paquet(-1, new long[0], new Passage[0]);
+
+    /**
+     * Une ligne du tableau. Pour un départ, la gare est la destination ;
+     * pour une arrivée, la provenance.
+     */
+    public record Passage(Long trainId, String numeroTrain, LocalDateTime heure,
+                          Long gareId, String gareNom, String ville) {}
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    // Remplacée d'un bloc au rechargement complet, pour ne jamais montrer un tableau vide
+    private volatile Map<Long, Tableau> tableaux = new ConcurrentHashMap<>();
+
+    // Paquets absolus chargés : [premierPaquet, dernierPaquet]
+    private volatile long premierPaquet;
+    private volatile long dernierPaquet = -1;
+
+    // Trains présents dans l'horizon, pour retrouver leurs anciens paquets (protégé par "this")
+    private final Map<Long, TrainVue> presents = new HashMap<>();
+
+    // ============ CHARGEMENT ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void charger() {
+        long debut = System.currentTimeMillis();
+        Map<Long, Tableau> nouveaux = new ConcurrentHashMap<>();
+        presents.clear();
+        long premier = Math.floorDiv(maintenant(), LARGEUR_PAQUET);
+        charger(nouveaux, premier, premier + NB_PAQUETS - 1);
+        tableaux = nouveaux;
+        premierPaquet = premier;
+        dernierPaquet = premier + NB_PAQUETS - 1;
+        log.info("Tableaux des gares chargés : {} trains sur {} gares en {} ms",
+                presents.size(), nouveaux.size(), System.currentTimeMillis() - debut);
+    }
+
+    // Fait entrer dans l'horizon les paquets atteints depuis le dernier passage
+    @Scheduled(fixedRate = 60_000, initialDelay = 60_000)
+    public synchronized void avancer() {
+        if (dernierPaquet < 0) {
+            return;
+        }
+        long premier = Math.floorDiv(maintenant(), LARGEUR_PAQUET);
+        long dernier = premier + NB_PAQUETS - 1;
+        if (dernier <= dernierPaquet) {
+            return;
+        }
+        if (premier > dernierPaquet) {
+            // Arrêt plus long que l'horizon : rechargement complet
+            charger();
+            return;
+        }
+        presents.values().removeIf(vue -> Math.max(paquet(vue.heureDepart()), paquet(vue.heureArrivee())) < premier);
+        charger(tableaux, dernierPaquet + 1, dernier);
+        premierPaquet = premier;
+        dernierPaquet = dernier;
+    }
+
+    // Les cases sont écrites avant que dernierPaquet ne les rende visibles
+    private void charger(Map<Long, Tableau> cible, long de, long jusqua) {
+        LocalDateTime debut = heure(de * LARGEUR_PAQUET);
+        LocalDateTime fin = heure((jusqua + 1) * LARGEUR_PAQUET);
+        Map<Long, Map<Long, List<TrainVue>>> departs = new HashMap<>();
+        for (TrainVue vue : trainRepository.findVuesParDepart(debut, fin)) {
+            presents.put(vue.id(), vue);
+            departs.computeIfAbsent(vue.gareDepart().id(), g -> new HashMap<>())
+                    .computeIfAbsent(paquet(vue.heureDepart()), p -> new ArrayList<>()).add(vue);
+        }
+        Map<Long, Map<Long, List<TrainVue>>> arrivees = new HashMap<>();
+        for (TrainVue vue : trainRepository.findVuesParArrivee(debut, fin)) {
+            presents.put(vue.id(), vue);
+            arrivees.computeIfAbsent(vue.gareArrivee().id(), g -> new HashMap<>())
+                    .computeIfAbsent(paquet(vue.heureArrivee()), p -> new ArrayList<>()).add(vue);
+        }
+        departs.forEach((gareId, paquets) -> paquets.forEach((numero, vues) ->
+                tableau(cible, gareId).departs.set(case_(numero), paquetDeparts(numero, vues))));
+        arrivees.forEach((gareId, paquets) -> paquets.forEach((numero, vues) ->
+                tableau(cible, gareId).arrivees.set(case_(numero), paquetArrivees(numero, vues))));
+    }
+
+    // ============ MISE À JOUR ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrain(TrainEvent event) {
+        if (event.getType() == TrainEvent.Type.SUPPRESSION) {
+            retirer(event.getTrainId());
+        } else {
+            placer(TrainVue.de(event.getTrain()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrainsImportes(TrainsImportesEvent event) {
+        for (Train train : event.getTrains()) {
+            placer(TrainVue.de(train));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTrainsSupprimes(TrainsSupprimesEvent event) {
+        for (Long id : event.getTrainIds()) {
+            retirer(id);
+        }
+    }
+
+    // Nom, ville ou gare supprimée (et ses trains) : rare, on recharge tout.
+    // Le statut, les voies ou la correspondance ne sont pas affichés : rien à recharger.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGare(GareEvent event) {
+        if (changeAffichage(event)) {
+            charger();
+        }
+    }
+
+    // Un seul rechargement pour tout le lot, s'il touche à l'affichage
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGaresModifiees(GaresModifieesEvent event) {
+        if (event.getModifications().stream().anyMatch(TableauxGares::changeAffichage)) {
+            charger();
+        }
+    }
+
+    private static boolean changeAffichage(GareEvent event) {
+        if (event.getType() == GareEvent.Type.CREATION) {
+            return false;
+        }
+        Gare avant = event.getAvant();
+        Gare gare = event.getGare();
+        return event.getType() == GareEvent.Type.SUPPRESSION || avant == null
+                || !Objects.equals(avant.getNom(), gare.getNom())
+                || !Objects.equals(avant.getVille(), gare.getVille());
+    }
+
+    private void placer(TrainVue vue) {
+        retirer(vue.id());
+        boolean depart = modifier(vue.gareDepart().id(), vue.heureDepart(), true, vue, false);
+        boolean arrivee = modifier(vue.gareArrivee().id(), vue.heureArrivee(), false, vue, false);
+        if (depart || arrivee) {
+            presents.put(vue.id(), vue);
+        }
+    }
+
+    private void retirer(Long trainId) {
+        TrainVue ancien = presents.remove(trainId);
+        if (ancien != null) {
+            modifier(ancien.gareDepart().id(), ancien.heureDepart(), true, ancien, true);
+            modifier(ancien.gareArrivee().id(), ancien.heureArrivee(), false, ancien, true);
+        }
+    }
+
+    /**
+     * Remplace le paquet qui contient (ou doit contenir) le train par une copie modifiée.
+     * Renvoie false si l'heure est hors de l'horizon chargé.
+     */
+    private boolean modifier(Long gareId, LocalDateTime heure, boolean depart, TrainVue vue, boolean retrait) {
+        long numero = paquet(heure);
+        if (numero < premierPaquet || numero > dernierPaquet) {
+            return false;
+        }
+        Tableau tableau = tableau(tableaux, gareId);
+        AtomicReferenceArray<Paquet> anneau = depart ? tableau.departs : tableau.arrivees;
+        Paquet courant = anneau.get(case_(numero));
+        List<TrainVue> vues = new ArrayList<>();
+        if (courant.numero == numero) {
+            for (Passage passage : courant.passages) {
+                if (!passage.trainId().equals(vue.id())) {
+                    TrainVue present = presents.get(passage.trainId());
+                    if (present != null) {
+                        vues.add(present);
+                    }
+                }
+            }
+        }
+        if (!retrait) {
+            vues.add(vue);
+        }
+        anneau.set(case_(numero), depart ? paquetDeparts(numero, vues) : paquetArrivees(numero, vues));
+        return true;
+    }
+
+    // ============ LECTURE ============
+
+    /**
+     * Prochains départs et arrivées de la gare à partir de maintenant.
+     */
+    public Map<String, Object> tableau(Long gareId, Integer limite) {
+        int n = limite == null || limite <= 0 ? LIMITE_DEFAUT : Math.min(limite, LIMITE_MAX);
+        long instant = maintenant();
+        Tableau tableau = tableaux.get(gareId);
+        Map<String, Object> resultat = new LinkedHashMap<>();
+        resultat.put("gareId", gareId);
+        resultat.put("maintenant", heure(instant));
+        resultat.put("departs", tableau == null ? List.of() : prochains(tableau.departs, instant, n));
+        resultat.put("arrivees", tableau == null ? List.of() : prochains(tableau.arrivees, instant, n));
+        return resultat;
+    }
+
+    private List<Passage> prochains(AtomicReferenceArray<Paquet> anneau, long instant, int n) {
+        List<Passage> resultat = new ArrayList<>(n);
+        long dernier = dernierPaquet;
+        for (long numero = Math.floorDiv(instant, LARGEUR_PAQUET);
+             numero <= dernier && resultat.size() < n; numero++) {
+            Paquet paquet = anneau.get(case_(numero));
+            if (paquet.numero != numero) {
+                continue;
+            }
+            int i = paquet.premier(instant);
+            for (; i < paquet.passages.length && resultat.size() < n; i++) {
+                resultat.add(paquet.passages[i]);
+            }
+        }
+        return resultat;
+    }
+
+    // ============ OUTILS ============
+
+    private static Tableau tableau(Map<Long, Tableau> tableaux, Long gareId) {
+        return tableaux.computeIfAbsent(gareId, g -> new Tableau());
+    }
+
+    private static long maintenant() {
+        return MoteurHoraire.secondes(LocalDateTime.now());
+    }
+
+    private static long paquet(LocalDateTime heure) {
+        return Math.floorDiv(MoteurHoraire.secondes(heure), LARGEUR_PAQUET);
+    }
+
+    private static int case_(long numero) {
+        return (int) Math.floorMod(numero, NB_PAQUETS);
+    }
+
+    private static LocalDateTime heure(long secondes) {
+        return LocalDateTime.ofEpochSecond(secondes, 0, ZoneOffset.UTC);
+    }
+
+    private static Paquet paquetDeparts(long numero, List<TrainVue> vues) {
+        vues.sort((a, b) -> a.heureDepart().equals(b.heureDepart())
+                ? Long.compare(a.id(), b.id()) : a.heureDepart().compareTo(b.heureDepart()));
+        long[] instants = new long[vues.size()];
+        Passage[] passages = new Passage[vues.size()];
+        for (int i = 0; i < passages.length; i++) {
+            TrainVue vue = vues.get(i);
+            instants[i] = MoteurHoraire.secondes(vue.heureDepart());
+            passages[i] = new Passage(vue.id(), vue.numeroTrain(), vue.heureDepart(),
+                    vue.gareArrivee().id(), vue.gareArrivee().nom(), vue.gareArrivee().ville());
+        }
+        return new Paquet(numero, instants, passages);
+    }
+
+    private static Paquet paquetArrivees(long numero, List<TrainVue> vues) {
+        vues.sort((a, b) -> a.heureArrivee().equals(b.heureArrivee())
+                ? Long.compare(a.id(), b.id()) : a.heureArrivee().compareTo(b.heureArrivee()));
+        long[] instants = new long[vues.size()];
+        Passage[] passages = new Passage[vues.size()];
+        for (int i = 0; i < passages.length; i++) {
+            TrainVue vue = vues.get(i);
+            instants[i] = MoteurHoraire.secondes(vue.heureArrivee());
+            passages[i] = new Passage(vue.id(), vue.numeroTrain(), vue.heureArrivee(),
+                    vue.gareDepart().id(), vue.gareDepart().nom(), vue.gareDepart().ville());
+        }
+        return new Paquet(numero, instants, passages);
+    }
+
+    // ============ STRUCTURES INTERNES ============
+
+    private static final class Tableau {
+        final AtomicReferenceArray<Paquet> departs = anneau();
+        final AtomicReferenceArray<Paquet> arrivees = anneau();
+
+        private static AtomicReferenceArray<Paquet> anneau() {
+            Paquet[] cases = new Paquet[NB_PAQUETS];
+            Arrays.fill(cases, VIDE);
+            return new AtomicReferenceArray<>(cases);
+        }
+    }
+
+    private static final class Paquet {
+        final long numero;
+        final long[] instants;
+        final Passage[] passages;
+
+        Paquet(long numero, long[] instants, Passage[] passages) {
+            this.numero = numero;
+            this.instants = instants;
+            this.passages = passages;
+        }
+
+        /** Premier passage à l'instant donné ou après. */
+        int premier(long instant) {
+            int bas = 0, haut = instants.length;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (instants[milieu] < instant) bas = milieu + 1; else haut = milieu;
+            }
+            return bas;
+        }
+    }
+}
@@ -1,92 +1,173 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.TrainVue;
+import com.example.demo.event.TrainEvent;
 import com.example.demo.model.Gare;
 import com.example.demo.model.Train;
-import com.example.demo.repository.GareRepository;
 import com.example.demo.repository.TrainRepository;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
+/**
+ * Écritures en transaction sur la primaire ; lectures en transaction readOnly,
+ * servies par une réplique quand il y en a (RepliquesConfig).
+ */
 @Service
 public class TrainService {
     
+    private static final Logger log = LoggerFactory.getLogger(TrainService.class);
+    
+    // Bornes utilisées quand aucune fenêtre de départ n'est demandée (garde les requêtes sur index)
+    private static final LocalDateTime DEBUT_PERIODE = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime FIN_PERIODE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    
     @Autowired
     private TrainRepository trainRepository;
     
     @Autowired
-    private GareRepository gareRepository;
+    private GareService gareService;
+    
+    @Autowired
+    private MoteurHoraire moteurHoraire;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private IndexRecherche indexRecherche;
+    
+    @Value("${rahal.recherche.taille-lot:1000}")
+    private int tailleLotRecherche;
     
     // CRUD methods...
+    @Transactional
     public Train createTrain(Train train) {
+        validerHoraires(train.getHeureDepart(), train.getHeureArrivee());
         
-        Gare gareDepart = gareRepository.findById(train.getGareDepart().getId())
+        Gare gareDepart = gareService.trouverGare(train.getGareDepart().getId())
                 .orElseThrow(() -> new RuntimeException("Gare de départ non trouvée"));
         
-        Gare gareArrivee = gareRepository.findById(train.getGareArrivee().getId())
+        Gare gareArrivee = gareService.trouverGare(train.getGareArrivee().getId())
                 .orElseThrow(() -> new RuntimeException("Gare d'arrivée non trouvée"));
         
         train.setGareDepart(gareDepart);
         train.setGareArrivee(gareArrivee);
         
-        return trainRepository.save(train);
+        Train saved = trainRepository.save(train);
+        eventPublisher.publishEvent(new TrainEvent(TrainEvent.Type.CREATION, saved));
+        return saved;
     }
     
+    @Transactional(readOnly = true)
     public List<Train> getAllTrains() {
         return trainRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public Train getTrainById(Long id) {
         return trainRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Train non trouvé avec l'id: " + id));
     }
     
+    @Transactional
     public Train updateTrain(Long id, Train trainDetails) {
+        return updateTrain(id, trainDetails, null);
+    }
+    
+    // versionAttendue (If-Match) : même contrôle que GareService.updateGare
+    @Transactional
+    public Train updateTrain(Long id, Train trainDetails, Long versionAttendue) {
+        validerHoraires(trainDetails.getHeureDepart(), trainDetails.getHeureArrivee());
         Train train = getTrainById(id);
+        if (versionAttendue != null && versionAttendue != train.getVersion()) {
+            throw new OptimisticLockingFailureException("Le train " + id + " a été modifié entre-temps (version "
+                    + train.getVersion() + ")");
+        }
+        Train avant = copie(train);
         train.setNumeroTrain(trainDetails.getNumeroTrain());
         train.setHeureDepart(trainDetails.getHeureDepart());
         train.setHeureArrivee(trainDetails.getHeureArrivee());
         
         if (trainDetails.getGareDepart() != null) {
-            Gare gareDepart = gareRepository.findById(trainDetails.getGareDepart().getId())
+            Gare gareDepart = gareService.trouverGare(trainDetails.getGareDepart().getId())
                     .orElseThrow(() -> new RuntimeException("Gare de départ non trouvée"));
             train.setGareDepart(gareDepart);
         }
         
         if (trainDetails.getGareArrivee() != null) {
-            Gare gareArrivee = gareRepository.findById(trainDetails.getGareArrivee().getId())
+            Gare gareArrivee = gareService.trouverGare(trainDetails.getGareArrivee().getId())
                     .orElseThrow(() -> new RuntimeException("Gare d'arrivée non trouvée"));
             train.setGareArrivee(gareArrivee);
         }
         
-        return trainRepository.save(train);
+        Train saved = trainRepository.save(train);
+        eventPublisher.publishEvent(new TrainEvent(TrainEvent.Type.MISE_A_JOUR, saved, avant));
+        return saved;
+    }
+    
+    // La durée stockée (duree_minutes) en dépend : jamais de trajet sans heures ni à rebours
+    private static void validerHoraires(LocalDateTime heureDepart, LocalDateTime heureArrivee) {
+        if (heureDepart == null || heureArrivee == null) {
+            throw new RuntimeException("Les heures de départ/arrivée ne sont pas définies");
+        }
+        if (heureDepart.isAfter(heureArrivee)) {
+            throw new RuntimeException("L'heure de départ doit être avant l'heure d'arrivée");
+        }
     }
     
+    // Complète la durée des trains enregistrés avant l'ajout de la colonne
+    @EventListener(ApplicationReadyEvent.class)
+    public void completerDurees() {
+        int completes = trainRepository.completerDurees();
+        if (completes > 0) {
+            log.info("Durée calculée pour {} trains existants", completes);
+        }
+    }
+    
+    @Transactional
     public void deleteTrain(Long id) {
         Train train = getTrainById(id);
         trainRepository.delete(train);
+        eventPublisher.publishEvent(new TrainEvent(TrainEvent.Type.SUPPRESSION, train));
     }
     
     // Services spécifiques
+    @Transactional(readOnly = true)
     public List<Train> getTrainsByVilles(String villeDepart, String villeArrivee) {
         return trainRepository.findByGareDepartVilleAndGareArriveeVille(villeDepart, villeArrivee);
     }
     
+    @Transactional(readOnly = true)
     public List<Train> getTrainsByGare(Long gareId) {
         return trainRepository.findTrainsByGareId(gareId);
     }
     
+    @Transactional(readOnly = true)
     public List<Train> getTrainsByNumero(String numero) {
         return trainRepository.findByNumeroTrainContainingIgnoreCase(numero);
     }
     
+    @Transactional(readOnly = true)
     public List<Train> getTrainsProchains() {
         // Retourne les trains des prochaines 24h
         LocalDateTime maintenant = LocalDateTime.now();
@@ -94,36 +175,118 @@ public class TrainService {
         return trainRepository.findByHeureDepartBetween(maintenant, demain);
     }
     
-    // ✅ FIXED: Using java.time.Duration
+    // ============ PAGINATION PAR CLÉ ============
+    
+    @Transactional(readOnly = true)
+    public PageCurseur<TrainVue> getTrainsPage(Curseur curseur, int taille) {
+        return paginer(curseur, taille,
+                limite -> trainRepository.pageParId(curseur.getId(), limite),
+                limite -> trainRepository.pageParDepart(curseur.getHeureDepart(), curseur.getId(), limite));
+    }
+    
+    // Pas readOnly : l'ETag de cette liste vient des versions en mémoire (à jour), une réplique
+    // en retard servirait des trains périmés sous un ETag récent
+    @Transactional
+    public PageCurseur<TrainVue> getTrainsByGarePage(Long gareId, Curseur curseur, int taille) {
+        return paginer(curseur, taille,
+                limite -> trainRepository.pageParGareParId(gareId, curseur.getId(), limite),
+                limite -> trainRepository.pageParGareParDepart(gareId, curseur.getHeureDepart(), curseur.getId(), limite));
+    }
+    
+    // Les ids viennent de l'index trigrammes ; le LIKE ne sert qu'avant son chargement
+    @Transactional(readOnly = true)
+    public PageCurseur<TrainVue> getTrainsByNumeroPage(String numero, Curseur curseur, int taille) {
+        if (!indexRecherche.estCharge()) {
+            return paginer(curseur, taille,
+                    limite -> trainRepository.pageParNumeroParId(numero, curseur.getId(), limite),
+                    limite -> trainRepository.pageParNumeroParDepart(numero, curseur.getHeureDepart(), curseur.getId(), limite));
+        }
+        PageCurseur<Long> ids = indexRecherche.pageTrains(numero, curseur, taille);
+        if (ids.getElements().isEmpty()) {
+            return new PageCurseur<>(List.of(), ids.getCurseurSuivant());
+        }
+        Map<Long, TrainVue> parId = new HashMap<>();
+        for (TrainVue vue : trainRepository.findVuesByIds(ids.getElements())) {
+            parId.put(vue.id(), vue);
+        }
+        List<TrainVue> trains = new ArrayList<>(parId.size());
+        for (Long id : ids.getElements()) {
+            TrainVue vue = parId.get(id);
+            if (vue != null) {
+                trains.add(vue);
+            }
+        }
+        return new PageCurseur<>(trains, ids.getCurseurSuivant());
+    }
+    
+    public List<Map<String, Object>> autocompleterTrains(String texte, Integer limite) {
+        return indexRecherche.autocompleterTrains(texte, limite);
+    }
+    
+    @Transactional(readOnly = true)
+    public PageCurseur<TrainVue> getTrainsByVillesPage(String villeDepart, String villeArrivee, Curseur curseur, int taille) {
+        return paginer(curseur, taille,
+                limite -> trainRepository.pageParVillesParId(villeDepart, villeArrivee, curseur.getId(), limite),
+                limite -> trainRepository.pageParVillesParDepart(
+                        villeDepart, villeArrivee, curseur.getHeureDepart(), curseur.getId(), limite));
+    }
+    
+    // Trains dont la durée est dans [dureeMin, dureeMax], départ optionnellement dans [debut, fin[,
+    // triés par durée puis heure de départ : lecture dans l'ordre de idx_train_duree
+    @Transactional(readOnly = true)
+    public PageCurseur<TrainVue> getTrainsByDureePage(Integer dureeMin, Integer dureeMax,
+                                                     LocalDateTime debut, LocalDateTime fin,
+                                                     Curseur curseur, int taille) {
+        int min = dureeMin != null ? dureeMin : 0;
+        int max = dureeMax != null ? dureeMax : Integer.MAX_VALUE;
+        if (min < 0 || min > max) {
+            throw new IllegalArgumentException("La durée minimale doit être positive et inférieure à la durée maximale");
+        }
+        LocalDateTime borneDebut = debut != null ? debut : DEBUT_PERIODE;
+        LocalDateTime borneFin = fin != null ? fin : FIN_PERIODE;
+        // Les durées déjà parcourues sont exclues par la borne basse, pas par un filtre ligne à ligne
+        int borneMin = Math.max(min, curseur.getDureeMinutes());
+        List<TrainVue> trains = trainRepository.pageParDuree(borneMin, max, borneDebut, borneFin,
+                curseur.getDureeMinutes(), curseur.getHeureDepart(), curseur.getId(), PageRequest.of(0, taille + 1));
+        return PageCurseur.de(trains, taille, train -> Curseur.apres(train, Curseur.Tri.DUREE));
+    }
+    
+    // Lit taille + 1 lignes pour savoir s'il reste une page, jamais plus
+    private PageCurseur<TrainVue> paginer(Curseur curseur, int taille,
+                                       Function<Pageable, List<TrainVue>> parId,
+                                       Function<Pageable, List<TrainVue>> parDepart) {
+        Pageable limite = PageRequest.of(0, taille + 1);
+        List<TrainVue> trains = curseur.getTri() == Curseur.Tri.ID ? parId.apply(limite) : parDepart.apply(limite);
+        return PageCurseur.de(trains, taille, train -> Curseur.apres(train, curseur.getTri()));
+    }
+    
+    // Lit la durée stockée (duree_minutes), validée à l'écriture
+    @Transactional(readOnly = true)
     public Map<String, Object> calculerDureeVoyage(Long trainId) {
         Train train = getTrainById(trainId);
         
-        if (train.getHeureDepart() == null || train.getHeureArrivee() == null) {
-            throw new RuntimeException("Les heures de départ/arrivée ne sont pas définies");
-        }
-        
-        if (train.getHeureDepart().isAfter(train.getHeureArrivee())) {
-            throw new RuntimeException("L'heure de départ doit être avant l'heure d'arrivée");
+        Integer minutes = train.getDureeMinutes();
+        if (minutes == null) {
+            validerHoraires(train.getHeureDepart(), train.getHeureArrivee());
+            minutes = Train.dureeMinutes(train.getHeureDepart(), train.getHeureArrivee());
         }
         
-        // Use java.time.Duration
-        Duration duree = Duration.between(train.getHeureDepart(), train.getHeureArrivee());
-        
         Map<String, Object> result = new HashMap<>();
         result.put("trainId", trainId);
         result.put("numeroTrain", train.getNumeroTrain());
         result.put("heureDepart", train.getHeureDepart());
         result.put("heureArrivee", train.getHeureArrivee());
-        result.put("dureeEnMinutes", duree.toMinutes());
-        result.put("dureeEnHeures", duree.toHours());
-        result.put("dureeFormatee", String.format("%dh %02dm", 
-            duree.toHours(), 
-            duree.toMinutes() % 60)); // Fixed: use % operator
+        result.put("dureeEnMinutes", (long) minutes);
+        result.put("dureeEnHeures", (long) minutes / 60);
+        result.put("dureeFormatee", String.format("%dh %02dm", minutes / 60, minutes % 60));
         
         return result;
     }
     
     // ✅ Add the rechercheAvancee method
+    // Les filtres sont résolus par le moteur horaire (index en mémoire), seuls les trains
+    // retenus sont chargés depuis la base, par lots de tailleLotRecherche ids (IN borné).
+    @Transactional(readOnly = true)
     public List<Train> rechercheAvancee(
             String villeDepart,
             String villeArrivee,
@@ -132,54 +295,29 @@ public class TrainService {
             Integer dureeMaxMinutes,
             Boolean gareOuverteSeulement) {
         
-        List<Train> allTrains = trainRepository.findAll();
+        long[] ids = moteurHoraire.rechercher(
+                villeDepart, villeArrivee, dateDebut, dateFin, dureeMaxMinutes, gareOuverteSeulement);
+        if (ids.length == 0) {
+            return List.of();
+        }
         
-        return allTrains.stream()
-                .filter(train -> {
-                    // Filter by departure city
-                    if (villeDepart != null && !villeDepart.isEmpty()) {
-                        return train.getGareDepart().getVille().equalsIgnoreCase(villeDepart);
-                    }
-                    return true;
-                })
-                .filter(train -> {
-                    // Filter by arrival city
-                    if (villeArrivee != null && !villeArrivee.isEmpty()) {
-                        return train.getGareArrivee().getVille().equalsIgnoreCase(villeArrivee);
-                    }
-                    return true;
-                })
-                .filter(train -> {
-                    // Filter by start date
-                    if (dateDebut != null && train.getHeureDepart() != null) {
-                        return !train.getHeureDepart().isBefore(dateDebut);
-                    }
-                    return true;
-                })
-                .filter(train -> {
-                    // Filter by end date
-                    if (dateFin != null && train.getHeureDepart() != null) {
-                        return !train.getHeureDepart().isAfter(dateFin);
-                    }
-                    return true;
-                })
-                .filter(train -> {
-                    // Filter by max duration
-                    if (dureeMaxMinutes != null && dureeMaxMinutes > 0 
-                        && train.getHeureDepart() != null && train.getHeureArrivee() != null) {
-                        Duration duree = Duration.between(train.getHeureDepart(), train.getHeureArrivee());
-                        return duree.toMinutes() <= dureeMaxMinutes;
-                    }
-                    return true;
-                })
-                .filter(train -> {
-                    // Filter by open stations only
-                    if (gareOuverteSeulement != null && gareOuverteSeulement) {
-                        return train.getGareDepart().getEstOuverte() 
-                               && train.getGareArrivee().getEstOuverte();
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
-    }
-}
\ No newline at end of file
+        // Ids triés : les lots se suivent, il suffit de trier chaque lot chargé
+        List<Train> trains = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += tailleLotRecherche) {
+            List<Train> lot = new ArrayList<>(trainRepository.findAllById(
+                    Arrays.stream(ids, from, Math.min(from + tailleLotRecherche, ids.length)).boxed().toList()));
+            lot.sort(Comparator.comparing(Train::getId));
+            trains.addAll(lot);
+        }
+        return trains;
+    }
+    
+    // Copie détachée publiée dans TrainEvent ("avant"), avec les gares d'origine
+    static Train copie(Train train) {
+        Train copie = new Train(train.getNumeroTrain(), train.getHeureDepart(), train.getHeureArrivee(),
+                GareService.copie(train.getGareDepart()), GareService.copie(train.getGareArrivee()));
+        copie.setId(train.getId());
+        copie.setVersion(train.getVersion());
+        return copie;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.event.TrainEvent;
+import com.example.demo.event.TrainsImportesEvent;
+import com.example.demo.event.TrainsSupprimesEvent;
+import com.example.demo.model.Train;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions des collections servies en GET conditionnel : toutes les gares, et
+ * les trains de chaque gare. Incrémentées après commit par les mêmes événements
+ * que les index en mémoire, elles donnent un ETag sans lire la base.
+ *
+ * L'ETag commence par l'instant de démarrage : après un redémarrage, les
+ * compteurs repartent de zéro sans jamais redonner un ETag déjà servi.
+ * Un appelant doit lire la version AVANT les données : une écriture commitée
+ * entre les deux donne au pire un ETag en retard, jamais une donnée périmée
+ * sous un ETag à jour.
+ */
+@Component
+public class VersionsCollections {
+
+    private final long demarrage = System.currentTimeMillis();
+
+    private final AtomicLong gares = new AtomicLong();
+    private volatile long garesModifieesLe = demarrage;
+
+    // Les vues de trains contiennent les deux gares : toute écriture sur une gare
+    // (ou sa suppression, avec ses trains) change des listes d'autres gares
+    private final AtomicLong generationTrains = new AtomicLong();
+    private final Map<Long, AtomicLong> trainsParGare = new ConcurrentHashMap<>();
+    private volatile long trainsModifiesLe = demarrage;
+
+    // ============ LECTURE ============
+
+    public String etagGares() {
+        return "g" + demarrage + "-" + gares.get();
+    }
+
+    public long garesModifieesLe() {
+        return garesModifieesLe;
+    }
+
+    public String etagTrainsDeGare(Long gareId) {
+        AtomicLong version = trainsParGare.get(gareId);
+        return "t" + demarrage + "-" + generationTrains.get() + "-" + (version == null ? 0 : version.get());
+    }
+
+    public long trainsModifiesLe() {
+        return trainsModifiesLe;
+    }
+
+    // ============ MISE À JOUR ============
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGare(GareEvent event) {
+        gares.incrementAndGet();
+        garesModifieesLe = System.currentTimeMillis();
+        if (event.getType() != GareEvent.Type.CREATION) {
+            generationTrains.incrementAndGet();
+            trainsModifiesLe = garesModifieesLe;
+        }
+        if (event.getType() == GareEvent.Type.SUPPRESSION) {
+            trainsParGare.remove(event.getGareId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGaresModifiees(GaresModifieesEvent event) {
+        gares.incrementAndGet();
+        garesModifieesLe = System.currentTimeMillis();
+        // Une gare créée n'a pas encore de trains
+        if (event.getModifications().stream().anyMatch(m -> m.getType() != GareEvent.Type.CREATION)) {
+            generationTrains.incrementAndGet();
+            trainsModifiesLe = garesModifieesLe;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrain(TrainEvent event) {
+        toucher(event.getTrain());
+        if (event.getAvant() != null) {
+            toucher(event.getAvant());
+        }
+        trainsModifiesLe = System.currentTimeMillis();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainsImportes(TrainsImportesEvent event) {
+        for (Train train : event.getTrains()) {
+            toucher(train);
+        }
+        trainsModifiesLe = System.currentTimeMillis();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainsSupprimes(TrainsSupprimesEvent event) {
+        for (Long gareId : event.getTrainsParGare().keySet()) {
+            incrementer(gareId);
+        }
+        trainsModifiesLe = System.currentTimeMillis();
+    }
+
+    private void toucher(Train train) {
+        incrementer(train.getGareDepart().getId());
+        incrementer(train.getGareArrivee().getId());
+    }
+
+    private void incrementer(Long gareId) {
+        trainsParGare.computeIfAbsent(gareId, id -> new AtomicLong()).incrementAndGet();
+    }
+}
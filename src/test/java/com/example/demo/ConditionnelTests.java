@@ -0,0 +1,38 @@
+package com.example.demo;
+
+import com.example.demo.service.GareService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETags et GET conditionnels : un 304 est servi sans requête SQL.
+ */
+class ConditionnelTests extends ReseauDeTest {
+
+    @Autowired
+    private GareService gareService;
+
+    @Test
+    void getConditionnelSansRequete() throws Exception {
+        String etag = mockMvc.perform(get("/api/trains/gare/{id}", gareId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag, "ETag de la liste des trains de la gare");
+
+        statistiques.clear();
+        mockMvc.perform(get("/api/trains/gare/{id}", gareId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, statistiques.getPrepareStatementCount(), "aucune requête SQL pour un 304");
+
+        // Une gare modifiée change les vues des trains qui la desservent
+        gareService.updateGareStatus(gareId, false);
+        mockMvc.perform(get("/api/trains/gare/{id}", gareId).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+}
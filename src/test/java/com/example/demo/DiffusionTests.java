@@ -0,0 +1,140 @@
+package com.example.demo;
+
+import com.example.demo.service.DiffusionHoraires;
+import com.example.demo.service.GareService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Diffusion des changements d'horaires aux abonnés d'une gare (SSE, WebSocket).
+ */
+class DiffusionTests extends ReseauDeTest {
+
+    @Autowired
+    private DiffusionHoraires diffusionHoraires;
+
+    @Autowired
+    private GareService gareService;
+
+    // Bien plus que de threads porteurs ou que l'ancien pool d'envoi
+    private static final int CLIENTS_BLOQUES = 32;
+
+    @Test
+    void deltaDiffuseAuxAbonnesDeLaGare() throws Exception {
+        BlockingQueue<DiffusionHoraires.Message> recus = new LinkedBlockingQueue<>();
+        DiffusionHoraires.Abonne abonne = new DiffusionHoraires.Abonne(Set.of(gareId), 8) {
+            @Override
+            protected void envoyer(DiffusionHoraires.Message message) {
+                recus.add(message);
+            }
+
+            @Override
+            protected void fermer(String raison) {
+            }
+        };
+        diffusionHoraires.abonner(abonne);
+        try {
+            gareService.updateGareStatus(gareId, false);
+            DiffusionHoraires.Message message = recus.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message, "delta reçu");
+            assertEquals("GARE_MODIFIEE", message.type());
+        } finally {
+            diffusionHoraires.desabonner(abonne);
+        }
+    }
+
+    @Test
+    void clientsBloquesNeRetardentPasLesAutres() throws Exception {
+        CountDownLatch bloques = new CountDownLatch(CLIENTS_BLOQUES);
+        CountDownLatch fermes = new CountDownLatch(CLIENTS_BLOQUES);
+        List<DiffusionHoraires.Abonne> lents = clientsBloques(bloques, fermes);
+        // Pour chaque delta reçu : combien de clients bloqués étaient encore connectés
+        BlockingQueue<Long> connectes = new LinkedBlockingQueue<>();
+        DiffusionHoraires.Abonne rapide = new DiffusionHoraires.Abonne(Set.of(gareId), 8) {
+            @Override
+            protected void envoyer(DiffusionHoraires.Message message) {
+                connectes.add(fermes.getCount());
+            }
+
+            @Override
+            protected void fermer(String raison) {
+            }
+        };
+        lents.forEach(diffusionHoraires::abonner);
+        try {
+            gareService.updateGareStatus(gareId, false);
+            assertTrue(bloques.await(5, TimeUnit.SECONDS), "clients bloqués en cours d'envoi");
+            diffusionHoraires.abonner(rapide);
+            for (int i = 0; i < 5; i++) {
+                gareService.updateGareStatus(gareId, i % 2 == 0);
+            }
+
+            for (int i = 0; i < 5; i++) {
+                Long encoreConnectes = connectes.poll(5, TimeUnit.SECONDS);
+                assertNotNull(encoreConnectes, "delta " + i + " reçu");
+                // Reçu sans attendre que les clients bloqués soient éjectés
+                assertEquals(CLIENTS_BLOQUES, encoreConnectes.intValue(), "clients bloqués encore connectés");
+            }
+        } finally {
+            lents.forEach(diffusionHoraires::desabonner);
+            diffusionHoraires.desabonner(rapide);
+        }
+    }
+
+    @Test
+    void clientsBloquesDeconnectesHorsDesThreadsDEnvoi() throws Exception {
+        CountDownLatch bloques = new CountDownLatch(CLIENTS_BLOQUES);
+        CountDownLatch fermes = new CountDownLatch(CLIENTS_BLOQUES);
+        List<DiffusionHoraires.Abonne> lents = clientsBloques(bloques, fermes);
+        lents.forEach(diffusionHoraires::abonner);
+        try {
+            gareService.updateGareStatus(gareId, false);
+            assertTrue(bloques.await(5, TimeUnit.SECONDS), "clients bloqués en cours d'envoi");
+
+            Thread.sleep(diffusionHoraires.getEnvoiTimeoutMs() + 50);
+            diffusionHoraires.surveillerEnvois();
+            assertTrue(fermes.await(5, TimeUnit.SECONDS), "clients bloqués fermés hors de leur thread d'envoi");
+        } finally {
+            lents.forEach(diffusionHoraires::desabonner);
+        }
+    }
+
+    // Clients qui ne lisent plus : l'envoi reste bloqué jusqu'à la fermeture de leur connexion
+    private List<DiffusionHoraires.Abonne> clientsBloques(CountDownLatch bloques, CountDownLatch fermes) {
+        List<DiffusionHoraires.Abonne> lents = new ArrayList<>();
+        for (int i = 0; i < CLIENTS_BLOQUES; i++) {
+            CountDownLatch connexionFermee = new CountDownLatch(1);
+            lents.add(new DiffusionHoraires.Abonne(Set.of(gareId), 8) {
+                @Override
+                protected void envoyer(DiffusionHoraires.Message message) throws IOException {
+                    bloques.countDown();
+                    try {
+                        connexionFermee.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                protected void fermer(String raison) {
+                    connexionFermee.countDown();
+                    fermes.countDown();
+                }
+            });
+        }
+        return lents;
+    }
+}
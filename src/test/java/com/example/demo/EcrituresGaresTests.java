@@ -0,0 +1,102 @@
+package com.example.demo;
+
+import com.example.demo.event.GareEvent;
+import com.example.demo.event.GaresModifieesEvent;
+import com.example.demo.model.Gare;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Écritures ensemblistes sur les gares : statut en masse et JSON Merge Patch.
+ */
+@RecordApplicationEvents
+class EcrituresGaresTests extends ReseauDeTest {
+
+    @Autowired
+    private ApplicationEvents evenements;
+
+    @Test
+    void creationMultipleEnUnSeulEvenement() throws Exception {
+        mockMvc.perform(post("/api/gares/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"nom\": \"Rennes\", \"ville\": \"Rennes\", \"nombreVoies\": 9},"
+                                + " {\"nom\": \"Nantes\", \"ville\": \"Nantes\", \"nombreVoies\": 10},"
+                                + " {\"nom\": \"Brest\", \"ville\": \"Brest\", \"nombreVoies\": 5}]"))
+                .andExpect(status().isCreated());
+        // Un seul lot : l'index des gares n'est recopié qu'une fois
+        assertEquals(0, evenements.stream(GareEvent.class).count(), "événements par gare");
+        assertEquals(1, evenements.stream(GaresModifieesEvent.class).count(), "événements de lot");
+
+        mockMvc.perform(get("/api/gares").param("ville", "Rennes,Nantes,Brest").param("ouverte", "true"))
+                .andExpect(jsonPath("$.length()").value(3));
+        mockMvc.perform(get("/api/gares/autocomplete").param("q", "nantes"))
+                .andExpect(jsonPath("$[0].nom").value("Nantes"));
+    }
+
+    @Test
+    void statutEnMasseEnUneRequete() throws Exception {
+        statistiques.clear();
+        mockMvc.perform(patch("/api/gares/batch/status").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"estOuverte\": false, \"ville\": [\"Paris\", \"Lyon\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.modifiees").value(2));
+        // Un UPDATE ensembliste : ni gare chargée, ni UPDATE par entité
+        assertEquals(0, statistiques.getEntityLoadCount(), "gares chargées");
+        assertEquals(0, statistiques.getEntityUpdateCount(), "UPDATE par entité");
+
+        // Index et cache à jour après commit
+        mockMvc.perform(get("/api/gares").param("ouverte", "false"))
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/api/gares/{id}", gareId))
+                .andExpect(jsonPath("$.estOuverte").value(false))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void statutEnMassePublieLesVersionsRelues() throws Exception {
+        // Écriture hors services : l'index garde la version 0 et l'ancien nombre de voies
+        Gare gare = gareRepository.findById(gareId).orElseThrow();
+        gare.setNombreVoies(21);
+        gareRepository.save(gare);
+
+        mockMvc.perform(patch("/api/gares/batch/status").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"estOuverte\": false, \"ids\": [" + gareId + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.modifiees").value(1));
+        mockMvc.perform(get("/api/gares/{id}", gareId))
+                .andExpect(jsonPath("$.estOuverte").value(false))
+                .andExpect(jsonPath("$.nombreVoies").value(21))
+                .andExpect(jsonPath("$.version").value(2));
+    }
+
+    @Test
+    void mergePatchEcritLesSeulesColonnesModifiees() throws Exception {
+        mockMvc.perform(patch("/api/gares/{id}", gareId).contentType("application/merge-patch+json")
+                        .content("{\"nombreVoies\": 22, \"tempsCorrespondance\": null}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombreVoies").value(22))
+                .andExpect(jsonPath("$.nom").value("Paris Gare de Lyon"));
+
+        mockMvc.perform(patch("/api/gares/{id}", gareId).contentType("application/merge-patch+json")
+                        .header("If-Match", "\"0\"").content("{\"nombreVoies\": 4}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void mergePatchGareInconnue() throws Exception {
+        mockMvc.perform(patch("/api/gares/{id}", 999999L).contentType("application/merge-patch+json")
+                        .content("{\"nombreVoies\": 4}"))
+                .andExpect(status().isNotFound());
+    }
+}
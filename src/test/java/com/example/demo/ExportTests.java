@@ -0,0 +1,37 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Export NDJSON : une ligne par train, de la même forme que la sérialisation JSON d'un Train.
+ */
+class ExportTests extends ReseauDeTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void ndjsonCommeLaSerialisationDUnTrain() throws Exception {
+        MvcResult debut = mockMvc.perform(get("/api/trains/export").param("villeDepart", "Paris"))
+                .andReturn();
+        String corps = mockMvc.perform(asyncDispatch(debut))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lignes = corps.split("\n");
+        assertEquals(10, lignes.length);
+
+        JsonNode exporte = objectMapper.readTree(lignes[0]);
+        String json = mockMvc.perform(get("/api/trains/{id}", trainId))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(objectMapper.readTree(json), exporte);
+    }
+}
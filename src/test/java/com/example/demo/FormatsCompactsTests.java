@@ -0,0 +1,33 @@
+package com.example.demo;
+
+import com.example.demo.controller.ReponsesCompactes;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Listes de trains en JSON compact (dictionnaire des gares) ou en CBOR.
+ */
+class FormatsCompactsTests extends ReseauDeTest {
+
+    @Test
+    void listeCompacteAvecDictionnaireDesGares() throws Exception {
+        mockMvc.perform(get("/api/trains/gare/{id}", gareId)
+                        .accept(ReponsesCompactes.COMPACT_JSON_VALUE).param("taille", "50"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andExpect(jsonPath("$.gares.length()").value(3))
+                .andExpect(jsonPath("$.trains.length()").value(20))
+                .andExpect(jsonPath("$.trains[0].gareDepartId").exists());
+
+        mockMvc.perform(get("/api/trains/gare/{id}", gareId).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Import en masse : un INSERT multi-lignes par lot, ids générés rendus aux
+ * trains dans l'ordre (le moteur horaire les reçoit par TrainsImportesEvent).
+ */
+class ImportTests extends ReseauDeTest {
+
+    @Test
+    void insertionMultiLignesEtIdsGeneres() throws Exception {
+        mockMvc.perform(post("/api/trains/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + train("TER8001", 8) + ", " + train("TGV6000", 9) + ", " + train("TER8002", 10) + "]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.inseres").value(2))
+                .andExpect(jsonPath("$.erreurs[0].numeroTrain").value("TGV6000"));
+
+        // Ids du moteur horaire rechargés en base : chaque id doit désigner le bon train
+        mockMvc.perform(get("/api/trains/recherche-avancee")
+                        .param("villeDepart", "Lille")
+                        .param("dateDebut", "2024-06-03T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].numeroTrain", contains("TER8001", "TER8002")))
+                .andExpect(jsonPath("$[*].heureDepart", contains("2024-06-03T08:00:00", "2024-06-03T10:00:00")));
+    }
+
+    private String train(String numero, int heure) {
+        return String.format("{\"numeroTrain\": \"%s\", "
+                + "\"heureDepart\": \"2024-06-03T%02d:00:00\", \"heureArrivee\": \"2024-06-03T%02d:30:00\", "
+                + "\"gareDepart\": {\"id\": %d}, \"gareArrivee\": {\"id\": %d}}",
+                numero, heure, heure, gares.get(3).getId(), gareId);
+    }
+}
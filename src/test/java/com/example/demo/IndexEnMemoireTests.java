@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import com.example.demo.model.Gare;
+import com.example.demo.service.GareService;
+import com.example.demo.service.StatistiquesGlobales;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.hamcrest.Matchers.aMapWithSize;
+
+/**
+ * Autocomplétion (index trigrammes) et filtre des gares (index bitmap) :
+ * servis depuis la mémoire, sans aucune requête SQL.
+ */
+class IndexEnMemoireTests extends ReseauDeTest {
+
+    @Autowired
+    private GareService gareService;
+
+    @Autowired
+    private StatistiquesGlobales statistiquesGlobales;
+
+    @Test
+    void autocompletionSansRequete() throws Exception {
+        assertRequetes(0, get("/api/trains/autocomplete").param("q", "tgv600").param("limite", "3"));
+        assertRequetes(0, get("/api/gares/autocomplete").param("q", "lyon"));
+        assertEquals(0, statistiques.getTransactionCount(), "ni transaction ni connexion");
+
+        mockMvc.perform(get("/api/trains/autocomplete").param("q", "tgv600").param("limite", "3"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].numeroTrain").value("TGV6000"));
+        // Préfixe du nom avant préfixe d'un mot
+        mockMvc.perform(get("/api/gares/autocomplete").param("q", "lyon"))
+                .andExpect(jsonPath("$[0].nom").value("Lyon Part-Dieu"))
+                .andExpect(jsonPath("$[1].nom").value("Paris Gare de Lyon"));
+    }
+
+    @Test
+    void filtreDesGaresSansRequete() throws Exception {
+        assertRequetes(0, get("/api/gares").param("minVoies", "10").param("ouverte", "true"));
+        assertEquals(0, statistiques.getTransactionCount(), "ni transaction ni connexion");
+
+        mockMvc.perform(get("/api/gares")
+                        .param("minVoies", "10").param("maxVoies", "15").param("ville", "Lyon,Marseille"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].nom").value("Lyon Part-Dieu"));
+        mockMvc.perform(get("/api/gares").param("prefixe", "paris"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void statistiquesGlobalesParVilleExacte() throws Exception {
+        statistiquesGlobales.charger();
+        gareService.createGare(new Gare("Paris Nord", "PARIS", 30, true));
+
+        // Compteur incrémental puis recomptage GROUP BY : une entrée par valeur exacte de ville
+        for (int passage = 0; passage < 2; passage++) {
+            mockMvc.perform(get("/api/gares/statistiques/globales"))
+                    .andExpect(jsonPath("$.distributionParVille", aMapWithSize(5)))
+                    .andExpect(jsonPath("$.distributionParVille.Paris").value(1))
+                    .andExpect(jsonPath("$.distributionParVille.PARIS").value(1));
+            statistiquesGlobales.verifier();
+        }
+    }
+}
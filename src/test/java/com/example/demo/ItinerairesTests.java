@@ -0,0 +1,105 @@
+package com.example.demo;
+
+import com.example.demo.model.Train;
+import com.example.demo.service.GareService;
+import com.example.demo.service.MoteurHoraire;
+import com.example.demo.service.TrainService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Planificateur d'itinéraires (CSA) sur le réseau de test : Paris → Lyon est
+ * direct, Paris → Marseille passe par Lyon où le temps de correspondance compte.
+ * Les écritures récentes (surcouche du moteur horaire) sont vues sans reconstruction.
+ */
+class ItinerairesTests extends ReseauDeTest {
+
+    @Autowired
+    private GareService gareService;
+
+    @Autowired
+    private TrainService trainService;
+
+    @Autowired
+    private MoteurHoraire moteurHoraire;
+
+    @Test
+    void trajetDirectSansCorrespondance() throws Exception {
+        mockMvc.perform(get("/api/trains/itineraires")
+                        .param("villeDepart", "Paris")
+                        .param("villeArrivee", "Lyon")
+                        .param("depart", "2024-06-01T06:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itinerairesPareto", hasSize(1)))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.correspondances").value(0))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.heureArrivee").value("2024-06-01T08:00:00"))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.trains[*].numeroTrain", contains("TGV6000")));
+    }
+
+    @Test
+    void correspondanceRespecteLeTempsMinimal() throws Exception {
+        Long lyon = gares.get(1).getId();
+
+        // TGV6000 arrive à Lyon à 8h00, TGV6005 en repart à 8h30 : 30 minutes suffisent
+        gareService.patcherGare(lyon, Map.of("tempsCorrespondance", 30), null);
+        mockMvc.perform(get("/api/trains/itineraires")
+                        .param("villeDepart", "Paris")
+                        .param("villeArrivee", "Marseille")
+                        .param("depart", "2024-06-01T06:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itineraireLePlusRapide.correspondances").value(1))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.heureArrivee").value("2024-06-01T10:30:00"))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.trains[*].numeroTrain", contains("TGV6000", "TGV6005")));
+
+        // Une minute de plus et la correspondance de 8h30 est manquée : on attend celle de 10h30
+        gareService.patcherGare(lyon, Map.of("tempsCorrespondance", 31), null);
+        mockMvc.perform(get("/api/trains/itineraires")
+                        .param("villeDepart", "Paris")
+                        .param("villeArrivee", "Marseille")
+                        .param("depart", "2024-06-01T06:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itineraireLePlusRapide.correspondances").value(1))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.heureArrivee").value("2024-06-01T12:30:00"))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.trains[1].numeroTrain").value("TGV6009"));
+    }
+
+    @Test
+    void ecrituresRecentesFusionneesAuParcours() throws Exception {
+        // Direct Paris → Marseille dans la surcouche : plus rapide que la correspondance à Lyon
+        LocalDateTime depart = LocalDateTime.of(2024, 6, 1, 6, 15);
+        Train direct = trainService.createTrain(
+                new Train("DIR7000", depart, depart.plusMinutes(165), gares.get(0), gares.get(2)));
+        MoteurHoraire.Connexions publiees = moteurHoraire.connexions();
+        mockMvc.perform(get("/api/trains/itineraires")
+                        .param("villeDepart", "Paris")
+                        .param("villeArrivee", "Marseille")
+                        .param("depart", "2024-06-01T06:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itineraireLePlusRapide.correspondances").value(0))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.heureArrivee").value("2024-06-01T09:00:00"))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.trains[*].numeroTrain", contains("DIR7000")));
+        // La lecture n'a rien reconstruit
+        assertSame(publiees, moteurHoraire.connexions());
+
+        // Train de la base supprimé (masqué) : le suivant Paris → Lyon part à 8h00
+        trainService.deleteTrain(trainId);
+        trainService.deleteTrain(direct.getId());
+        mockMvc.perform(get("/api/trains/itineraires")
+                        .param("villeDepart", "Paris")
+                        .param("villeArrivee", "Lyon")
+                        .param("depart", "2024-06-01T06:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itineraireLePlusRapide.heureArrivee").value("2024-06-01T10:00:00"))
+                .andExpect(jsonPath("$.itineraireLePlusRapide.trains[*].numeroTrain", contains("TGV6004")));
+    }
+}
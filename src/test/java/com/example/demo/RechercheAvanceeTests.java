@@ -0,0 +1,100 @@
+package com.example.demo;
+
+import com.example.demo.model.Train;
+import com.example.demo.service.GareService;
+import com.example.demo.service.TrainService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * La recherche avancée par le moteur horaire retient les mêmes trains que
+ * l'ancien filtre sur la liste complète, renvoyés en entier mais chargés par lots.
+ */
+class RechercheAvanceeTests extends ReseauDeTest {
+
+    private static final LocalDateTime DEBUT = LocalDateTime.of(2024, 6, 1, 6, 0);
+
+    @Autowired
+    private TrainService trainService;
+
+    @Autowired
+    private GareService gareService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void memesTrainsQueLeFiltreSurLaListeComplete() {
+        // Fenêtre bornée sur des départs exacts : les deux bornes sont incluses
+        verifier("Paris", null, null, null, null, null);
+        verifier(null, "Lyon", null, null, null, null);
+        verifier("paris", "LYON", null, null, null, null);
+        verifier("Lyon", "Paris", null, null, null, null);
+        verifier(null, null, DEBUT.plusHours(2), DEBUT.plusHours(5), null, null);
+        verifier("Marseille", null, DEBUT.plusMinutes(90), null, null, null);
+        verifier(null, null, null, DEBUT.plusHours(3), 120, null);
+        verifier(null, null, null, null, 119, null);
+        verifier("", "", null, null, 0, false);
+
+        gareService.updateGareStatus(gares.get(1).getId(), false);
+        verifier(null, null, null, null, null, true);
+        verifier("Paris", null, null, null, null, true);
+        verifier(null, "Lyon", null, null, null, true);
+    }
+
+    @Test
+    void listeCompleteChargeeParLots() throws Exception {
+        List<Long> attendus = idsAttendus(null, null, null, null, null, null);
+        assertEquals(40, attendus.size());
+
+        MvcResult resultat = mockMvc.perform(get("/api/trains/recherche-avancee"))
+                .andExpect(status().isOk()).andReturn();
+        assertNull(resultat.getResponse().getHeader("X-Next-Cursor"));
+        List<Long> lus = new ArrayList<>();
+        objectMapper.readTree(resultat.getResponse().getContentAsString())
+                .forEach(train -> lus.add(train.get("id").asLong()));
+        assertEquals(attendus, lus);
+
+        // 40 trains par lots de 7 (profil de test) : 6 lectures bornées
+        assertRequetes(6, get("/api/trains/recherche-avancee"));
+    }
+
+    private void verifier(String villeDepart, String villeArrivee, LocalDateTime dateDebut,
+                          LocalDateTime dateFin, Integer dureeMax, Boolean ouverteSeulement) {
+        List<Long> attendus = idsAttendus(villeDepart, villeArrivee, dateDebut, dateFin, dureeMax, ouverteSeulement);
+        List<Long> obtenus = trainService.rechercheAvancee(villeDepart, villeArrivee, dateDebut, dateFin,
+                        dureeMax, ouverteSeulement).stream().map(Train::getId).toList();
+        assertEquals(attendus, obtenus, "recherche " + villeDepart + " → " + villeArrivee);
+    }
+
+    // Filtre de la première version de la recherche avancée, sur tous les trains
+    private List<Long> idsAttendus(String villeDepart, String villeArrivee, LocalDateTime dateDebut,
+                                   LocalDateTime dateFin, Integer dureeMax, Boolean ouverteSeulement) {
+        return trainRepository.findAll().stream()
+                .filter(t -> villeDepart == null || villeDepart.isEmpty()
+                        || t.getGareDepart().getVille().equalsIgnoreCase(villeDepart))
+                .filter(t -> villeArrivee == null || villeArrivee.isEmpty()
+                        || t.getGareArrivee().getVille().equalsIgnoreCase(villeArrivee))
+                .filter(t -> dateDebut == null || !t.getHeureDepart().isBefore(dateDebut))
+                .filter(t -> dateFin == null || !t.getHeureDepart().isAfter(dateFin))
+                .filter(t -> dureeMax == null || dureeMax <= 0
+                        || Duration.between(t.getHeureDepart(), t.getHeureArrivee()).toMinutes() <= dureeMax)
+                .filter(t -> !Boolean.TRUE.equals(ouverteSeulement)
+                        || (t.getGareDepart().getEstOuverte() && t.getGareArrivee().getEstOuverte()))
+                .map(Train::getId)
+                .sorted()
+                .toList();
+    }
+}
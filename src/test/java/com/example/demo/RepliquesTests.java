@@ -0,0 +1,131 @@
+package com.example.demo;
+
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routage lecture/écriture sur deux bases H2 : la réplique est une copie de la
+ * primaire prise avant chaque test, tout ce qui est écrit ensuite n'existe que
+ * sur la primaire (une réplique en retard).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({ "test", "repliques" })
+class RepliquesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GareRepository gareRepository;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${rahal.repliques.urls}")
+    private String urlReplique;
+
+    @TempDir
+    Path dossier;
+
+    private List<Gare> gares;
+    private Long trainCopie;
+
+    @BeforeEach
+    void preparer() throws Exception {
+        trainRepository.deleteAll();
+        gareRepository.deleteAll();
+        gares = gareRepository.saveAll(List.of(
+                new Gare("Paris Gare de Lyon", "Paris", 20, true),
+                new Gare("Lyon Part-Dieu", "Lyon", 12, true)));
+        LocalDateTime depart = LocalDateTime.of(2024, 6, 1, 8, 0);
+        trainCopie = trainRepository.save(new Train("TGV6601", depart, depart.plusHours(2),
+                gares.get(0), gares.get(1))).getId();
+
+        // Hors requête HTTP : lu sur la primaire, rejoué sur la réplique
+        String script = dossier.resolve("primaire.sql").toString();
+        jdbcTemplate.execute("SCRIPT TO '" + script + "'");
+        try (Connection replique = DriverManager.getConnection(urlReplique, "sa", "");
+             Statement instruction = replique.createStatement()) {
+            instruction.execute("DROP ALL OBJECTS");
+            instruction.execute("RUNSCRIPT FROM '" + script + "'");
+        }
+    }
+
+    @Test
+    void lecturesSurLaRepliqueEcrituresSurLaPrimaire() throws Exception {
+        mockMvc.perform(get("/api/trains/{id}", trainCopie))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numeroTrain").value("TGV6601"));
+
+        MvcResult creation = mockMvc.perform(post("/api/trains").contentType(MediaType.APPLICATION_JSON)
+                        .content(train("TER7701")))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie ecriture = creation.getResponse().getCookie("rahal-ecriture");
+        assertNotNull(ecriture, "cookie de lecture après écriture");
+        Number id = JsonPath.read(creation.getResponse().getContentAsString(), "$.id");
+
+        // Sans le cookie : la réplique n'a pas encore le train
+        mockMvc.perform(get("/api/trains/{id}", id.longValue()))
+                .andExpect(status().isBadRequest());
+        // L'auteur de l'écriture relit sur la primaire
+        mockMvc.perform(get("/api/trains/{id}", id.longValue()).cookie(ecriture))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numeroTrain").value("TER7701"));
+    }
+
+    @Test
+    void statistiquesGareLisentLaGareSurLaPrimaire() throws Exception {
+        // Gare créée après la copie : absente de la réplique, et pas encore en cache
+        Gare nouvelle = gareRepository.save(new Gare("Marseille Saint-Charles", "Marseille", 14, true));
+
+        mockMvc.perform(get("/api/gares/{id}/statistiques", nouvelle.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nom").value("Marseille Saint-Charles"))
+                .andExpect(jsonPath("$.totalTrains").value(0));
+        // Le cache rempli par ce défaut sert la gare de la primaire
+        mockMvc.perform(get("/api/gares/{id}", nouvelle.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ville").value("Marseille"));
+    }
+
+    private String train(String numero) {
+        return "{\"numeroTrain\": \"" + numero + "\", "
+                + "\"heureDepart\": \"2024-06-01T10:00:00\", \"heureArrivee\": \"2024-06-01T12:00:00\", "
+                + "\"gareDepart\": {\"id\": " + gares.get(0).getId() + "}, "
+                + "\"gareArrivee\": {\"id\": " + gares.get(1).getId() + "}}";
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo;
+
+import com.example.demo.model.Gare;
+import com.example.demo.model.Train;
+import com.example.demo.repository.GareRepository;
+import com.example.demo.repository.TrainRepository;
+import com.example.demo.service.IndexGares;
+import com.example.demo.service.IndexRecherche;
+import com.example.demo.service.MoteurHoraire;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Réseau commun aux tests d'endpoints (un seul contexte Spring pour tous) :
+ * 4 gares ouvertes et 40 trains toutes les 30 minutes à partir du 1er juin 2024
+ * à 6h, le train i allant de la gare i % 4 à la gare (i + 1) % 4.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+abstract class ReseauDeTest {
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected GareRepository gareRepository;
+
+    @Autowired
+    protected TrainRepository trainRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private IndexRecherche indexRecherche;
+
+    @Autowired
+    private IndexGares indexGares;
+
+    @Autowired
+    private MoteurHoraire moteurHoraire;
+
+    protected Statistics statistiques;
+    protected List<Gare> gares;
+    protected Long gareId;
+    protected Long trainId;
+
+    @BeforeEach
+    void preparerReseau() {
+        trainRepository.deleteAll();
+        gareRepository.deleteAll();
+
+        gares = gareRepository.saveAll(List.of(
+                new Gare("Paris Gare de Lyon", "Paris", 20, true),
+                new Gare("Lyon Part-Dieu", "Lyon", 12, true),
+                new Gare("Marseille Saint-Charles", "Marseille", 14, true),
+                new Gare("Lille Flandres", "Lille", 8, true)));
+
+        LocalDateTime debut = LocalDateTime.of(2024, 6, 1, 6, 0);
+        List<Train> trains = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            trains.add(new Train("TGV" + (6000 + i),
+                    debut.plusMinutes(30L * i),
+                    debut.plusMinutes(30L * i + 120),
+                    gares.get(i % gares.size()),
+                    gares.get((i + 1) % gares.size())));
+        }
+        trainRepository.saveAll(trains);
+        // Données insérées sans passer par les services : aucun événement ne met l'index à jour
+        indexRecherche.charger();
+        indexGares.charger();
+        moteurHoraire.charger();
+
+        gareId = gares.get(0).getId();
+        trainId = trains.get(0).getId();
+        statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    protected void assertRequetes(long attendu, RequestBuilder requete) throws Exception {
+        statistiques.clear();
+        mockMvc.perform(requete).andExpect(status().isOk());
+        assertEquals(attendu, statistiques.getPrepareStatementCount(), "requêtes SQL exécutées");
+    }
+}
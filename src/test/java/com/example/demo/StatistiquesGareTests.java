@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import com.example.demo.model.Train;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statistiques d'une gare sur une période : un train qui part et arrive dans la
+ * même gare n'est compté qu'une fois, et seulement si ses deux horaires sont dans la période ;
+ * l'histogramme des départs est en heure locale, quel que soit le fuseau de la JVM.
+ */
+class StatistiquesGareTests extends ReseauDeTest {
+
+    @Test
+    void boucleCompteeUneFoisDansLaPeriode() throws Exception {
+        LocalDateTime jour = LocalDateTime.of(2024, 6, 5, 0, 0);
+        trainRepository.saveAll(List.of(
+                new Train("NAV9001", jour.plusHours(10), jour.plusHours(11), gares.get(0), gares.get(0)),
+                // Part le 5, arrive le 6 : départ du 5, arrivée du 6
+                new Train("NAV9002", jour.plusHours(23), jour.plusHours(25), gares.get(0), gares.get(0))));
+
+        mockMvc.perform(get("/api/gares/{id}/statistiques", gareId).param("date", "2024-06-05"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainsDepart").value(2))
+                .andExpect(jsonPath("$.trainsArrivee").value(1))
+                .andExpect(jsonPath("$.totalTrains").value(2));
+
+        mockMvc.perform(get("/api/gares/{id}/statistiques", gareId).param("date", "2024-06-06"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainsDepart").value(0))
+                .andExpect(jsonPath("$.trainsArrivee").value(1))
+                .andExpect(jsonPath("$.totalTrains").value(1));
+    }
+
+    @Test
+    void histogrammeEnHeureLocaleHorsUtc() throws Exception {
+        TimeZone fuseau = TimeZone.getDefault();
+        // Décalage fixe (+3), avec heure d'été (+2 en juin), non entier (+5:30)
+        for (String zone : List.of("GMT+03:00", "Europe/Paris", "Asia/Kolkata")) {
+            try {
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                LocalDateTime jour = LocalDateTime.of(2024, 6, 5, 0, 0);
+                trainRepository.deleteAll(trainRepository.findByNumeroTrainContainingIgnoreCase("HOR"));
+                trainRepository.saveAll(List.of(
+                        new Train("HOR9001", jour.plusHours(10), jour.plusHours(11), gares.get(0), gares.get(1)),
+                        new Train("HOR9002", jour.plusMinutes(10 * 60 + 45), jour.plusHours(12), gares.get(0), gares.get(1)),
+                        new Train("HOR9003", jour.plusMinutes(23 * 60 + 30), jour.plusHours(25), gares.get(0), gares.get(1))));
+
+                mockMvc.perform(get("/api/gares/{id}/statistiques", gareId).param("date", "2024-06-05"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.trainsDepart").value(3))
+                        .andExpect(jsonPath("$.departuresByHour", aMapWithSize(2)))
+                        .andExpect(jsonPath("$.departuresByHour.10").value(2))
+                        .andExpect(jsonPath("$.departuresByHour.23").value(1));
+            } finally {
+                TimeZone.setDefault(fuseau);
+            }
+        }
+    }
+}
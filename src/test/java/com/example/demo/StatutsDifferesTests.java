@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import com.example.demo.model.Gare;
+import com.example.demo.service.StatutsDifferes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Écriture différée du statut des gares : visible en mémoire, fusionnée au vidage,
+ * reprise depuis le journal après un arrêt brutal.
+ *
+ * Base et journal propres à cette classe : le mode différé n'y est pas partagé
+ * avec le contexte des autres tests.
+ */
+@TestPropertySource(properties = {
+        "rahal.ecriture-differee.actif=true",
+        "rahal.ecriture-differee.journal=target/statuts-differes-tests/statuts.journal",
+        "spring.datasource.url=jdbc:h2:mem:rahal_differe;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+class StatutsDifferesTests extends ReseauDeTest {
+
+    @Autowired
+    private StatutsDifferes statutsDifferes;
+
+    @Value("${rahal.ecriture-differee.journal}")
+    private String cheminJournal;
+
+    @AfterEach
+    void viderLesStatuts() {
+        statutsDifferes.vider();
+    }
+
+    @Test
+    void statutsDifferesFusionnesAuVidage() throws Exception {
+        statutsDifferes.changerStatut(gareId, false);
+        statutsDifferes.changerStatut(gareId, true);
+        statutsDifferes.changerStatut(gareId, false);
+
+        // Visible tout de suite, pas encore en base
+        mockMvc.perform(get("/api/gares/{id}", gareId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estOuverte").value(false));
+        assertEquals(true, gareRepository.findById(gareId).orElseThrow().getEstOuverte());
+
+        statutsDifferes.vider();
+
+        Gare ecrite = gareRepository.findById(gareId).orElseThrow();
+        assertEquals(false, ecrite.getEstOuverte());
+        assertEquals(1, ecrite.getVersion(), "trois changements, un seul UPDATE");
+    }
+
+    @Test
+    void patchDuStatutAccepteEtJournalise() throws Exception {
+        mockMvc.perform(patch("/api/gares/{id}/status", gareId).param("estOuverte", "false"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.estOuverte").value(false));
+
+        assertTrue(Files.readString(journal()).contains(gareId + ";0"), "changement journalisé avant la réponse");
+        assertEquals(true, gareRepository.findById(gareId).orElseThrow().getEstOuverte());
+        // Index des gares à jour sans attendre le vidage
+        mockMvc.perform(get("/api/gares").param("ouverte", "false"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(gareId));
+
+        statutsDifferes.vider();
+        assertEquals(false, gareRepository.findById(gareId).orElseThrow().getEstOuverte());
+        assertTrue(Files.notExists(journal()) || Files.readString(journal()).isEmpty(), "journal vidé");
+    }
+
+    @Test
+    void ecritureDirecteApresLeStatutEnAttente() throws Exception {
+        mockMvc.perform(patch("/api/gares/{id}/status", gareId).param("estOuverte", "false"))
+                .andExpect(status().isAccepted());
+
+        // Le statut en attente est écrit d'abord : le vidage suivant n'écrase pas le patch
+        mockMvc.perform(patch("/api/gares/{id}", gareId).contentType("application/merge-patch+json")
+                        .content("{\"estOuverte\": true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estOuverte").value(true));
+        statutsDifferes.vider();
+
+        Gare ecrite = gareRepository.findById(gareId).orElseThrow();
+        assertEquals(true, ecrite.getEstOuverte());
+        assertEquals(2, ecrite.getVersion(), "statut différé puis patch");
+    }
+
+    @Test
+    void journalRejoueAuDemarrage() throws Exception {
+        Long autre = gares.get(1).getId();
+        // Arrêt brutal pendant un vidage : un segment ".vidage" et un journal, dernière ligne tronquée
+        Path segment = journal().resolveSibling(journal().getFileName() + ".vidage");
+        Files.createDirectories(journal().getParent());
+        Files.writeString(segment, gareId + ";1\n" + autre + ";0\n", StandardCharsets.US_ASCII);
+        Files.writeString(journal(), gareId + ";0\nillisible\n" + autre + ";", StandardCharsets.US_ASCII);
+
+        statutsDifferes.reprendre();
+
+        mockMvc.perform(get("/api/gares/{id}", gareId)).andExpect(jsonPath("$.estOuverte").value(false));
+        statutsDifferes.vider();
+        assertEquals(false, gareRepository.findById(gareId).orElseThrow().getEstOuverte());
+        assertEquals(false, gareRepository.findById(autre).orElseThrow().getEstOuverte());
+        assertTrue(Files.notExists(segment), "segment supprimé après le commit");
+    }
+
+    private Path journal() {
+        return Paths.get(cheminJournal).toAbsolutePath();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Suppressions en masse par lots de DELETE ensemblistes.
+ */
+class SuppressionTests extends ReseauDeTest {
+
+    @Test
+    void suppressionDeGareParDeleteEnsembliste() throws Exception {
+        statistiques.clear();
+        mockMvc.perform(delete("/api/gares/{id}", gareId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainsSupprimes").value(20))
+                .andExpect(jsonPath("$.lots").value(1));
+        // Ni trains chargés par la cascade, ni DELETE par entité
+        assertEquals(1, statistiques.getEntityLoadCount(), "entités chargées");
+        assertEquals(0, statistiques.getEntityDeleteCount(), "DELETE par entité");
+        assertEquals(20, trainRepository.count());
+
+        // Index et tableaux à jour après commit
+        mockMvc.perform(get("/api/trains/autocomplete").param("q", "tgv600").param("limite", "10"))
+                .andExpect(jsonPath("$.length()").value(5));
+    }
+
+    @Test
+    void suppressionDeTrainsParPeriode() throws Exception {
+        mockMvc.perform(delete("/api/trains")).andExpect(status().isBadRequest());
+
+        mockMvc.perform(delete("/api/trains")
+                        .param("debut", "2024-06-01T06:00:00").param("fin", "2024-06-01T11:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainsSupprimes").value(10));
+        assertEquals(30, trainRepository.count());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo;
+
+import com.example.demo.model.Train;
+import com.example.demo.service.GareService;
+import com.example.demo.service.TableauxGares;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tableaux des départs et arrivées : servis depuis l'anneau en mémoire.
+ */
+class TableauxTests extends ReseauDeTest {
+
+    @Autowired
+    private TableauxGares tableauxGares;
+
+    @Autowired
+    private GareService gareService;
+
+    @Test
+    void tableauSansRequete() throws Exception {
+        LocalDateTime bientot = LocalDateTime.now().plusMinutes(20);
+        Train prochain = trainRepository.save(new Train("TER1", bientot, bientot.plusMinutes(45),
+                gareRepository.findById(gareId).orElseThrow(), gareRepository.findAll().get(1)));
+        tableauxGares.charger();
+
+        assertRequetes(0, get("/api/gares/{id}/tableau", gareId));
+        assertEquals(0, statistiques.getTransactionCount(), "ni transaction ni connexion");
+        mockMvc.perform(get("/api/gares/{id}/tableau", gareId).param("limite", "5"))
+                .andExpect(jsonPath("$.departs.length()").value(1))
+                .andExpect(jsonPath("$.departs[0].trainId").value(prochain.getId()))
+                .andExpect(jsonPath("$.arrivees.length()").value(0));
+    }
+
+    @Test
+    void rechargeSeulementSiNomOuVilleChange() throws Exception {
+        tableauxGares.charger();
+        // Écrit sans passer par les services : n'apparaît qu'au prochain rechargement complet
+        LocalDateTime bientot = LocalDateTime.now().plusMinutes(20);
+        Train cache = trainRepository.save(new Train("TER2", bientot, bientot.plusMinutes(45),
+                gareRepository.findById(gareId).orElseThrow(), gareRepository.findAll().get(1)));
+
+        gareService.updateGareStatus(gareId, false);
+        mockMvc.perform(patch("/api/gares/batch/status").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"estOuverte\": true, \"ids\": [" + gareId + "]}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/gares/{id}/tableau", gareId))
+                .andExpect(jsonPath("$.departs.length()").value(0));
+
+        mockMvc.perform(patch("/api/gares/{id}", gareId).contentType("application/merge-patch+json")
+                        .content("{\"nom\": \"Paris Bercy\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/gares/{id}/tableau", gareId))
+                .andExpect(jsonPath("$.departs.length()").value(1))
+                .andExpect(jsonPath("$.departs[0].trainId").value(cache.getId()));
+    }
+}
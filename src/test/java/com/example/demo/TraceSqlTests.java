@@ -0,0 +1,46 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Trace SQL par requête HTTP : instructions comptées par endpoint, et connexion
+ * rendue telle quelle hors de toute requête tracée.
+ */
+class TraceSqlTests extends ReseauDeTest {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void requetesSqlTraceesParRequeteHttp() throws Exception {
+        mockMvc.perform(get("/api/trains/gare/{id}", gareId)).andExpect(status().isOk());
+
+        DistributionSummary resume = registry.find("rahal.sql.requetes")
+                .tag("uri", "/api/trains/gare/{gareId}").summary();
+        assertNotNull(resume, "instructions SQL comptées par requête HTTP");
+        assertEquals(1.0, resume.max(), "une seule instruction pour les trains d'une gare");
+    }
+
+    @Test
+    void connexionNonEnveloppeeHorsRequeteHttp() throws Exception {
+        try (Connection connexion = dataSource.getConnection()) {
+            assertFalse(Proxy.isProxyClass(connexion.getClass()), "pas de proxy de trace sans trace active");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Vérifie que chaque endpoint de lecture des trains ne produit qu'une seule
+ * requête SQL, quel que soit le nombre de gares distinctes (pas de N+1).
+ */
+class TrainRequetesTests extends ReseauDeTest {
+
+    @Test
+    void listeDesTrains() throws Exception {
+        assertRequetes(1, get("/api/trains"));
+        assertRequetes(1, get("/api/trains").param("tri", "heureDepart"));
+    }
+
+    @Test
+    void trainsParGare() throws Exception {
+        assertRequetes(1, get("/api/trains/gare/{id}", gareId));
+    }
+
+    @Test
+    void rechercheParNumero() throws Exception {
+        assertRequetes(1, get("/api/trains/search").param("numero", "tgv60"));
+        assertRequetes(1, get("/api/trains/search").param("numero", "tgv60").param("tri", "heureDepart"));
+    }
+
+    @Test
+    void trainsParDuree() throws Exception {
+        assertRequetes(1, get("/api/trains/duree").param("min", "60").param("max", "180"));
+
+        mockMvc.perform(get("/api/trains/duree").param("max", "119"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/trains/{id}", trainId))
+                .andExpect(jsonPath("$.dureeMinutes").value(120));
+    }
+
+    @Test
+    void rechercheParVilles() throws Exception {
+        assertRequetes(1, get("/api/trains/recherche").param("depart", "Paris").param("arrivee", "Lyon"));
+    }
+
+    @Test
+    void trainParId() throws Exception {
+        assertRequetes(1, get("/api/trains/{id}", trainId));
+    }
+
+    @Test
+    void pageSuivanteAussiEnUneRequete() throws Exception {
+        String curseur = mockMvc.perform(get("/api/trains").param("taille", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(10))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        assertRequetes(1, get("/api/trains").param("taille", "10").param("curseur", curseur));
+    }
+}
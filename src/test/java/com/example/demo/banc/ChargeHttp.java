@@ -0,0 +1,364 @@
+package com.example.demo.banc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Petit générateur de charge HTTP (JDK seul) : C clients en boucle fermée pendant
+ * D secondes, après un échauffement. Affiche le débit et les percentiles de latence,
+ * globalement et par libellé de requête.
+ *
+ * Deux modes :
+ * - une liste d'URL tirées au hasard (voir scripts/comparer-threads.sh) ;
+ * - un scénario pondéré (--scenario, voir banc/scenario-reseau.txt) dont les chemins
+ *   contiennent des variables ({gare}, {ville}, {numero}...) tirées dans les données
+ *   du serveur, lues au démarrage (voir scripts/charge-reseau.sh).
+ *
+ * Usage : java -cp target/test-classes com.example.demo.banc.ChargeHttp
+ *             [--clients 200] [--duree 30] [--echauffement 10] [--libelle nom] URL...
+ *         java -cp target/test-classes com.example.demo.banc.ChargeHttp
+ *             --scenario banc/scenario-reseau.txt --base http://localhost:8787 [--date 2024-06-03 --jours 7]
+ */
+public class ChargeHttp {
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final Pattern VILLE = Pattern.compile("\"ville\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern NUMERO = Pattern.compile("\"numeroTrain\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern VARIABLE = Pattern.compile("\\{(\\w+)}");
+
+    public static void main(String[] args) throws Exception {
+        int clients = 200;
+        int duree = 30;
+        int echauffement = 10;
+        String libelle = "charge";
+        String scenario = null;
+        String base = "http://localhost:8787";
+        LocalDate date = LocalDate.now();
+        int jours = 7;
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--duree" -> duree = Integer.parseInt(args[++i]);
+                case "--echauffement" -> echauffement = Integer.parseInt(args[++i]);
+                case "--libelle" -> libelle = args[++i];
+                case "--scenario" -> scenario = args[++i];
+                case "--base" -> base = args[++i];
+                case "--date" -> date = LocalDate.parse(args[++i]);
+                case "--jours" -> jours = Integer.parseInt(args[++i]);
+                default -> urls.add(args[i]);
+            }
+        }
+
+        HttpClient http = client();
+        List<Requete> requetes = new ArrayList<>();
+        if (scenario != null) {
+            requetes = lireScenario(scenario, base);
+            Donnees donnees = Donnees.lire(http, base, date, jours);
+            System.out.println("Données : " + donnees.gares.size() + " gares, " + donnees.villes.size()
+                    + " villes, " + donnees.numeros.size() + " numéros de train");
+            for (Requete requete : requetes) {
+                requete.donnees = donnees;
+            }
+        } else {
+            for (String url : urls) {
+                requetes.add(new Requete(1, URI.create(url).getPath(), url));
+            }
+        }
+        if (requetes.isEmpty()) {
+            System.err.println("Au moins une URL ou un scénario est nécessaire");
+            System.exit(2);
+        }
+
+        Map<String, Resultat> resultats = lancer(http, requetes, scenario != null, clients, echauffement, duree);
+        for (Map.Entry<String, Resultat> entree : resultats.entrySet()) {
+            String nom = entree.getKey().isEmpty() ? libelle : libelle + " " + entree.getKey();
+            System.out.println(entree.getValue().ligne(nom));
+        }
+    }
+
+    /** Mesures d'un tir : latences en microsecondes, triées. */
+    public record Resultat(long[] latences, long erreurs, double secondes) {
+
+        public double debit() {
+            return latences.length / secondes;
+        }
+
+        public long percentile(double p) {
+            if (latences.length == 0) {
+                return 0;
+            }
+            int rang = (int) Math.ceil(p / 100.0 * latences.length) - 1;
+            return latences[Math.max(0, Math.min(rang, latences.length - 1))];
+        }
+
+        public String ligne(String libelle) {
+            return String.format(Locale.ROOT,
+                    "%-40s requetes=%d erreurs=%d debit=%.1f/s p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                    libelle, latences.length, erreurs, debit(),
+                    percentile(50) / 1000.0, percentile(90) / 1000.0, percentile(99) / 1000.0,
+                    percentile(100) / 1000.0);
+        }
+    }
+
+    // ============ SCÉNARIO ============
+
+    /** Une ligne du scénario : poids, libellé et chemin (variables comprises). */
+    private static final class Requete {
+        final int poids;
+        final String libelle;
+        final String modele;
+        Donnees donnees;
+
+        Requete(int poids, String libelle, String modele) {
+            this.poids = poids;
+            this.libelle = libelle;
+            this.modele = modele;
+        }
+
+        URI uri() {
+            if (donnees == null) {
+                return URI.create(modele);
+            }
+            Matcher m = VARIABLE.matcher(modele);
+            StringBuilder resultat = new StringBuilder();
+            while (m.find()) {
+                m.appendReplacement(resultat, Matcher.quoteReplacement(encoder(donnees.valeur(m.group(1)))));
+            }
+            m.appendTail(resultat);
+            return URI.create(resultat.toString());
+        }
+    }
+
+    private static List<Requete> lireScenario(String chemin, String base) throws IOException {
+        List<String> lignes;
+        Path fichier = Path.of(chemin);
+        if (Files.exists(fichier)) {
+            lignes = Files.readAllLines(fichier);
+        } else {
+            try (InputStream ressource = ChargeHttp.class.getClassLoader().getResourceAsStream(chemin)) {
+                if (ressource == null) {
+                    throw new IOException("Scénario introuvable : " + chemin);
+                }
+                lignes = new String(ressource.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+            }
+        }
+        List<Requete> requetes = new ArrayList<>();
+        for (String ligne : lignes) {
+            String contenu = ligne.strip();
+            if (contenu.isEmpty() || contenu.startsWith("#")) {
+                continue;
+            }
+            String[] champs = contenu.split("\\s+", 3);
+            if (champs.length < 3) {
+                throw new IOException("Ligne de scénario invalide : " + ligne);
+            }
+            requetes.add(new Requete(Integer.parseInt(champs[0]), champs[1], base + champs[2]));
+        }
+        return requetes;
+    }
+
+    /** Valeurs réelles du serveur, pour que les requêtes touchent des données existantes. */
+    private static final class Donnees {
+        final List<String> gares = new ArrayList<>();
+        final List<String> villes = new ArrayList<>();
+        final List<String> numeros = new ArrayList<>();
+        final LocalDate date;
+        final int jours;
+
+        Donnees(LocalDate date, int jours) {
+            this.date = date;
+            this.jours = jours;
+        }
+
+        static Donnees lire(HttpClient http, String base, LocalDate date, int jours) throws Exception {
+            Donnees donnees = new Donnees(date, jours);
+            String gares = get(http, base + "/api/gares?taille=1000");
+            Set<String> villes = new LinkedHashSet<>();
+            for (Matcher m = ID.matcher(gares); m.find(); ) {
+                donnees.gares.add(m.group(1));
+            }
+            for (Matcher m = VILLE.matcher(gares); m.find(); ) {
+                villes.add(m.group(1));
+            }
+            donnees.villes.addAll(villes);
+            String trains = get(http, base + "/api/trains?taille=1000");
+            for (Matcher m = NUMERO.matcher(trains); m.find(); ) {
+                donnees.numeros.add(m.group(1));
+            }
+            if (donnees.gares.isEmpty() || donnees.numeros.isEmpty()) {
+                throw new IllegalStateException("Le serveur n'a ni gares ni trains : générer un réseau d'abord");
+            }
+            return donnees;
+        }
+
+        String valeur(String variable) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return switch (variable) {
+                case "gare" -> tirer(gares);
+                case "ville", "ville2" -> tirer(villes);
+                case "prefixe" -> { String v = tirer(villes); yield v.substring(0, Math.min(3, v.length())); }
+                case "numero" -> { String n = tirer(numeros); yield n.substring(0, Math.max(1, n.length() - 2)); }
+                case "debut" -> date.plusDays(random.nextInt(jours)).atTime(random.nextInt(24), 0).toString();
+                case "fin" -> date.plusDays(jours).atStartOfDay().toString();
+                case "jour" -> date.plusDays(random.nextInt(jours)).toString();
+                default -> throw new IllegalArgumentException("Variable de scénario inconnue : " + variable);
+            };
+        }
+
+        private static String tirer(List<String> valeurs) {
+            return valeurs.get(ThreadLocalRandom.current().nextInt(valeurs.size()));
+        }
+    }
+
+    private static String encoder(String valeur) {
+        return URLEncoder.encode(valeur, StandardCharsets.UTF_8).replace("+", "%20").replace("%3A", ":");
+    }
+
+    private static String get(HttpClient http, String url) throws Exception {
+        HttpResponse<String> reponse = http.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (reponse.statusCode() != 200) {
+            throw new IllegalStateException(url + " : HTTP " + reponse.statusCode());
+        }
+        return reponse.body();
+    }
+
+    // ============ TIR ============
+
+    private static HttpClient client() {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+    }
+
+    /**
+     * Résultat global (clé "") puis, en mode scénario, un résultat par libellé.
+     */
+    private static Map<String, Resultat> lancer(HttpClient http, List<Requete> requetes, boolean parLibelle,
+                                                int clients, int echauffement, int duree) throws Exception {
+        Requete[] tirage = ponderer(requetes);
+        tirer(http, tirage, clients, echauffement * 1000L);
+        long debut = System.nanoTime();
+        List<Map<String, Serie>> parClient = tirer(http, tirage, clients, duree * 1000L);
+        double secondes = (System.nanoTime() - debut) / 1e9;
+
+        Map<String, Serie> fusion = new TreeMap<>();
+        Serie globale = new Serie();
+        for (Map<String, Serie> series : parClient) {
+            series.forEach((libelle, serie) -> {
+                fusion.computeIfAbsent(libelle, l -> new Serie()).ajouter(serie);
+                globale.ajouter(serie);
+            });
+        }
+        Map<String, Resultat> resultats = new LinkedHashMap<>();
+        resultats.put("", globale.resultat(secondes));
+        if (parLibelle) {
+            fusion.forEach((libelle, serie) -> resultats.put(libelle, serie.resultat(secondes)));
+        }
+        return resultats;
+    }
+
+    // Chaque requête apparaît autant de fois que son poids
+    private static Requete[] ponderer(List<Requete> requetes) {
+        List<Requete> tirage = new ArrayList<>();
+        for (Requete requete : requetes) {
+            for (int i = 0; i < requete.poids; i++) {
+                tirage.add(requete);
+            }
+        }
+        return tirage.toArray(new Requete[0]);
+    }
+
+    /** Latences d'un client pour un libellé. */
+    private static final class Serie {
+        long[] latences = new long[256];
+        int n;
+        long erreurs;
+
+        void ajouter(long latence) {
+            if (n == latences.length) {
+                latences = Arrays.copyOf(latences, n * 2);
+            }
+            latences[n++] = latence;
+        }
+
+        void ajouter(Serie autre) {
+            for (int i = 0; i < autre.n; i++) {
+                ajouter(autre.latences[i]);
+            }
+            erreurs += autre.erreurs;
+        }
+
+        Resultat resultat(double secondes) {
+            long[] triees = Arrays.copyOf(latences, n);
+            Arrays.sort(triees);
+            return new Resultat(triees, erreurs, secondes);
+        }
+    }
+
+    private static List<Map<String, Serie>> tirer(HttpClient http, Requete[] tirage, int clients, long dureeMs)
+            throws Exception {
+        long fin = System.currentTimeMillis() + dureeMs;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<Map<String, Serie>>> futurs = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            futurs.add(pool.submit(() -> {
+                Map<String, Serie> series = new HashMap<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < fin) {
+                    Requete requete = tirage[random.nextInt(tirage.length)];
+                    Serie serie = series.computeIfAbsent(requete.libelle, l -> new Serie());
+                    HttpRequest requeteHttp = HttpRequest.newBuilder(requete.uri())
+                            .timeout(Duration.ofSeconds(30)).GET().build();
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> reponse = http.send(requeteHttp, HttpResponse.BodyHandlers.discarding());
+                        if (reponse.statusCode() >= 400) {
+                            serie.erreurs++;
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        serie.erreurs++;
+                        continue;
+                    }
+                    serie.ajouter((System.nanoTime() - t0) / 1000);
+                }
+                return series;
+            }));
+        }
+        List<Map<String, Serie>> resultats = new ArrayList<>();
+        for (Future<Map<String, Serie>> futur : futurs) {
+            resultats.add(futur.get());
+        }
+        pool.shutdown();
+        return resultats;
+    }
+}